@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+# Runs the JMH benchmarks with the GC profiler (allocation per operation).
+#
+#   ./run-benchmarks.sh baseline [jmh args]   record baseline/jmh-baseline.json
+#   ./run-benchmarks.sh check [jmh args]      compare against it, exit 1 on a regression
+#
+# Extra arguments go to JMH, e.g. a benchmark regex: ./run-benchmarks.sh check EmbeddingDecode
+set -euo pipefail
+cd "$(dirname "$0")"
+
+mode="${1:-check}"
+shift || true
+
+sh ../mvnw -q -f ../pom.xml install -DskipTests
+sh ../mvnw -q package
+
+mkdir -p target
+# VectorStoreBenchmark needs Postgres and Qdrant running and is run on its own
+java -jar target/benchmarks.jar -prof gc -e VectorStoreBenchmark -rf json -rff target/jmh-result.json "$@"
+
+case "$mode" in
+  baseline)
+    mkdir -p baseline
+    cp target/jmh-result.json baseline/jmh-baseline.json
+    echo "Baseline written to baseline/jmh-baseline.json, commit it together with the change it measures"
+    ;;
+  check)
+    if [ ! -f baseline/jmh-baseline.json ]; then
+      echo "No baseline yet, record one with: $0 baseline" >&2
+      exit 2
+    fi
+    java -cp target/benchmarks.jar com.docqry.backend.benchmarks.BaselineComparator \
+      baseline/jmh-baseline.json target/jmh-result.json "${THROUGHPUT_TOLERANCE:-0.10}" "${ALLOCATION_TOLERANCE:-0.10}"
+    ;;
+  *)
+    echo "Unknown mode $mode, expected baseline or check" >&2
+    exit 2
+    ;;
+esac
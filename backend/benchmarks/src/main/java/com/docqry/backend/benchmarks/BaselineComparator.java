@@ -0,0 +1,101 @@
+package com.docqry.backend.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a JMH JSON result ({@code -rf json}) with the baseline and exits with status 1 when a benchmark lost
+ * more throughput, or allocates more per operation ({@code gc.alloc.rate.norm}, needs {@code -prof gc}),
+ * than the allowed tolerance.
+ * <p>
+ * Usage: {@code BaselineComparator <baseline.json> <result.json> [throughputTolerance] [allocationTolerance]},
+ * tolerances as fractions, 0.10 by default.
+ */
+public class BaselineComparator {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+    // Allocation differences below this many bytes per operation are noise (TLAB and profiler effects)
+    private static final double ALLOCATION_NOISE_BYTES = 64;
+
+    record Result(double throughput, String unit, Double bytesPerOp) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BaselineComparator <baseline.json> <result.json> [throughputTolerance] [allocationTolerance]");
+            System.exit(2);
+        }
+        double throughputTolerance = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+        double allocationTolerance = args.length > 3 ? Double.parseDouble(args[3]) : 0.10;
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, Result> entry : current.entrySet()) {
+            Result before = baseline.get(entry.getKey());
+            Result after = entry.getValue();
+            if (before == null) {
+                System.out.printf("NEW        %s: %.1f %s%n", entry.getKey(), after.throughput(), after.unit());
+                continue;
+            }
+
+            double throughputChange = (after.throughput() - before.throughput()) / before.throughput();
+            boolean slower = throughputChange < -throughputTolerance;
+            boolean allocatesMore = before.bytesPerOp() != null && after.bytesPerOp() != null
+                    && after.bytesPerOp() - before.bytesPerOp() > ALLOCATION_NOISE_BYTES
+                    && after.bytesPerOp() > before.bytesPerOp() * (1 + allocationTolerance);
+
+            System.out.printf("%-10s %s: %.1f -> %.1f %s (%+.1f%%)%s%n",
+                    slower || allocatesMore ? "REGRESSED" : "OK",
+                    entry.getKey(), before.throughput(), after.throughput(), after.unit(), 100 * throughputChange,
+                    before.bytesPerOp() != null && after.bytesPerOp() != null
+                            ? String.format(", %.0f -> %.0f B/op", before.bytesPerOp(), after.bytesPerOp())
+                            : "");
+            if (slower || allocatesMore) {
+                regressions.add(entry.getKey());
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d benchmark(s) regressed against the baseline%n", regressions.size());
+            System.exit(1);
+        }
+    }
+
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            JsonNode primary = run.path("primaryMetric");
+            Double bytesPerOp = null;
+            Iterator<Map.Entry<String, JsonNode>> secondary = run.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                Map.Entry<String, JsonNode> metric = secondary.next();
+                // Older JMH versions prefix profiler metrics with a middle dot
+                if (metric.getKey().replace("·", "").equals(ALLOCATION_METRIC)) {
+                    bytesPerOp = metric.getValue().path("score").asDouble();
+                }
+            }
+            results.put(key(run), new Result(primary.path("score").asDouble(), primary.path("scoreUnit").asText(), bytesPerOp));
+        }
+        return results;
+    }
+
+    private static String key(JsonNode run) {
+        StringBuilder key = new StringBuilder(run.path("benchmark").asText());
+        Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+        while (params.hasNext()) {
+            Map.Entry<String, JsonNode> param = params.next();
+            key.append(key.indexOf("{") < 0 ? " {" : ", ").append(param.getKey()).append('=').append(param.getValue().asText());
+        }
+        return run.path("params").isEmpty() ? key.toString() : key.append('}').toString();
+    }
+}
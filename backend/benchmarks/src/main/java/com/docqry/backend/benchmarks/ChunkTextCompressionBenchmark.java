@@ -0,0 +1,100 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.services.ChunkTextCodec;
+import com.docqry.backend.services.SentenceStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of storing chunk texts compressed: deflating a document's chunks at upload and inflating one chunk
+ * on a cache miss, next to decoding the same chunk stored as plain text and cutting it from a sentence stream.
+ * {@code bytes} reports what each read pulls from the table, the I/O the compression saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkTextCompressionBenchmark {
+
+    // Chunks of about 512 tokens overlapping by about 80, as produced at ingestion
+    @Param({"200"})
+    int chunkCount;
+
+    @Param({"1", "6", "9"})
+    int level;
+
+    private List<String> chunks;
+    private byte[] dictionary;
+    private byte[][] compressed;
+    private byte[][] plain;
+    private SentenceStream sentenceStream;
+    private int next;
+
+    /**
+     * Bytes read per operation, reported next to the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StoredBytes {
+        public long bytes;
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<String> sentences = new ArrayList<>();
+        for (int i = 0; i < chunkCount * 20 + 24; i++) {
+            sentences.add(SampleText.sentence(random));
+        }
+        sentenceStream = SentenceStream.of(sentences.toArray(String[]::new));
+        chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(sentenceStream.chunk(i * 20, i * 20 + 24));
+        }
+        dictionary = ChunkTextCodec.buildDictionary(chunks);
+        compressed = new byte[chunkCount][];
+        plain = new byte[chunkCount][];
+        for (int i = 0; i < chunkCount; i++) {
+            compressed[i] = ChunkTextCodec.compress(chunks.get(i), dictionary, level);
+            plain[i] = chunks.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public byte[][] compressDocument() {
+        byte[] documentDictionary = ChunkTextCodec.buildDictionary(chunks);
+        byte[][] result = new byte[chunks.size()][];
+        for (int i = 0; i < chunks.size(); i++) {
+            result[i] = ChunkTextCodec.compress(chunks.get(i), documentDictionary, level);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String readCompressedChunk(StoredBytes stored) {
+        int i = next++ % chunkCount;
+        stored.bytes += compressed[i].length;
+        return ChunkTextCodec.decompress(compressed[i], dictionary);
+    }
+
+    @Benchmark
+    public String readPlainChunk(StoredBytes stored) {
+        int i = next++ % chunkCount;
+        stored.bytes += plain[i].length;
+        return new String(plain[i], StandardCharsets.UTF_8);
+    }
+
+    // A cached sentence stream reads no bytes per chunk, the stream itself is loaded once per document
+    @Benchmark
+    public String readSentenceRangeChunk() {
+        int i = next++ % chunkCount;
+        return sentenceStream.chunk(i * 20, i * 20 + 24);
+    }
+}
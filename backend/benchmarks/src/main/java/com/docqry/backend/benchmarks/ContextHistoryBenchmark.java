@@ -0,0 +1,44 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.services.ContextHistory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Combining a new query summary with the history and truncating the result, once with a limit that is never
+ * reached (the production case) and once with one that truncates on every append.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContextHistoryBenchmark {
+
+    private static final int HISTORY_SIZE = 5;
+
+    @Param({"1048576", "1000"})
+    int maxInputTokens;
+
+    private ContextHistory contextHistory;
+    private String[] summaries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        contextHistory = new ContextHistory(HISTORY_SIZE, maxInputTokens);
+        summaries = new String[16];
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = SampleText.document(1500, i);
+        }
+    }
+
+    @Benchmark
+    public String append() {
+        String summary = summaries[next];
+        next = (next + 1) % summaries.length;
+        return contextHistory.append(summary);
+    }
+}
@@ -0,0 +1,53 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.exceptions.NoContextAvailableException;
+import com.docqry.backend.services.ContextManagerService;
+import com.docqry.backend.services.PromptManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prompt assembly, dominated by {@code cleanAndDeduplicateContext} splitting and deduplicating the context.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptManagerBenchmark {
+
+    @Param({"4000", "40000"})
+    int contextLength;
+
+    private PromptManager promptManager;
+
+    @Setup
+    public void setUp() {
+        // Half of the sentences repeat, as they do once several query summaries are combined
+        Random random = new Random(7);
+        StringBuilder context = new StringBuilder();
+        String previous = SampleText.sentence(random);
+        while (context.length() < contextLength) {
+            String sentence = random.nextBoolean() ? previous : SampleText.sentence(random);
+            context.append(sentence).append(' ');
+            previous = sentence;
+        }
+        String fixedContext = context.toString();
+
+        ContextManagerService contextManagerService = new ContextManagerService(null, null, null, null, null, null, null, null) {
+            @Override
+            public String getContext() {
+                return fixedContext;
+            }
+        };
+        promptManager = new PromptManager(contextManagerService);
+    }
+
+    @Benchmark
+    public String generateProcessedPrompt() throws NoContextAvailableException {
+        return promptManager.generateProcessedPrompt("What do insurers pay for generic drugs?");
+    }
+}
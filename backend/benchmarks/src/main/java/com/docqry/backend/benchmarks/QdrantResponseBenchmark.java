@@ -0,0 +1,72 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.services.QdrantService;
+import com.docqry.backend.services.VectorStore;
+import io.qdrant.client.grpc.Points;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static io.qdrant.client.PointIdFactory.id;
+import static io.qdrant.client.ValueFactory.value;
+
+/**
+ * Turning Qdrant search hits into the REST response and into the typed hits the context is built from.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QdrantResponseBenchmark {
+
+    @Param({"5", "50"})
+    int hits;
+
+    @Param({"1024"})
+    int dimension;
+
+    private QdrantService qdrantService;
+    private List<Points.ScoredPoint> withVectors;
+    private List<Points.ScoredPoint> withoutVectors;
+
+    @Setup
+    public void setUp() {
+        // The gRPC channel is only opened on the first call, none of which a benchmark makes
+        qdrantService = new QdrantService(null, null, null);
+        Random random = new Random(11);
+        String docId = UUID.randomUUID().toString();
+        withVectors = new ArrayList<>(hits);
+        withoutVectors = new ArrayList<>(hits);
+        for (int i = 0; i < hits; i++) {
+            Points.Vector.Builder vector = Points.Vector.newBuilder();
+            for (int d = 0; d < dimension; d++) {
+                vector.addData(random.nextFloat());
+            }
+            String chunkId = UUID.randomUUID().toString();
+            Points.ScoredPoint point = Points.ScoredPoint.newBuilder()
+                    .setId(id(UUID.fromString(chunkId)))
+                    .setScore(1f - i / (float) hits)
+                    .putAllPayload(Map.of("docId", value(docId), "chunkId", value(chunkId), "chunkIndex", value(i)))
+                    .build();
+            withoutVectors.add(point);
+            withVectors.add(point.toBuilder().setVectors(Points.Vectors.newBuilder().setVector(vector)).build());
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> prepareResponse() {
+        return qdrantService.prepareResponse(withVectors);
+    }
+
+    @Benchmark
+    public List<VectorStore.ScoredChunk> toScoredChunks() {
+        return qdrantService.toScoredChunks(withoutVectors);
+    }
+}
@@ -0,0 +1,40 @@
+package com.docqry.backend.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Deterministic, document-like text so every run of a benchmark sees the same input.
+ */
+final class SampleText {
+
+    private static final String[] WORDS = {
+            "generic", "drugs", "patients", "insurers", "costs", "trial", "results", "the", "of", "and",
+            "dosage", "approval", "market", "price", "study", "effects", "regulator", "report", "coverage", "a",
+            "hospital", "clinical", "evidence", "policy", "with", "for", "in", "analysis", "data", "outcomes"};
+
+    private SampleText() {
+    }
+
+    static String document(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 128);
+        while (text.length() < length) {
+            text.append(sentence(random)).append(' ');
+        }
+        return text.toString();
+    }
+
+    static String sentence(Random random) {
+        int words = 8 + random.nextInt(20);
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (i == 0) {
+                sentence.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+            } else {
+                sentence.append(' ').append(word);
+            }
+        }
+        return sentence.append('.').toString();
+    }
+}
@@ -0,0 +1,42 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.services.SemanticChunker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sentence detection and chunking of an uploaded document, with the chunk size and overlap used at ingestion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SemanticChunkerBenchmark {
+
+    @Param({"20000", "200000"})
+    int documentLength;
+
+    // Run from backend/benchmarks, the model is the one the Dockerfile copies into the image
+    @Param({"../en-sent.bin"})
+    String sentenceModelPath;
+
+    private SemanticChunker chunker;
+    private String document;
+
+    @Setup
+    public void setUp() {
+        chunker = new SemanticChunker(sentenceModelPath);
+        document = SampleText.document(documentLength, 42);
+        // Load the model outside the measurement
+        chunker.splitTextIntoSemanticChunks("Warm up. The model.", 512, 80);
+    }
+
+    @Benchmark
+    public List<String> splitTextIntoSemanticChunks() {
+        return chunker.splitTextIntoSemanticChunks(document, 512, 80);
+    }
+}
@@ -0,0 +1,209 @@
+package com.docqry.backend.benchmarks;
+
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.services.PgVectorStore;
+import com.docqry.backend.services.QdrantService;
+import com.docqry.backend.services.VectorStore.IndexedChunk;
+import com.docqry.backend.services.VectorStore.ScoredChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.qdrant.client.QdrantClient;
+import io.qdrant.client.QdrantGrpcClient;
+import io.qdrant.client.grpc.Collections.CollectionStatus;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency of the Qdrant and pgvector stores over the same random unit vectors, with the recall@k of each
+ * against an exact scan printed once the data is loaded. Needs Postgres with pgvector and Qdrant running, as for
+ * the load tests, so {@code run-benchmarks.sh} leaves it out. The pgvector side writes to its own database:
+ * <pre>
+ * createdb docqry_benchmark
+ * DB_USER=... DB_PWD=... java -jar target/benchmarks.jar VectorStoreBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class VectorStoreBenchmark {
+
+    private static final String COLLECTION = "vector-store-benchmark";
+    private static final String DOCUMENT_ID = "vector-store-benchmark";
+    private static final int BATCH_SIZE = 256;
+    private static final int RECALL_QUERIES = 100;
+
+    @Param({"qdrant", "pgvector"})
+    String store;
+
+    @Param({"20000"})
+    int vectorCount;
+
+    @Param({"1024"})
+    int dimension;
+
+    @Param({"10"})
+    int topK;
+
+    @Param({"jdbc:postgresql://localhost:5432/docqry_benchmark"})
+    String jdbcUrl;
+
+    @Param({"localhost"})
+    String qdrantHost;
+
+    @FunctionalInterface
+    interface Search {
+        List<ScoredChunk> topK(float[] query, int topK) throws Exception;
+    }
+
+    private float[][] vectors;
+    private float[][] queries;
+    private Search search;
+    private Runnable cleanUp;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        vectors = new float[vectorCount][];
+        List<IndexedChunk> chunks = new ArrayList<>(vectorCount);
+        for (int i = 0; i < vectorCount; i++) {
+            vectors[i] = unitVector(random);
+            chunks.add(new IndexedChunk(DOCUMENT_ID, chunkId(i), i, vectors[i]));
+        }
+        queries = new float[1024][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = unitVector(random);
+        }
+
+        PipelineMetrics pipelineMetrics = new PipelineMetrics(new SimpleMeterRegistry(), false);
+        switch (store) {
+            case "qdrant" -> {
+                QdrantClient client = new QdrantClient(QdrantGrpcClient.newBuilder(qdrantHost, 6334, false).build());
+                QdrantService qdrant = new QdrantService(client, null, null, pipelineMetrics);
+                for (int i = 0; i < chunks.size(); i += BATCH_SIZE) {
+                    qdrant.storeEmbeddings(COLLECTION, chunks.subList(i, Math.min(i + BATCH_SIZE, chunks.size())));
+                }
+                // Searches only go through HNSW once the optimizer has indexed the segments
+                while (client.getCollectionInfoAsync(COLLECTION).get().getStatus() != CollectionStatus.Green) {
+                    Thread.sleep(500);
+                }
+                search = (query, k) -> qdrant.toScoredChunks(qdrant.retrieveEmbeddings(COLLECTION, null, query, k, false));
+                cleanUp = () -> {
+                    try {
+                        client.deleteCollectionAsync(COLLECTION).get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        client.close();
+                    }
+                };
+            }
+            case "pgvector" -> {
+                var dataSource = new DriverManagerDataSource(jdbcUrl, System.getenv("DB_USER"), System.getenv("DB_PWD"));
+                var jdbc = new NamedParameterJdbcTemplate(dataSource);
+                PgVectorStore pgvector = new PgVectorStore(jdbc, pipelineMetrics, dimension, "hnsw", 16, 64, 100);
+                pgvector.createSchema();
+                // Searches join the live document and its chunks, the backend's tables are absent from this database
+                jdbc.getJdbcOperations().execute(
+                        "CREATE TABLE IF NOT EXISTS document (id varchar(255) PRIMARY KEY, deleted_at timestamp)");
+                jdbc.getJdbcOperations().execute("""
+                        CREATE TABLE IF NOT EXISTS document_chunk (id varchar(255) PRIMARY KEY, chunk_index integer,
+                        chunk_text text, compressed_text bytea, start_sentence integer, end_sentence integer)""");
+                jdbc.update("INSERT INTO document (id) VALUES (:id) ON CONFLICT DO NOTHING",
+                        new MapSqlParameterSource("id", DOCUMENT_ID));
+                for (int i = 0; i < chunks.size(); i += BATCH_SIZE) {
+                    pgvector.store(chunks.subList(i, Math.min(i + BATCH_SIZE, chunks.size())));
+                }
+                search = (query, k) -> pgvector.search(null, query, k, false);
+                cleanUp = () -> {
+                    try {
+                        pgvector.deleteByDocumentIds(List.of(DOCUMENT_ID));
+                        jdbc.update("DELETE FROM document WHERE id = :id", new MapSqlParameterSource("id", DOCUMENT_ID));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                };
+            }
+            default -> throw new IllegalArgumentException("Unknown store " + store);
+        }
+        System.out.printf("%n%s recall@%d: %.3f%n", store, topK, recall());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (cleanUp != null) {
+            cleanUp.run();
+        }
+    }
+
+    @Benchmark
+    public List<ScoredChunk> search() throws Exception {
+        return search.topK(queries[next++ & (queries.length - 1)], topK);
+    }
+
+    // Share of the exact top k, by dot product over every vector, that the store returns
+    private double recall() throws Exception {
+        int found = 0;
+        for (int q = 0; q < RECALL_QUERIES; q++) {
+            Set<String> exact = exactTopK(queries[q]);
+            for (ScoredChunk hit : search.topK(queries[q], topK)) {
+                if (exact.contains(hit.chunkId())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (RECALL_QUERIES * topK);
+    }
+
+    private Set<String> exactTopK(float[] query) {
+        double[] scores = new double[vectors.length];
+        Integer[] order = new Integer[vectors.length];
+        for (int i = 0; i < vectors.length; i++) {
+            double dot = 0;
+            for (int d = 0; d < dimension; d++) {
+                dot += query[d] * vectors[i][d];
+            }
+            scores[i] = dot;
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < topK; i++) {
+            ids.add(chunkId(order[i]));
+        }
+        return ids;
+    }
+
+    private float[] unitVector(Random random) {
+        float[] vector = new float[dimension];
+        double norm = 0;
+        for (int d = 0; d < dimension; d++) {
+            vector[d] = (float) random.nextGaussian();
+            norm += vector[d] * vector[d];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int d = 0; d < dimension; d++) {
+            vector[d] *= scale;
+        }
+        return vector;
+    }
+
+    // Qdrant point ids have to be UUIDs, derived from the index so both stores use the same ids
+    private static String chunkId(int index) {
+        return UUID.nameUUIDFromBytes(("chunk-" + index).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+}
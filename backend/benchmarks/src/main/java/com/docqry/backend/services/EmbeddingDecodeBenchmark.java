@@ -0,0 +1,89 @@
+package com.docqry.backend.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.qdrant.client.grpc.Points;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static io.qdrant.client.VectorsFactory.vectors;
+
+/**
+ * Decoding an embedding service response and building the Qdrant points from it, comparing the streaming
+ * primitive path with the databind and {@code List<Float>} one it replaced. Run with {@code -prof gc} to see
+ * the allocation per operation. Lives in the services package to reach the package-private reader.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmbeddingDecodeBenchmark {
+
+    @Param({"64", "1000"})
+    int chunks;
+
+    @Param({"1024"})
+    int dimension;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("{\"embeddings\":[");
+        for (int c = 0; c < chunks; c++) {
+            json.append(c == 0 ? "[" : ",[");
+            for (int d = 0; d < dimension; d++) {
+                if (d > 0) {
+                    json.append(',');
+                }
+                json.append(random.nextFloat() * 2 - 1);
+            }
+            json.append(']');
+        }
+        body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public List<float[]> decodeStreaming() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            return EmbeddingJsonReader.readEmbeddings(parser);
+        }
+    }
+
+    @Benchmark
+    public List<float[]> decodeDatabind() throws IOException {
+        return objectMapper.readValue(body, DatabindResponse.class).embeddings;
+    }
+
+    @Benchmark
+    public void decodeAndBuildPointsPrimitive(Blackhole blackhole) throws IOException {
+        for (float[] embedding : decodeStreaming()) {
+            blackhole.consume(QdrantService.toFloatArray(QdrantService.toVector(embedding)));
+        }
+    }
+
+    @Benchmark
+    public void decodeAndBuildPointsBoxed(Blackhole blackhole) throws IOException {
+        for (float[] embedding : decodeDatabind()) {
+            List<Float> list = IntStream.range(0, embedding.length).mapToObj(i -> embedding[i]).toList();
+            Points.Vectors point = vectors(list);
+            blackhole.consume(new ArrayList<>(point.getVector().getDataList()));
+        }
+    }
+
+    public static class DatabindResponse {
+        public List<float[]> embeddings;
+    }
+}
@@ -0,0 +1,106 @@
+package com.docqry.backend.concurrent;
+
+import com.docqry.backend.observability.RequestTrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs independent steps of one request concurrently, each on its own virtual thread, and treats them as a unit:
+ * {@link #join()} waits for all of them, the first failure cancels (interrupts) the others, and closing the scope
+ * cancels whatever is still running. This mirrors {@code StructuredTaskScope.ShutdownOnFailure}, which is still a
+ * preview API on Java 21. Like scoped values would be, the forking thread's request trace and MDC are inherited.
+ * <pre>{@code
+ * try (var scope = new StructuredScope("query")) {
+ *     var vector = scope.fork(() -> embed(query));
+ *     var history = scope.fork(() -> loadHistory(session));
+ *     scope.join();
+ *     use(vector.get(), history.get());
+ * }
+ * }</pre>
+ */
+public final class StructuredScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final CompletionService<Object> completionService;
+    private final List<Future<Object>> forks = new ArrayList<>();
+    private boolean joined;
+
+    public StructuredScope(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.completionService = new ExecutorCompletionService<>(executor);
+    }
+
+    /**
+     * A forked step whose result can be read once the scope has been joined.
+     */
+    public static final class Subtask<T> {
+        private final Future<Object> future;
+
+        private Subtask(Future<Object> future) {
+            this.future = future;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T get() {
+            if (!future.isDone()) {
+                throw new IllegalStateException("Subtask read before the scope was joined");
+            }
+            return (T) future.resultNow();
+        }
+    }
+
+    public <T> Subtask<T> fork(Callable<? extends T> step) {
+        if (joined) {
+            throw new IllegalStateException("Cannot fork after the scope was joined");
+        }
+        Future<Object> future = completionService.submit(RequestTrace.propagate(step::call));
+        forks.add(future);
+        return new Subtask<>(future);
+    }
+
+    /**
+     * Waits for every forked step. On the first failure the remaining steps are cancelled and the failure is rethrown.
+     *
+     * @throws ExecutionException   wrapping the first step that failed.
+     * @throws InterruptedException if the joining thread is interrupted, after cancelling every step.
+     */
+    public void join() throws ExecutionException, InterruptedException {
+        joined = true;
+        try {
+            for (int remaining = forks.size(); remaining > 0; remaining--) {
+                Future<Object> completed = completionService.take();
+                try {
+                    completed.get();
+                } catch (CancellationException e) {
+                    throw new ExecutionException("Step was cancelled", e);
+                }
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    private void cancelAll() {
+        for (Future<Object> fork : forks) {
+            fork.cancel(true);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        // Not awaited: a step stuck in non-interruptible I/O is left to finish on its own virtual thread rather than
+        // blocking the caller, its result is discarded
+        executor.shutdownNow();
+    }
+}
@@ -1,25 +1,44 @@
 package com.docqry.backend.config;
 
+import com.docqry.backend.observability.PipelineMetrics;
 import io.qdrant.client.QdrantClient;
 import io.qdrant.client.QdrantGrpcClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
 @EnableRetry
 public class AppConfig {
 
+    /**
+     * With virtual threads enabled every background task (SSE answers, overview generation, hedged LLM calls)
+     * gets its own virtual thread, so thousands of slow LLM calls can be open at once without a pool to exhaust.
+     * The concurrency limit, when set, bounds how many run at the same time.
+     * Either way the waiting and running tasks are published as {@code docqry.executor.*} gauges.
+     */
     @Bean(name = "taskExecutor")
-    public TaskExecutor taskExecutor() {
+    public TaskExecutor taskExecutor(
+            PipelineMetrics pipelineMetrics,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${async.virtual.concurrency-limit:-1}") int concurrencyLimit) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("Async-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrencyLimit);
+            executor.setTaskDecorator(pipelineMetrics.executorTaskDecorator("taskExecutor"));
+            return executor;
+        }
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(10); // Number of threads to keep in the pool
         executor.setMaxPoolSize(20);  // Maximum number of threads
         executor.setQueueCapacity(50); // Queue capacity for holding tasks
         executor.setThreadNamePrefix("Async-");
+        executor.setTaskDecorator(pipelineMetrics.executorTaskDecorator("taskExecutor"));
         executor.initialize();
         return executor;
     }
@@ -29,10 +48,4 @@ public class AppConfig {
         return new QdrantClient(QdrantGrpcClient.newBuilder("localhost", 6334, false).build());
     }
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
-    }
-
-
 }
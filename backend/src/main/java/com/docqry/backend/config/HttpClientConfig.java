@@ -0,0 +1,152 @@
+package com.docqry.backend.config;
+
+import com.docqry.backend.observability.RequestTrace;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Outbound HTTP layer shared by every client talking to another service. Each downstream gets its own
+ * {@link HttpClient}, i.e. its own pool of keep-alive connections, with HTTP/2 negotiated where the
+ * server supports it, explicit connect/read timeouts, and latency and in-flight metrics. Calls made while
+ * handling a request carry its trace context on.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    @Bean
+    public RestTemplate pythonServiceRestTemplate(
+            RestTemplateBuilder restTemplateBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${http.client.python.version:HTTP_1_1}") HttpClient.Version version,
+            @Value("${http.client.python.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${http.client.python.read-timeout:PT60S}") Duration readTimeout) {
+        return outboundRestTemplate("python", restTemplateBuilder, meterRegistry, version, connectTimeout, readTimeout);
+    }
+
+    @Bean
+    public RestTemplate geminiRestTemplate(
+            RestTemplateBuilder restTemplateBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${http.client.gemini.version:HTTP_2}") HttpClient.Version version,
+            @Value("${http.client.gemini.connect-timeout:PT10S}") Duration connectTimeout,
+            @Value("${http.client.gemini.read-timeout:PT30S}") Duration readTimeout) {
+        return outboundRestTemplate("gemini", restTemplateBuilder, meterRegistry, version, connectTimeout, readTimeout);
+    }
+
+    @Bean
+    public RestTemplate huggingFaceRestTemplate(
+            RestTemplateBuilder restTemplateBuilder,
+            MeterRegistry meterRegistry,
+            @Value("${http.client.huggingface.version:HTTP_2}") HttpClient.Version version,
+            @Value("${http.client.huggingface.connect-timeout:PT10S}") Duration connectTimeout,
+            @Value("${http.client.huggingface.read-timeout:PT30S}") Duration readTimeout) {
+        return outboundRestTemplate("huggingface", restTemplateBuilder, meterRegistry, version, connectTimeout, readTimeout);
+    }
+
+    private RestTemplate outboundRestTemplate(
+            String downstream,
+            RestTemplateBuilder restTemplateBuilder,
+            MeterRegistry meterRegistry,
+            HttpClient.Version version,
+            Duration connectTimeout,
+            Duration readTimeout) {
+        // One client per downstream: the JDK client pools and reuses connections per instance
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+
+        return restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(
+                        new OutboundMetricsInterceptor(downstream, meterRegistry),
+                        new TracePropagationInterceptor(downstream))
+                .build();
+    }
+
+    /**
+     * Records latency per downstream and outcome, and tracks the requests currently in flight.
+     */
+    static final class OutboundMetricsInterceptor implements ClientHttpRequestInterceptor {
+        private final String downstream;
+        private final MeterRegistry meterRegistry;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        OutboundMetricsInterceptor(String downstream, MeterRegistry meterRegistry) {
+            this.downstream = downstream;
+            this.meterRegistry = meterRegistry;
+            Gauge.builder("docqry.http.client.in.flight", inFlight, AtomicInteger::get)
+                    .tag("downstream", downstream)
+                    .description("Outbound requests currently waiting on a downstream service")
+                    .register(meterRegistry);
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            long start = System.nanoTime();
+            inFlight.incrementAndGet();
+            String outcome = "IO_ERROR";
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                outcome = response.getStatusCode().is2xxSuccessful() ? "SUCCESS" : String.valueOf(response.getStatusCode().value());
+                return response;
+            } finally {
+                inFlight.decrementAndGet();
+                // Time to response headers; streamed bodies are read after this returns
+                Timer.builder("docqry.http.client.latency")
+                        .tag("downstream", downstream)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Sends the current request's trace context as a {@code traceparent} header and records the
+     * {@code Server-Timing} entries the downstream answers with as spans of the request.
+     */
+    static final class TracePropagationInterceptor implements ClientHttpRequestInterceptor {
+        private final String downstream;
+
+        TracePropagationInterceptor(String downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+            RequestTrace trace = RequestTrace.current();
+            if (trace == null) {
+                return execution.execute(request, body);
+            }
+            request.getHeaders().set(RequestTrace.TRACEPARENT, trace.childTraceparent());
+            long start = System.nanoTime();
+            ClientHttpResponse response = execution.execute(request, body);
+            RequestTrace.recordDownstreamTimings(downstream, response.getHeaders().getFirst("Server-Timing"), start);
+            return response;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.docqry.backend.controllers;
+
+/**
+ * A single byte range of a {@code Range} request header, with an inclusive end.
+ */
+public record ByteRange(long start, long end) {
+
+    /**
+     * Resolves a {@code Range} header against a file of the given length. Ranges that are malformed, multipart or
+     * not in bytes are ignored as RFC 9110 allows, and the whole file is served instead.
+     *
+     * @return The range to serve, or {@code null} for the whole file.
+     * @throws IllegalArgumentException When the range lies entirely past the end of the file.
+     */
+    public static ByteRange parse(String header, long length) {
+        if (header == null || !header.startsWith("bytes=")) {
+            return null;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (spec.indexOf(',') >= 0 || dash < 0) {
+            return null;
+        }
+        String first = spec.substring(0, dash).trim();
+        String last = spec.substring(dash + 1).trim();
+        try {
+            if (first.isEmpty()) {
+                // Suffix range: the last n bytes
+                if (last.isEmpty()) {
+                    return null;
+                }
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    throw new IllegalArgumentException("Unsatisfiable range " + header);
+                }
+                return new ByteRange(Math.max(length - suffix, 0), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (end < start) {
+                return null;
+            }
+            if (start >= length) {
+                throw new IllegalArgumentException("Unsatisfiable range " + header);
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public long length() {
+        return end - start + 1;
+    }
+}
@@ -3,11 +3,14 @@ package com.docqry.backend.controllers;
 import com.docqry.backend.services.DocumentChunkService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,6 +20,24 @@ import java.util.Map;
 public class ChunkController {
     private final DocumentChunkService documentChunkService;
 
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * Pages through a document's chunks in index order. Pass the {@code nextCursor} of a page as {@code after} to
+     * read the next one; it is absent on the last page.
+     */
+    @GetMapping("/{documentId}")
+    public ResponseEntity<Map<String, Object>> listChunks(
+            @PathVariable String documentId,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "50") int size) {
+        var page = documentChunkService.getChunkPage(documentId, after, Math.clamp(size, 1, MAX_PAGE_SIZE));
+        Map<String, Object> response = new HashMap<>();
+        response.put("items", page.chunks());
+        response.put("nextCursor", page.nextAfterIndex());
+        return ResponseEntity.ok(response);
+    }
+
     public ResponseEntity<Map<String, List<String>>> retrieveChunks(
             @RequestParam String documentId,
             @RequestBody List<String> chunkIds) {
@@ -1,46 +1,172 @@
 package com.docqry.backend.controllers;
 
 import com.docqry.backend.entities.Document;
+import com.docqry.backend.exceptions.UnsupportedDocumentException;
+import com.docqry.backend.observability.ServerTiming;
+import com.docqry.backend.repositories.DocumentListingRepository.Order;
 import com.docqry.backend.services.DocumentService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/documents")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"Server-Timing", "traceresponse", "ETag", "Content-Range", "Content-Disposition"})
 public class DocumentController {
     @Autowired
     private DocumentService documentService;
 
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Request attributes through which Tomcat sends a file with FileChannel.transferTo straight to the socket
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @ServerTiming
     @PostMapping(value = "/upload", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<Document> uploadDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file) {
         try {
             Document document = documentService.uploadDocument(file);
             return ResponseEntity.ok(document);
+        } catch (UnsupportedDocumentException e) {
+            return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", e.getMessage()));
         } catch (IOException e) {
             return ResponseEntity.status(500).build();
         }
     }
 
+    /**
+     * Pages through the documents in the given order ({@code NEWEST}, {@code OLDEST}, {@code NAME} or
+     * {@code NAME_DESC}). Pass the {@code nextCursor} of a page as {@code cursor} to read the next one; it is absent
+     * on the last page. The ETag changes with every upload, deletion and indexing step, so a client revalidating
+     * with {@code If-None-Match} gets a 304 for an unchanged list without the database being queried.
+     */
     @GetMapping("/list")
-    public ResponseEntity<List<Document>> listDocuments() {
-        var documents = documentService.listDocuments();
-        if (documents != null) {
-            return ResponseEntity.ok(documents);
-        }else{
-            return ResponseEntity.status(204).build();
+    public ResponseEntity<Map<String, Object>> listDocuments(
+            @RequestParam(defaultValue = "NEWEST") Order sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            WebRequest request) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        String etag = "\"" + documentService.listVersion() + "-"
+                + Integer.toHexString(Objects.hash(sort, cursor, pageSize)) + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        try {
+            var page = documentService.listDocuments(sort, cursor, pageSize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("items", page.items());
+            response.put("nextCursor", page.nextCursor());
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
     }
 
+    /**
+     * Streams the uploaded file, honouring a single {@code Range} (and {@code If-Range}) so large files can be
+     * resumed or read in parts. Content-addressed files carry their hash as a strong ETag. Where Tomcat supports
+     * sendfile, the kernel transfers the bytes from the file to the socket without them passing through the heap.
+     * Otherwise they are copied from the file channel to the response stream through a small heap buffer, so memory
+     * use stays constant whatever the file size.
+     */
+    @GetMapping("/{documentId}/file")
+    public void downloadDocument(@PathVariable String documentId,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        Document document;
+        try {
+            document = documentService.getDocument(documentId);
+        } catch (RuntimeException e) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        Path path = document.getFilePath() == null ? null : Paths.get(document.getFilePath());
+        if (path == null || !Files.isReadable(path)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = Files.size(path);
+        String etag = document.getContentHash() == null ? null : "\"" + document.getContentHash() + "\"";
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        ByteRange range;
+        try {
+            // A range is only valid against the representation the client already has part of
+            range = ifRange == null || ifRange.equals(etag) ? ByteRange.parse(request.getHeader(HttpHeaders.RANGE), length) : null;
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        long start = range == null ? 0 : range.start();
+        long count = range == null ? length : range.length();
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (etag != null) {
+            response.setHeader(HttpHeaders.ETAG, etag);
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(document.getName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(document.getName() == null ? document.getId() : document.getName(), StandardCharsets.UTF_8)
+                .build().toString());
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + range.start() + "-" + range.end() + "/" + length);
+        }
+        response.setContentLengthLong(count);
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
 
     @DeleteMapping("/{documentId}")
     public ResponseEntity<Map<String, String>> deleteDocumentById(@PathVariable String documentId){
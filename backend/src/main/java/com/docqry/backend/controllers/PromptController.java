@@ -5,13 +5,23 @@ import com.docqry.backend.entities.EmbeddingRequest;
 import com.docqry.backend.entities.Prompt;
 import com.docqry.backend.exceptions.LLMCommunicationException;
 import com.docqry.backend.exceptions.NoContextAvailableException;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.observability.RequestTrace;
+import com.docqry.backend.observability.ServerTiming;
 import com.docqry.backend.services.*;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -19,16 +29,22 @@ import java.util.Map;
 @RestController
 @RequestMapping("/prompt")
 @RequiredArgsConstructor
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"Server-Timing", "traceresponse"})
 public class PromptController {
 
     private final Logger log = LoggerFactory.getLogger(PromptController.class);
 
+    // Upper bound for a streamed answer, covering context building plus the full generation
+    private static final long STREAM_TIMEOUT_MS = 120_000L;
+
     private final LLMService geminiService;
     private final ContextManagerService contextManagerService;
-    private final QdrantService qdrantService;
+    private final PythonServiceClient pythonServiceClient;
+    private final PipelineMetrics pipelineMetrics;
     private final PromptManager promptManager;
-    private final DocumentChunkService documentChunkService;
+    private final TaskExecutor taskExecutor;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final ChunkRanker chunkRanker;
 
     @PostMapping("/generate")
     public ResponseEntity<Map<String, String>> generatePrompt(
@@ -49,6 +65,7 @@ public class PromptController {
         }
     }
 
+    @ServerTiming
     @PostMapping("/ask")
     public ResponseEntity<Map<String, Object>> askQuery(@RequestBody EmbeddingRequest payload) {
         try {
@@ -60,34 +77,30 @@ public class PromptController {
             // Extract query text and limit
             String queryText = payload.getQueryText();
             int topK = payload.getLimit();
+            if (topK <= 0) {
+                throw new IllegalArgumentException("Limit must be greater than 0.");
+            }
 
-            // Retrieve relevant vector embeddings from Qdrant
-            var searchResults = qdrantService.getRelevantEmbeddings(queryText, topK);
+            // Retrieve relevant vector embeddings of the document the best hit belongs to
+            float[] queryVector = pipelineMetrics.time(Stage.EMBEDDING, () -> pythonServiceClient.generateQueryVector(queryText));
+            var documentHits = contextManagerService.searchDocument(null, queryVector, chunkRanker.candidateCount(topK));
+            var results = documentHits.hits();
 
-            if (searchResults.isEmpty()) {
+            if (results.isEmpty()) {
                 log.warn("No results found for query: {}", queryText);
                 return ResponseEntity.ok(Collections.emptyMap());
             }
-            // Prepare the response with the results and  Get the results list from the processed search results
-            Map<String, Object> processedSearchResults = qdrantService.processQueryResponse(searchResults);
-            var results = (List<Map<String, Object>>) processedSearchResults.get("results");
-
-            if (results.isEmpty()) {
-                return ResponseEntity.notFound().build();
-            }
-            // Get the documentId from the results since it's the same for each item get the first result & Get the chunkIds from the results
-            var documentId = (String) results.getFirst().get("docId");
-            var chunkIds = results.stream()
-                    .map(result -> (String) result.get("chunkId"))
-                    .toList();
-
-            // Retrieve the respective chunkText from PG database
-            var relevantChunks = documentChunkService.getDocumentChunks(documentId, chunkIds);
+            var documentId = documentHits.documentId();
 
             // reinitialize the context
-            contextManagerService.appendToContext(queryText, relevantChunks);
-
-            System.out.println(contextManagerService.getContext());
+            List<String> relevantChunks;
+            try (var ignored = MDC.putCloseable(PipelineMetrics.DOCUMENT_MDC_KEY, documentId)) {
+                // Fetch the chunk texts and rank the hits, the client gets up to its limit of the best in order
+                var rankedChunks = contextManagerService.rankHits(documentId, queryText, queryVector, results, topK);
+                relevantChunks = rankedChunks.stream().map(ChunkRanker.RankedChunk::text).toList();
+                contextManagerService.appendRankedToContext(queryText, rankedChunks);
+            }
+            log.debug("Context is now {} characters", contextManagerService.getContext().length());
 
             return ResponseEntity.ok(Map.of("chunks", relevantChunks));
 
@@ -100,6 +113,7 @@ public class PromptController {
         }
     }
 
+    @ServerTiming
     @PostMapping("/llm-response")
     public ResponseEntity<Map<String, String>> getLLMResponse(
             @RequestBody EmbeddingRequest payload
@@ -112,19 +126,27 @@ public class PromptController {
             if(contextManagerService.getActiveDocumentId() == null) {
                 return ResponseEntity.internalServerError().body(Map.of("error", "No active document found to ;query."));
             }
-            contextManagerService.buildContext(payload);
+            var documentId = contextManagerService.getActiveDocumentId();
+            MDC.put(PipelineMetrics.DOCUMENT_MDC_KEY, documentId);
+            var retrieval = contextManagerService.prepareRetrieval(documentId, payload);
+            float[] queryVector = retrieval.queryVector();
 
-            // Build a processedPrompt that can be fed to the LLM
-            var processedPrompt = promptManager.generateProcessedPrompt(payload.getQueryText());
+            // Paraphrases of an already answered question skip summarization and generation altogether
+            var cachedAnswer = semanticAnswerCache.lookup(documentId, queryVector);
+            if (cachedAnswer.isPresent()) {
+                return ResponseEntity.ok(Map.of("llmResponse", cachedAnswer.get().answer()));
+            }
 
-            // Sanitize the processed prompt
-            String sanitizedPrompt = geminiService.sanitizePrompt(processedPrompt);
+            long start = System.nanoTime();
+            contextManagerService.buildContext(payload, retrieval);
+            String sanitizedPrompt = prepareSanitizedPrompt(payload.getQueryText());
             if (sanitizedPrompt == null || sanitizedPrompt.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Processed prompt is required."));
             }
 
             // Query the LLM for the relevant information from the context/processedPrompt given.
             String llmResponse = geminiService.getLLMResponse(sanitizedPrompt);
+            semanticAnswerCache.put(documentId, queryVector, llmResponse, System.nanoTime() - start);
             return ResponseEntity.ok(Map.of("llmResponse", llmResponse));
         } catch (LLMCommunicationException | NoContextAvailableException e) {
             log.error("Error generating LLM response: {}", e.getMessage());
@@ -132,6 +154,112 @@ public class PromptController {
         } catch (Exception ex) {
             log.error("Error generating LLM response: {}", ex.getMessage(), ex);
             return ResponseEntity.internalServerError().body(Map.of("error", "Oops! Something went wrong"));
+        } finally {
+            MDC.remove(PipelineMetrics.DOCUMENT_MDC_KEY);
+        }
+    }
+
+    /**
+     * Streams the LLM answer as server-sent events. Each generated fragment is sent as a {@code token}
+     * event carrying {@code {"text": ...}}, followed by a single {@code done} event, or an {@code error}
+     * event if the context or the generation fails. The {@code done} event carries the request's timing
+     * breakdown, since the headers are long sent by then.
+     */
+    @PostMapping(value = "/llm-response/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLLMResponse(@RequestBody EmbeddingRequest payload) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+
+        if (payload.getQueryText() == null || payload.getQueryText().isEmpty()) {
+            sendErrorAndComplete(emitter, "Query text cannot be null or empty.");
+            return emitter;
+        }
+        if (contextManagerService.getActiveDocumentId() == null) {
+            sendErrorAndComplete(emitter, "No active document found to query.");
+            return emitter;
+        }
+
+        var documentId = contextManagerService.getActiveDocumentId();
+
+        // Building the context and generating the answer are slow, keep them off the request thread.
+        // The executor hands the document id in the MDC over to the task.
+        try (var ignored = MDC.putCloseable(PipelineMetrics.DOCUMENT_MDC_KEY, documentId)) {
+            taskExecutor.execute(() -> {
+                try {
+                    var retrieval = contextManagerService.prepareRetrieval(documentId, payload);
+                    float[] queryVector = retrieval.queryVector();
+
+                    var cachedAnswer = semanticAnswerCache.lookup(documentId, queryVector);
+                    if (cachedAnswer.isPresent()) {
+                        sendToken(emitter, cachedAnswer.get().answer());
+                        sendDone(emitter);
+                        emitter.complete();
+                        return;
+                    }
+
+                    long start = System.nanoTime();
+                    contextManagerService.buildContext(payload, retrieval);
+                    String sanitizedPrompt = prepareSanitizedPrompt(payload.getQueryText());
+                    if (sanitizedPrompt == null || sanitizedPrompt.isEmpty()) {
+                        sendErrorAndComplete(emitter, "Processed prompt is required.");
+                        return;
+                    }
+
+                    StringBuilder answer = new StringBuilder();
+                    geminiService.streamLLMResponse(sanitizedPrompt, token -> {
+                        answer.append(token);
+                        sendToken(emitter, token);
+                    });
+                    semanticAnswerCache.put(documentId, queryVector, answer.toString(), System.nanoTime() - start);
+
+                    sendDone(emitter);
+                    emitter.complete();
+                } catch (LLMCommunicationException | NoContextAvailableException e) {
+                    log.error("Error streaming LLM response: {}", e.getMessage());
+                    sendErrorAndComplete(emitter, "Failed to generate a response for the query.");
+                } catch (UncheckedIOException e) {
+                    log.warn("Client disconnected while streaming LLM response");
+                    emitter.completeWithError(e.getCause());
+                } catch (Exception ex) {
+                    log.error("Error streaming LLM response: {}", ex.getMessage(), ex);
+                    sendErrorAndComplete(emitter, "Oops! Something went wrong");
+                }
+            });
+        }
+
+        return emitter;
+    }
+
+    private String prepareSanitizedPrompt(String queryText) throws NoContextAvailableException {
+        // Build a processedPrompt that can be fed to the LLM
+        var processedPrompt = promptManager.generateProcessedPrompt(queryText);
+
+        // Sanitize the processed prompt
+        return geminiService.sanitizePrompt(processedPrompt);
+    }
+
+    private void sendToken(SseEmitter emitter, String token) {
+        try {
+            emitter.send(SseEmitter.event().name("token").data(Map.of("text", token), MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // The client went away, abort reading the upstream stream
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sendDone(SseEmitter emitter) throws IOException {
+        RequestTrace trace = RequestTrace.current();
+        Map<String, Object> done = trace == null
+                ? Map.of("status", "complete")
+                : Map.of("status", "complete", "timing", trace.timing());
+        emitter.send(SseEmitter.event().name("done").data(done, MediaType.APPLICATION_JSON));
+    }
+
+    private void sendErrorAndComplete(SseEmitter emitter, String message) {
+        try {
+            emitter.send(SseEmitter.event().name("error").data(Map.of("error", message), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
         }
     }
 
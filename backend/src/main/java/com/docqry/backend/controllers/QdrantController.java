@@ -3,6 +3,7 @@ package com.docqry.backend.controllers;
 import com.docqry.backend.entities.EmbeddingRequest;
 import com.docqry.backend.services.QdrantService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -17,6 +18,7 @@ import java.util.Map;
 @RequestMapping("/qdrant")
 @RequiredArgsConstructor
 @CrossOrigin(origins = "*")
+@ConditionalOnProperty(name = "vector-store.provider", havingValue = "qdrant", matchIfMissing = true)
 public class QdrantController {
 
     private final QdrantService qdrantService;
@@ -1,11 +1,24 @@
 package com.docqry.backend.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.SQLRestriction;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Entity
+// Deleted documents stay behind as tombstones until their vectors, file and chunks are purged
+@SQLRestriction("deleted_at is null")
+// Keyset indexes of the document list's sort orders
+@Table(indexes = {
+        @Index(name = "idx_document_uploaded_at_id", columnList = "uploaded_at, id"),
+        @Index(name = "idx_document_name_id", columnList = "name, id"),
+        @Index(name = "idx_document_content_hash", columnList = "content_hash")
+})
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
@@ -19,10 +32,37 @@ public class Document {
     private String name;
     private String filePath;
 
+    // SHA-256 of the uploaded file, which is stored under it by the BlobStore
+    @JsonIgnore
+    private String contentHash;
+
     @Builder.Default
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
+    // Overview generated once at ingestion and served as the initial context on selection
+    @Column(columnDefinition = "text")
+    private String overviewSummary;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<String> keyTopics;
+
+    @JsonIgnore
+    @JdbcTypeCode(SqlTypes.JSON)
+    private List<String> representativeChunks;
+
+    // Summarizer model the overview was generated with, a mismatch triggers a background refresh
+    private String overviewModel;
+    private LocalDateTime overviewGeneratedAt;
+
+    @JsonIgnore
+    private LocalDateTime deletedAt;
+
+    // Deflate dictionary the document's compressed chunk texts were written with
+    @JsonIgnore
+    @Column(columnDefinition = "bytea")
+    private byte[] chunkDictionary;
+
     @Version
     @Builder.Default
     private Long version = 0L; // Initialize version to 0
-}
\ No newline at end of file
+}
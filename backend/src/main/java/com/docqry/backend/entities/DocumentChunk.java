@@ -2,7 +2,9 @@ package com.docqry.backend.entities;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnTransformer;
 @Entity
+@Table(indexes = @Index(name = "idx_document_chunk_doc_id_chunk_index", columnList = "doc_id, chunk_index"))
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
@@ -17,9 +19,22 @@ public class DocumentChunk {
     @JoinColumn(name = "doc_id", nullable = false)
     private Document document;
 
+    // Left empty when the text is stored compressed or as a sentence range
     @Column(length = 10000)
     private String chunkText;
 
+    @Column(columnDefinition = "bytea")
+    private byte[] compressedText;
+
+    // Sentences [startSentence, endSentence) of the document's sentence stream
+    private Integer startSentence;
+    private Integer endSentence;
+
+    // Lexemes for the full-text fallback of chunks stored without their text, written from the text and never read back
+    @ColumnTransformer(read = "null", write = "to_tsvector('english', ?)")
+    @Column(columnDefinition = "tsvector")
+    private String searchVector;
+
     private Integer chunkIndex;
 
     @Version
@@ -0,0 +1,30 @@
+package com.docqry.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * The sentence stream of a document, which its sentence-range chunks are cut from. Kept apart from
+ * {@link Document} so listing documents never loads it.
+ */
+@Entity
+@Table(name = "document_sentences")
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class DocumentSentences {
+    @Id
+    private String documentId;
+
+    private int sentenceCount;
+
+    // The sentences back to back, deflated as a whole
+    @Column(columnDefinition = "bytea", nullable = false)
+    private byte[] text;
+
+    // Start offset of every sentence plus the end of the text, big-endian ints
+    @Column(columnDefinition = "bytea", nullable = false)
+    private byte[] offsets;
+}
@@ -0,0 +1,51 @@
+package com.docqry.backend.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * A chunk embedding waiting to be indexed in Qdrant. Written in the upload transaction next to the chunk itself, and
+ * removed by the dispatcher once Qdrant has accepted it.
+ */
+@Entity
+@Table(name = "indexing_outbox", indexes = {
+        @Index(name = "idx_indexing_outbox_next_attempt_at", columnList = "next_attempt_at"),
+        @Index(name = "idx_indexing_outbox_document_id", columnList = "document_id")
+})
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class IndexingOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE)
+    private Long id;
+
+    @Column(nullable = false)
+    private String documentId;
+
+    @Column(nullable = false)
+    private String chunkId;
+
+    private int chunkIndex;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false)
+    private float[] vector;
+
+    private int attempts;
+
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Builder.Default
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(length = 1000)
+    private String lastError;
+}
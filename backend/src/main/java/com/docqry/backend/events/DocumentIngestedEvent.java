@@ -0,0 +1,10 @@
+package com.docqry.backend.events;
+
+/**
+ * Published once a document's chunks have been persisted, so follow-up ingestion stages
+ * can run after the upload transaction commits.
+ *
+ * @param documentId The id of the ingested document.
+ */
+public record DocumentIngestedEvent(String documentId) {
+}
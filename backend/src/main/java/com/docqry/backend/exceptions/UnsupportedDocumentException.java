@@ -0,0 +1,10 @@
+package com.docqry.backend.exceptions;
+
+/**
+ * An upload no text can be extracted from: an unknown binary format, a damaged file, or one that decodes to junk.
+ */
+public class UnsupportedDocumentException extends RuntimeException {
+    public UnsupportedDocumentException(String message) {
+        super(message);
+    }
+}
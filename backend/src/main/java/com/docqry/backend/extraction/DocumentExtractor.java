@@ -0,0 +1,38 @@
+package com.docqry.backend.extraction;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Turns the files of one format into plain text. The text is handed over a section at a time, a page or a run of
+ * paragraphs, so a large document is never held whole, neither as its text nor as a parsed object tree.
+ * <p>
+ * Extractors are asked in {@link org.springframework.core.annotation.Order} and the first that supports a file
+ * extracts it.
+ */
+public interface DocumentExtractor {
+
+    /**
+     * @param fileName    The name the file was uploaded with, may be {@code null}.
+     * @param contentType The content type it was uploaded with, may be {@code null}.
+     * @param head        The first bytes of the file, for formats recognised by their signature.
+     */
+    boolean supports(String fileName, String contentType, byte[] head);
+
+    void extract(Path file, Consumer<String> sections) throws IOException;
+
+    static boolean hasExtension(String fileName, String... extensions) {
+        if (fileName == null) {
+            return false;
+        }
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        for (String extension : extensions) {
+            if (lower.endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package com.docqry.backend.extraction;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the visible text of HTML pages with jsoup, a paragraph per block element. The charset is taken from the
+ * byte order mark or the page's meta tag, UTF-8 otherwise. Scripts, styles and other non-content elements are
+ * dropped.
+ */
+@Component
+@Order(3)
+public class HtmlExtractor implements DocumentExtractor {
+
+    @Override
+    public boolean supports(String fileName, String contentType, byte[] head) {
+        if (contentType != null && (contentType.startsWith("text/html") || contentType.startsWith("application/xhtml"))) {
+            return true;
+        }
+        if (DocumentExtractor.hasExtension(fileName, ".html", ".htm", ".xhtml")) {
+            return true;
+        }
+        String start = new String(head, 0, Math.min(head.length, 256), StandardCharsets.ISO_8859_1)
+                .replace("\u00ef\u00bb\u00bf", "")
+                .stripLeading()
+                .toLowerCase(Locale.ROOT);
+        return start.startsWith("<!doctype html") || start.startsWith("<html");
+    }
+
+    @Override
+    public void extract(Path file, Consumer<String> sections) throws IOException {
+        Document document = Jsoup.parse(file.toFile(), null);
+        document.select("script, style, noscript, template, svg, head").remove();
+
+        SectionWriter writer = new SectionWriter(sections);
+        StringBuilder block = new StringBuilder();
+        NodeTraversor.traverse(new NodeVisitor() {
+            @Override
+            public void head(Node node, int depth) {
+                if (node instanceof TextNode text) {
+                    block.append(text.text());
+                } else if (node instanceof Element element && element.isBlock()) {
+                    endBlock();
+                }
+            }
+
+            @Override
+            public void tail(Node node, int depth) {
+                if (node instanceof Element element && element.isBlock()) {
+                    endBlock();
+                }
+            }
+
+            private void endBlock() {
+                writer.paragraph(block.toString());
+                block.setLength(0);
+            }
+        }, document.body());
+        writer.paragraph(block.toString());
+        writer.flush();
+    }
+}
@@ -0,0 +1,129 @@
+package com.docqry.backend.extraction;
+
+import com.docqry.backend.observability.PipelineMetrics;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+
+/**
+ * Extracts PDFs page by page with PDFBox. Large documents are split into runs of pages extracted in parallel,
+ * each by its own {@link PDDocument} since those are not thread-safe; opening one only reads the cross-reference
+ * table, objects are parsed as the pages need them. Pages are handed over in order, and only a couple of runs
+ * per thread are extracted ahead, so memory stays bounded however long the document is.
+ * <p>
+ * Decoded streams are cached in temporary files instead of on the heap.
+ */
+@Component
+@Order(1)
+public class PdfExtractor implements DocumentExtractor {
+
+    private static final byte[] SIGNATURE = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private final int parallelism;
+    private final int pagesPerTask;
+    private final ExecutorService executor;
+    private final TaskDecorator taskDecorator;
+
+    public PdfExtractor(
+            PipelineMetrics pipelineMetrics,
+            @Value("${extraction.pdf.parallelism:0}") int parallelism,
+            @Value("${extraction.pdf.pages-per-task:8}") int pagesPerTask) {
+        // Text extraction is CPU bound, one platform thread per core unless configured otherwise
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pagesPerTask = pagesPerTask;
+        this.executor = Executors.newFixedThreadPool(this.parallelism, Thread.ofPlatform().name("pdf-extraction-", 0).daemon().factory());
+        this.taskDecorator = pipelineMetrics.executorTaskDecorator("pdfExtraction");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean supports(String fileName, String contentType, byte[] head) {
+        return head.length >= SIGNATURE.length && Arrays.equals(head, 0, SIGNATURE.length, SIGNATURE, 0, SIGNATURE.length);
+    }
+
+    @Override
+    public void extract(Path file, Consumer<String> sections) throws IOException {
+        int pageCount;
+        try (PDDocument document = load(file)) {
+            pageCount = document.getNumberOfPages();
+        }
+        if (pageCount <= pagesPerTask) {
+            extractPages(file, 1, pageCount).forEach(sections);
+            return;
+        }
+
+        Deque<Future<List<String>>> window = new ArrayDeque<>();
+        int next = 1;
+        try {
+            while (next <= pageCount || !window.isEmpty()) {
+                while (next <= pageCount && window.size() < parallelism * 2) {
+                    int first = next;
+                    int last = Math.min(next + pagesPerTask - 1, pageCount);
+                    window.add(submit(() -> extractPages(file, first, last)));
+                    next = last + 1;
+                }
+                window.removeFirst().get().forEach(sections);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to extract the text of " + file, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while extracting " + file);
+        } finally {
+            window.forEach(pending -> pending.cancel(true));
+        }
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        executor.execute(taskDecorator.decorate(future));
+        return future;
+    }
+
+    private static List<String> extractPages(Path file, int first, int last) throws IOException {
+        try (PDDocument document = load(file)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            List<String> pages = new ArrayList<>(last - first + 1);
+            for (int page = first; page <= last; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                pages.add(stripper.getText(document));
+            }
+            return pages;
+        }
+    }
+
+    private static PDDocument load(Path file) throws IOException {
+        return Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache());
+    }
+}
@@ -0,0 +1,118 @@
+package com.docqry.backend.extraction;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Reads any file that looks like text, the fallback after every other format. The charset is detected from a byte
+ * order mark, then by whether the start of the file decodes as strict UTF-8, and is Windows-1252 otherwise, which
+ * decodes every byte and covers Latin-1. The file is read in sections cut at line breaks.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class PlainTextExtractor implements DocumentExtractor {
+
+    private static final int HEAD_BYTES = 64 * 1024;
+    private static final Charset WINDOWS_1252 = Charset.forName("windows-1252");
+
+    @Override
+    public boolean supports(String fileName, String contentType, byte[] head) {
+        if (utf16(head) != null) {
+            return true;
+        }
+        // Same heuristic as git: text never contains a NUL byte
+        for (byte b : head) {
+            if (b == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void extract(Path file, Consumer<String> sections) throws IOException {
+        Charset charset;
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] head = in.readNBytes(HEAD_BYTES);
+            charset = detectCharset(head, head.length < HEAD_BYTES);
+        }
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), charset)) {
+            char[] buffer = new char[SectionWriter.SECTION_CHARS];
+            StringBuilder section = new StringBuilder(SectionWriter.SECTION_CHARS * 2);
+            boolean first = true;
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                int offset = 0;
+                // InputStreamReader keeps a UTF-8 byte order mark
+                if (first && read > 0 && buffer[0] == '\uFEFF') {
+                    offset = 1;
+                }
+                first = false;
+                section.append(buffer, offset, read - offset);
+                if (section.length() >= SectionWriter.SECTION_CHARS) {
+                    int cut = cutPoint(section);
+                    sections.accept(section.substring(0, cut));
+                    section.delete(0, cut);
+                }
+            }
+            if (!section.toString().isBlank()) {
+                sections.accept(section.toString());
+            }
+        }
+    }
+
+    // After the last line break, or the last space of a text without any, or a hard cut if neither shows up
+    private static int cutPoint(StringBuilder section) {
+        int cut = section.lastIndexOf("\n");
+        if (cut < 0) {
+            cut = section.lastIndexOf(" ");
+        }
+        return cut < 0 ? section.length() : cut + 1;
+    }
+
+    /**
+     * @param complete Whether the head is the whole file, rather than a sample that may end mid-character.
+     */
+    static Charset detectCharset(byte[] head, boolean complete) {
+        Charset utf16 = utf16(head);
+        if (utf16 != null) {
+            return utf16;
+        }
+        if (head.length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+            return StandardCharsets.UTF_8;
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // Unless it is the whole file, a character cut off by the end of the head is not an error
+        ByteBuffer bytes = ByteBuffer.wrap(head);
+        boolean utf8 = !decoder.decode(bytes, CharBuffer.allocate(head.length), complete).isError()
+                && (!complete || !bytes.hasRemaining());
+        return utf8 ? StandardCharsets.UTF_8 : WINDOWS_1252;
+    }
+
+    private static Charset utf16(byte[] head) {
+        if (head.length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16;
+        }
+        if (head.length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,35 @@
+package com.docqry.backend.extraction;
+
+import java.util.function.Consumer;
+
+/**
+ * Groups paragraphs into sections of a few thousand characters, cut between paragraphs.
+ */
+final class SectionWriter {
+
+    static final int SECTION_CHARS = 8192;
+
+    private final Consumer<String> sections;
+    private final StringBuilder buffer = new StringBuilder(SECTION_CHARS);
+
+    SectionWriter(Consumer<String> sections) {
+        this.sections = sections;
+    }
+
+    void paragraph(String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        if (!buffer.isEmpty() && buffer.length() + text.length() > SECTION_CHARS) {
+            flush();
+        }
+        buffer.append(text.strip()).append('\n');
+    }
+
+    void flush() {
+        if (!buffer.isEmpty()) {
+            sections.accept(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+}
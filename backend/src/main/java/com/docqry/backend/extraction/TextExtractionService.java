@@ -0,0 +1,100 @@
+package com.docqry.backend.extraction;
+
+import com.docqry.backend.exceptions.UnsupportedDocumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the text of an uploaded file with the first {@link DocumentExtractor} that supports it, streaming the
+ * sections to the caller as they come. Text that is mostly control or replacement characters, as binary data read
+ * as text decodes to, is rejected as soon as it shows, before anything is embedded.
+ */
+@Service
+public class TextExtractionService {
+
+    Logger log = LoggerFactory.getLogger(TextExtractionService.class);
+
+    private static final int HEAD_BYTES = 8192;
+    // Characters seen before the junk ratio is trusted
+    private static final int JUNK_SAMPLE_CHARS = 4096;
+
+    private final List<DocumentExtractor> extractors;
+    private final double maxJunkRatio;
+
+    public TextExtractionService(
+            List<DocumentExtractor> extractors,
+            @Value("${extraction.max-junk-ratio:0.05}") double maxJunkRatio) {
+        this.extractors = extractors;
+        this.maxJunkRatio = maxJunkRatio;
+    }
+
+    /**
+     * @throws UnsupportedDocumentException When no extractor supports the file, it cannot be read, or its text is
+     *                                      empty or junk.
+     */
+    public void extract(Path file, String fileName, String contentType, Consumer<String> sections) throws IOException {
+        byte[] head;
+        try (InputStream in = Files.newInputStream(file)) {
+            head = in.readNBytes(HEAD_BYTES);
+        }
+        DocumentExtractor extractor = extractors.stream()
+                .filter(candidate -> candidate.supports(fileName, contentType, head))
+                .findFirst()
+                .orElseThrow(() -> new UnsupportedDocumentException("Unsupported file format: " + fileName));
+        log.debug("Extracting {} with {}", fileName, extractor.getClass().getSimpleName());
+
+        TextQuality quality = new TextQuality();
+        try {
+            extractor.extract(file, section -> {
+                quality.count(section);
+                if (quality.text >= JUNK_SAMPLE_CHARS && quality.junkRatio() > maxJunkRatio) {
+                    throw new UnsupportedDocumentException(fileName + " does not contain readable text");
+                }
+                sections.accept(section);
+            });
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (IOException e) {
+            throw new UnsupportedDocumentException("Could not read " + fileName + ": " + e.getMessage());
+        }
+        if (quality.text == 0) {
+            throw new UnsupportedDocumentException("No text could be extracted from " + fileName);
+        }
+        if (quality.junkRatio() > maxJunkRatio) {
+            throw new UnsupportedDocumentException(fileName + " does not contain readable text");
+        }
+    }
+
+    static final class TextQuality {
+        long text;
+        long junk;
+
+        void count(String section) {
+            for (int i = 0; i < section.length(); i++) {
+                char c = section.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                text++;
+                if (c == '\uFFFD' || Character.isISOControl(c) || Character.getType(c) == Character.UNASSIGNED
+                        || Character.getType(c) == Character.PRIVATE_USE) {
+                    junk++;
+                }
+            }
+        }
+
+        double junkRatio() {
+            return text == 0 ? 0 : junk / (double) text;
+        }
+    }
+}
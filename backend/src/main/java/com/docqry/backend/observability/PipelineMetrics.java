@@ -0,0 +1,217 @@
+package com.docqry.backend.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Meters for every stage a document or a question goes through, scraped from {@code /actuator/prometheus}:
+ * <ul>
+ *     <li>{@code docqry.pipeline.stage.duration}, a timer with a percentile histogram per stage and outcome.</li>
+ *     <li>{@code docqry.llm.tokens}, estimated tokens sent to and received from each provider, also per document
+ *     with {@code metrics.pipeline.document-tags}.</li>
+ *     <li>{@code docqry.executor.queued} and {@code docqry.executor.active}, tasks waiting for and running on an executor.</li>
+ * </ul>
+ * The document a request works on is read from the {@value #DOCUMENT_MDC_KEY} MDC entry, so it also shows up in
+ * every log line written while answering the request.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String DOCUMENT_MDC_KEY = "documentId";
+
+    private static final String NO_DOCUMENT = "none";
+
+    public enum Stage {
+        // Text extraction, with the sentence segmentation it streams into
+        EXTRACTION,
+        SEGMENTATION,
+        EMBEDDING,
+        CHUNK_PERSISTENCE,
+        QDRANT_UPSERT,
+        QDRANT_SEARCH,
+        PGVECTOR_UPSERT,
+        PGVECTOR_SEARCH,
+        CHUNK_FETCH,
+        RANKING,
+        SUMMARIZATION,
+        LLM_GENERATION;
+
+        final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A timed step returning a value.
+     */
+    @FunctionalInterface
+    public interface Step<T, E extends Throwable> {
+        T call() throws E;
+    }
+
+    /**
+     * A timed step without a result.
+     */
+    @FunctionalInterface
+    public interface VoidStep<E extends Throwable> {
+        void run() throws E;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean documentTags;
+    private final Map<Stage, Timer> successTimers = new EnumMap<>(Stage.class);
+    private final Map<Stage, Timer> failureTimers = new EnumMap<>(Stage.class);
+
+    public PipelineMetrics(
+            MeterRegistry meterRegistry,
+            @Value("${metrics.pipeline.document-tags:false}") boolean documentTags) {
+        this.meterRegistry = meterRegistry;
+        this.documentTags = documentTags;
+        for (Stage stage : Stage.values()) {
+            successTimers.put(stage, Timer.builder("docqry.pipeline.stage.duration")
+                    .tag("stage", stage.tag)
+                    .tag("outcome", "success")
+                    .description("Time spent in each stage of ingesting a document or answering a question")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+            failureTimers.put(stage, Timer.builder("docqry.pipeline.stage.duration")
+                    .tag("stage", stage.tag)
+                    .tag("outcome", "failure")
+                    .description("Time spent in each stage of ingesting a document or answering a question")
+                    .register(meterRegistry));
+        }
+    }
+
+    public <T, E extends Throwable> T time(Stage stage, Step<T, E> step) throws E {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = step.call();
+            succeeded = true;
+            return result;
+        } finally {
+            finish(stage, start, succeeded);
+        }
+    }
+
+    public <E extends Throwable> void run(Stage stage, VoidStep<E> step) throws E {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            step.run();
+            succeeded = true;
+        } finally {
+            finish(stage, start, succeeded);
+        }
+    }
+
+    /**
+     * Times an asynchronous call from submission until its result is available.
+     */
+    public <T> T await(Stage stage, Supplier<? extends Future<T>> call) throws ExecutionException, InterruptedException {
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            T result = call.get().get();
+            succeeded = true;
+            return result;
+        } finally {
+            finish(stage, start, succeeded);
+        }
+    }
+
+    // Every timed stage is also a span of the request it runs for
+    private void finish(Stage stage, long startNanos, boolean succeeded) {
+        long endNanos = System.nanoTime();
+        (succeeded ? successTimers : failureTimers).get(stage).record(endNanos - startNanos, TimeUnit.NANOSECONDS);
+        RequestTrace.recordSpan(stage.tag, startNanos, endNanos, !succeeded);
+    }
+
+    /**
+     * Counts the estimated tokens of a prompt and its answer against the provider and the current document.
+     */
+    public void recordTokens(String provider, String sent, String received) {
+        recordTokens(provider, estimateTokens(sent), estimateTokens(received));
+    }
+
+    public void recordTokens(String provider, int sentTokens, int receivedTokens) {
+        String document = currentDocument();
+        tokenCounter(provider, document, "sent").increment(sentTokens);
+        tokenCounter(provider, document, "received").increment(receivedTokens);
+    }
+
+    private Counter tokenCounter(String provider, String document, String direction) {
+        // Registering an existing meter is a map lookup, so counters for new documents appear on first use
+        return Counter.builder("docqry.llm.tokens")
+                .tag("provider", provider)
+                .tag("document", document)
+                .tag("direction", direction)
+                .description("Estimated tokens sent to and received from language models")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    private String currentDocument() {
+        String document = MDC.get(DOCUMENT_MDC_KEY);
+        return documentTags && document != null ? document : NO_DOCUMENT;
+    }
+
+    /**
+     * Same estimate the context history truncates by: one token for every four characters.
+     */
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : text.length() / 4;
+    }
+
+    public <T> void gauge(String name, String description, T source, ToDoubleFunction<T> value) {
+        Gauge.builder(name, source, value)
+                .description(description)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Decorates every task submitted to the named executor so the tasks still waiting for a thread and the ones
+     * running are published as gauges. Works for pooled and virtual thread executors alike. The submitter's MDC
+     * and request trace are carried over, so work done in the background is still attributed to its document
+     * and request.
+     */
+    public TaskDecorator executorTaskDecorator(String executorName) {
+        AtomicInteger queued = new AtomicInteger();
+        AtomicInteger active = new AtomicInteger();
+        Gauge.builder("docqry.executor.queued", queued, AtomicInteger::get)
+                .tag("executor", executorName)
+                .description("Tasks submitted to the executor that have not started yet")
+                .register(meterRegistry);
+        Gauge.builder("docqry.executor.active", active, AtomicInteger::get)
+                .tag("executor", executorName)
+                .description("Tasks currently running on the executor")
+                .register(meterRegistry);
+        return task -> {
+            Runnable propagated = RequestTrace.propagate(task);
+            queued.incrementAndGet();
+            return () -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    propagated.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,254 @@
+package com.docqry.backend.observability;
+
+import org.slf4j.MDC;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * The spans of one incoming request, identified by a W3C trace context. The trace is bound to the thread handling
+ * the request and follows the work onto background and forked threads through {@link #propagate(Runnable)}, so
+ * every pipeline stage, wherever it runs, adds its span here. Once the handler is done the spans are rendered as a
+ * {@code Server-Timing} header and a {@code timing} block in the response body.
+ * <p>
+ * Outbound calls carry the trace on as a {@code traceparent} header (HTTP) or metadata entry (gRPC), so the
+ * embedding service can tie its own logs and timings to the request.
+ */
+public final class RequestTrace {
+
+    public static final String TRACEPARENT = "traceparent";
+    public static final String TRACE_ID_MDC_KEY = "traceId";
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+    private static final Pattern TRACEPARENT_FORMAT = Pattern.compile("00-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})");
+    private static final String INVALID_TRACE_ID = "0".repeat(32);
+
+    /**
+     * A timed step of the request, relative to the start of the request.
+     */
+    public record Span(String name, long startNanos, long durationNanos, boolean failed) {
+    }
+
+    private final String traceId;
+    private final String spanId;
+    private final String flags;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    private RequestTrace(String traceId, String spanId, String flags) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.flags = flags;
+    }
+
+    /**
+     * Continues the trace of an incoming {@code traceparent} header, or starts a new one when it is missing or malformed.
+     */
+    public static RequestTrace start(String traceparent) {
+        if (traceparent != null) {
+            var matcher = TRACEPARENT_FORMAT.matcher(traceparent.trim().toLowerCase(Locale.ROOT));
+            if (matcher.matches() && !INVALID_TRACE_ID.equals(matcher.group(1))) {
+                return new RequestTrace(matcher.group(1), randomHex(16), matcher.group(3));
+            }
+        }
+        return new RequestTrace(randomHex(32), randomHex(16), "01");
+    }
+
+    /**
+     * @return The trace of the request the current thread works for, or {@code null} outside of a request.
+     */
+    public static RequestTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds the trace to the current thread until the returned scope is closed.
+     */
+    public Scope activate() {
+        RequestTrace previous = CURRENT.get();
+        CURRENT.set(this);
+        MDC.put(TRACE_ID_MDC_KEY, traceId);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+                MDC.remove(TRACE_ID_MDC_KEY);
+            } else {
+                CURRENT.set(previous);
+                MDC.put(TRACE_ID_MDC_KEY, previous.traceId);
+            }
+        };
+    }
+
+    /**
+     * A {@link AutoCloseable} that cannot fail to close.
+     */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Wraps a task so it runs with the submitting thread's trace and MDC.
+     */
+    public static Runnable propagate(Runnable task) {
+        RequestTrace trace = CURRENT.get();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            RequestTrace previous = CURRENT.get();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            restore(trace, mdc);
+            try {
+                task.run();
+            } finally {
+                restore(previous, previousMdc);
+            }
+        };
+    }
+
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestTrace trace = CURRENT.get();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        return () -> {
+            RequestTrace previous = CURRENT.get();
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            restore(trace, mdc);
+            try {
+                return task.call();
+            } finally {
+                restore(previous, previousMdc);
+            }
+        };
+    }
+
+    private static void restore(RequestTrace trace, Map<String, String> mdc) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+
+    /**
+     * Adds a span to the trace of the current thread, if there is one.
+     */
+    public static void recordSpan(String name, long startNanos, long endNanos, boolean failed) {
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.spans.add(new Span(name, startNanos - trace.startNanos, endNanos - startNanos, failed));
+        }
+    }
+
+    /**
+     * Adds the entries of a downstream service's {@code Server-Timing} header as spans named
+     * {@code <downstream>.<entry>}, so time spent inside that service is broken down as well. The entries carry
+     * durations only, they are placed at the start of the call.
+     */
+    public static void recordDownstreamTimings(String downstream, String serverTiming, long callStartNanos) {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null || serverTiming == null) {
+            return;
+        }
+        for (String entry : serverTiming.split(",")) {
+            String[] parameters = entry.trim().split(";");
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("dur=")) {
+                    try {
+                        long durationNanos = (long) (Double.parseDouble(parameter.substring(4)) * 1_000_000);
+                        trace.spans.add(new Span(downstream + "." + parameters[0].trim(),
+                                callStartNanos - trace.startNanos, durationNanos, false));
+                    } catch (NumberFormatException e) {
+                        // Not ours to validate, a malformed entry is skipped
+                    }
+                }
+            }
+        }
+    }
+
+    public String traceId() {
+        return traceId;
+    }
+
+    /**
+     * @return The {@code traceparent} of an outbound call made on behalf of this request, with a fresh span id.
+     */
+    public String childTraceparent() {
+        return "00-" + traceId + "-" + randomHex(16) + "-" + flags;
+    }
+
+    /**
+     * @return The {@code traceparent} identifying this request's own span, for the response.
+     */
+    public String traceparent() {
+        return "00-" + traceId + "-" + spanId + "-" + flags;
+    }
+
+    /**
+     * Renders the spans as a {@code Server-Timing} header value, in the order they finished, followed by the total.
+     */
+    public String serverTiming() {
+        StringBuilder header = new StringBuilder();
+        for (Span span : spans) {
+            header.append(span.name()).append(";dur=").append(millis(span.durationNanos()));
+            if (span.failed()) {
+                header.append(";desc=\"failed\"");
+            }
+            header.append(", ");
+        }
+        return header.append("total;dur=").append(millis(System.nanoTime() - startNanos)).toString();
+    }
+
+    /**
+     * @return The trace id, total time and every span with its start and duration in milliseconds.
+     */
+    public Map<String, Object> timing() {
+        List<Map<String, Object>> spanTimings = new ArrayList<>();
+        for (Span span : spans) {
+            Map<String, Object> spanTiming = new LinkedHashMap<>();
+            spanTiming.put("name", span.name());
+            spanTiming.put("startMs", millis(span.startNanos()));
+            spanTiming.put("durationMs", millis(span.durationNanos()));
+            if (span.failed()) {
+                spanTiming.put("failed", true);
+            }
+            spanTimings.add(spanTiming);
+        }
+        Map<String, Object> timing = new LinkedHashMap<>();
+        timing.put("traceId", traceId);
+        timing.put("totalMs", millis(System.nanoTime() - startNanos));
+        timing.put("spans", spanTimings);
+        return timing;
+    }
+
+    List<Span> spans() {
+        return List.copyOf(spans);
+    }
+
+    // Tenths of a millisecond are plenty for attributing latency and keep the header short
+    private static double millis(long nanos) {
+        return Math.round(nanos / 100_000.0) / 10.0;
+    }
+
+    private static String randomHex(int length) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(length);
+        while (hex.length() < length) {
+            hex.append(String.format("%016x", random.nextLong()));
+        }
+        return hex.substring(0, length);
+    }
+}
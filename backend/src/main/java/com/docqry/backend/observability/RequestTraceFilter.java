@@ -0,0 +1,33 @@
+package com.docqry.backend.observability;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Starts a {@link RequestTrace} for every request, continuing the caller's {@code traceparent} when there is one,
+ * and answers with a {@code traceresponse} header so a slow request can be looked up by its trace id.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestTraceFilter extends OncePerRequestFilter {
+
+    static final String TRACERESPONSE = "traceresponse";
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestTrace trace = RequestTrace.start(request.getHeader(RequestTrace.TRACEPARENT));
+        response.setHeader(TRACERESPONSE, trace.traceparent());
+        try (var ignored = trace.activate()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.docqry.backend.observability;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler whose response carries the latency breakdown of the request: a {@code Server-Timing} header
+ * and, for JSON object bodies, a {@code timing} field with every span of the {@link RequestTrace}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ServerTiming {
+}
@@ -0,0 +1,55 @@
+package com.docqry.backend.observability;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Adds the latency breakdown of the current {@link RequestTrace} to the responses of {@link ServerTiming} handlers,
+ * right before the body is written and the headers are committed.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor
+public class ServerTimingResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    static final String SERVER_TIMING = "Server-Timing";
+    // Lets browser timing APIs read the header despite the cross-origin frontend
+    static final String TIMING_ALLOW_ORIGIN = "Timing-Allow-Origin";
+
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return returnType.hasMethodAnnotation(ServerTiming.class);
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        RequestTrace trace = RequestTrace.current();
+        if (trace == null) {
+            return body;
+        }
+        response.getHeaders().set(SERVER_TIMING, trace.serverTiming());
+        response.getHeaders().set(TIMING_ALLOW_ORIGIN, "*");
+
+        if (body == null || !MediaType.APPLICATION_JSON.isCompatibleWith(selectedContentType)) {
+            return body;
+        }
+        JsonNode json = objectMapper.valueToTree(body);
+        if (!(json instanceof ObjectNode object)) {
+            return body;
+        }
+        object.set("timing", objectMapper.valueToTree(trace.timing()));
+        return object;
+    }
+}
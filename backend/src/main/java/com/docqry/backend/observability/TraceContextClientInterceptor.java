@@ -0,0 +1,37 @@
+package com.docqry.backend.observability;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ * Sends the current request's trace context as {@code traceparent} metadata on every gRPC call.
+ */
+public class TraceContextClientInterceptor implements ClientInterceptor {
+
+    private static final Metadata.Key<String> TRACEPARENT =
+            Metadata.Key.of(RequestTrace.TRACEPARENT, Metadata.ASCII_STRING_MARSHALLER);
+
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+            MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        // Read on the calling thread, the call itself is started later on gRPC's threads
+        RequestTrace trace = RequestTrace.current();
+        ClientCall<ReqT, RespT> call = next.newCall(method, callOptions);
+        if (trace == null) {
+            return call;
+        }
+        String traceparent = trace.childTraceparent();
+        return new ForwardingClientCall.SimpleForwardingClientCall<>(call) {
+            @Override
+            public void start(Listener<RespT> responseListener, Metadata headers) {
+                headers.put(TRACEPARENT, traceparent);
+                super.start(responseListener, headers);
+            }
+        };
+    }
+}
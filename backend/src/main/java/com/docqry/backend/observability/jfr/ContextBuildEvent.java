@@ -0,0 +1,38 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Building the context of one question: vector search, chunk fetch and summarization.
+ */
+@Name("com.docqry.ContextBuild")
+@Label("Context Build")
+@Category({"DocQry", "Question Answering"})
+@Description("Retrieval and summarization of the context a question is answered from")
+@StackTrace(false)
+public class ContextBuildEvent extends Event {
+
+    @Label("Document Id")
+    public String documentId;
+
+    @Label("Query Characters")
+    public int queryChars;
+
+    @Label("Chunks")
+    public int chunkCount;
+
+    @Label("Chunk Characters")
+    public long chunkChars;
+
+    @Label("Lexical Fallback")
+    @Description("The vector search found nothing and full-text matches were used")
+    public boolean lexicalFallback;
+
+    @Label("Context Characters")
+    public long contextChars;
+}
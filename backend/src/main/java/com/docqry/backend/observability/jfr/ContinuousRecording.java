@@ -0,0 +1,131 @@
+package com.docqry.backend.observability.jfr;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordingFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * An always-on JDK Flight Recorder recording kept as a ring buffer on disk: the JDK's {@code default} settings
+ * (about 1% overhead) plus the {@code com.docqry.*} pipeline events, trimmed to the configured age and size.
+ * When a latency or GC incident is noticed, {@link #dump(Duration)} writes the last minutes to a file that opens
+ * in JDK Mission Control or {@code jfr print}.
+ */
+@Component
+public class ContinuousRecording {
+
+    private final Logger log = LoggerFactory.getLogger(ContinuousRecording.class);
+
+    static final String RECORDING_NAME = "docqry-continuous";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS").withZone(ZoneOffset.UTC);
+
+    private final boolean enabled;
+    private final String settings;
+    private final Duration maxAge;
+    private final DataSize maxSize;
+    private final Path dumpDirectory;
+    private volatile Recording recording;
+
+    public ContinuousRecording(
+            @Value("${jfr.enabled:true}") boolean enabled,
+            @Value("${jfr.settings:default}") String settings,
+            @Value("${jfr.max-age:PT30M}") Duration maxAge,
+            @Value("${jfr.max-size:256MB}") DataSize maxSize,
+            @Value("${jfr.dump-directory:./recordings}") Path dumpDirectory) {
+        this.enabled = enabled;
+        this.settings = settings;
+        this.maxAge = maxAge;
+        this.maxSize = maxSize;
+        this.dumpDirectory = dumpDirectory;
+    }
+
+    @PostConstruct
+    public void start() throws IOException, ParseException {
+        if (!enabled) {
+            log.info("Continuous flight recording disabled");
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            log.warn("Flight Recorder is not available in this JVM, continuous recording disabled");
+            return;
+        }
+        Recording continuous = new Recording(Configuration.getConfiguration(settings));
+        continuous.setName(RECORDING_NAME);
+        continuous.setToDisk(true);
+        continuous.setMaxAge(maxAge);
+        continuous.setMaxSize(maxSize.toBytes());
+        continuous.start();
+        recording = continuous;
+        log.info("Continuous flight recording started with '{}' settings, keeping {} or {}", settings, maxAge, maxSize);
+    }
+
+    public boolean isRecording() {
+        Recording current = recording;
+        return current != null && current.getState() == RecordingState.RUNNING;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Writes the events of the last {@code window} to a new file in the dump directory. The recorder's buffers are
+     * snapshotted as a whole, then everything that ended before the window is filtered out.
+     *
+     * @return The written file.
+     * @throws IllegalStateException if the continuous recording is not running.
+     */
+    public Path dump(Duration window) throws IOException {
+        if (!isRecording()) {
+            throw new IllegalStateException("Continuous flight recording is not running");
+        }
+        Files.createDirectories(dumpDirectory);
+        Instant now = Instant.now();
+        Instant cutoff = now.minus(window);
+        Path target = dumpDirectory.resolve(RECORDING_NAME + "-" + FILE_TIMESTAMP.format(now) + ".jfr");
+
+        Path snapshotFile = Files.createTempFile(dumpDirectory, "snapshot-", ".jfr");
+        try {
+            try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+                snapshot.dump(snapshotFile);
+            }
+            try (RecordingFile events = new RecordingFile(snapshotFile)) {
+                events.write(target, event -> !event.getEndTime().isBefore(cutoff));
+            }
+        } finally {
+            Files.deleteIfExists(snapshotFile);
+        }
+        log.info("Dumped the last {} of flight recording to {}", window, target);
+        return target;
+    }
+
+    @PreDestroy
+    public void stop() {
+        Recording current = recording;
+        if (current != null) {
+            recording = null;
+            current.close();
+        }
+    }
+}
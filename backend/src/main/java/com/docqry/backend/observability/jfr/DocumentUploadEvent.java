@@ -0,0 +1,33 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One document upload, from reading the file to storing its vectors.
+ */
+@Name("com.docqry.DocumentUpload")
+@Label("Document Upload")
+@Category({"DocQry", "Ingestion"})
+@Description("Upload, chunking, embedding and storage of one document")
+@StackTrace(false)
+public class DocumentUploadEvent extends Event {
+
+    @Label("Document Id")
+    public String documentId;
+
+    @Label("File Name")
+    public String fileName;
+
+    @Label("File Size")
+    @DataAmount
+    public long fileBytes;
+
+    @Label("Chunks")
+    public int chunkCount;
+}
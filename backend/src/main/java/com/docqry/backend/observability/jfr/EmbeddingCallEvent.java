@@ -0,0 +1,36 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One call to the embedding service's REST endpoint, with the size of what went out and came back.
+ */
+@Name("com.docqry.EmbeddingCall")
+@Label("Embedding Call")
+@Category({"DocQry", "Embedding Service"})
+@Description("Texts sent to the embedding service and the vectors decoded from its response")
+@StackTrace(false)
+public class EmbeddingCallEvent extends Event {
+
+    @Label("Texts")
+    public int textCount;
+
+    @Label("Request Characters")
+    public long requestChars;
+
+    @Label("Response Size")
+    @DataAmount
+    public long responseBytes;
+
+    @Label("Vectors")
+    public int vectorCount;
+
+    @Label("Dimension")
+    public int dimension;
+}
@@ -0,0 +1,46 @@
+package com.docqry.backend.observability.jfr;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Admin access to the continuous flight recording at {@code /actuator/flightrecorder}:
+ * {@code GET} reports whether it is running, {@code POST {"minutes": 5}} dumps the last minutes to a file.
+ */
+@Component
+@Endpoint(id = "flightrecorder")
+@RequiredArgsConstructor
+public class FlightRecorderEndpoint {
+
+    private static final int DEFAULT_DUMP_MINUTES = 5;
+
+    private final ContinuousRecording continuousRecording;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        return Map.of(
+                "recording", continuousRecording.isRecording(),
+                "maxAge", continuousRecording.getMaxAge().toString(),
+                "maxSize", continuousRecording.getMaxSize().toString());
+    }
+
+    @WriteOperation
+    public Map<String, Object> dump(@Nullable Integer minutes) throws IOException {
+        int window = minutes == null || minutes <= 0 ? DEFAULT_DUMP_MINUTES : minutes;
+        Path file = continuousRecording.dump(Duration.ofMinutes(window));
+        return Map.of(
+                "file", file.toAbsolutePath().toString(),
+                "bytes", Files.size(file),
+                "minutes", window);
+    }
+}
@@ -0,0 +1,41 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One upsert or search against Qdrant.
+ */
+@Name("com.docqry.QdrantOperation")
+@Label("Qdrant Operation")
+@Category({"DocQry", "Qdrant"})
+@Description("Points written to or searched in a Qdrant collection")
+@StackTrace(false)
+public class QdrantOperationEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Collection")
+    public String collection;
+
+    @Label("Document Id")
+    public String documentId;
+
+    @Label("Points")
+    @Description("Points upserted, or hits returned by a search")
+    public int pointCount;
+
+    @Label("Dimension")
+    public int dimension;
+
+    @Label("Top K")
+    public int topK;
+
+    @Label("With Vectors")
+    public boolean withVectors;
+}
@@ -0,0 +1,31 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One summarization request to the embedding service, query focused or a document overview.
+ */
+@Name("com.docqry.SummarizationCall")
+@Label("Summarization Call")
+@Category({"DocQry", "Embedding Service"})
+@Description("Chunks sent to the embedding service for summarization and the summary returned")
+@StackTrace(false)
+public class SummarizationCallEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Chunks")
+    public int chunkCount;
+
+    @Label("Request Characters")
+    public long requestChars;
+
+    @Label("Summary Characters")
+    public long summaryChars;
+}
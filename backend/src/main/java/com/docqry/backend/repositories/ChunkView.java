@@ -0,0 +1,20 @@
+package com.docqry.backend.repositories;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * The columns of a chunk that reads need, without the owning document, the version or a managed entity.
+ * A compressed chunk carries {@code compressedText} and a sentence-range chunk its sentence range instead of
+ * {@code chunkText}.
+ */
+public record ChunkView(String id,
+                        Integer chunkIndex,
+                        String chunkText,
+                        @JsonIgnore byte[] compressedText,
+                        @JsonIgnore Integer startSentence,
+                        @JsonIgnore Integer endSentence) {
+
+    public ChunkView withText(String text) {
+        return new ChunkView(id, chunkIndex, text, null, null, null);
+    }
+}
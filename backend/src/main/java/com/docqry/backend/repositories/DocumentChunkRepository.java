@@ -1,7 +1,11 @@
 package com.docqry.backend.repositories;
 
 import com.docqry.backend.entities.DocumentChunk;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,8 +13,50 @@ import java.util.List;
 @Repository
 public interface DocumentChunkRepository extends JpaRepository<DocumentChunk, String> {
 
-    List<DocumentChunk> findByDocumentId(String documentId);
-    List<DocumentChunk> findByDocumentIdAndIdIn(String documentId, List<String> chunkIds);
+    // Projections read only id, index and text, ordered and limited by the database over the (doc_id, chunk_index) index.
+    // Every read joins the document, so a tombstoned document's chunks are gone before the cleanup worker purges them.
+    @Query("""
+            SELECT new com.docqry.backend.repositories.ChunkView(c.id, c.chunkIndex, c.chunkText, c.compressedText, c.startSentence, c.endSentence)
+            FROM DocumentChunk c JOIN c.document d
+            WHERE d.id = :documentId AND d.deletedAt IS NULL
+            ORDER BY c.chunkIndex
+            """)
+    List<ChunkView> findLeadingChunks(@Param("documentId") String documentId, Limit limit);
 
-    void deleteByDocumentId(String id);
+    // Keyset page: the chunks following the last index of the previous page, no OFFSET to skip over
+    @Query("""
+            SELECT new com.docqry.backend.repositories.ChunkView(c.id, c.chunkIndex, c.chunkText, c.compressedText, c.startSentence, c.endSentence)
+            FROM DocumentChunk c JOIN c.document d
+            WHERE d.id = :documentId AND d.deletedAt IS NULL AND c.chunkIndex > :afterIndex
+            ORDER BY c.chunkIndex
+            """)
+    List<ChunkView> findChunksAfter(@Param("documentId") String documentId,
+                                    @Param("afterIndex") int afterIndex,
+                                    Limit limit);
+
+    @Query("""
+            SELECT new com.docqry.backend.repositories.ChunkView(c.id, c.chunkIndex, c.chunkText, c.compressedText, c.startSentence, c.endSentence)
+            FROM DocumentChunk c JOIN c.document d
+            WHERE d.id = :documentId AND d.deletedAt IS NULL AND c.id IN :chunkIds
+            ORDER BY c.chunkIndex
+            """)
+    List<ChunkView> findChunks(@Param("documentId") String documentId, @Param("chunkIds") List<String> chunkIds);
+
+    // Full-text match used when the vector search returns nothing for a query, chunks stored without their text carry their lexemes
+    @Query(value = """
+            SELECT c.id FROM document_chunk c
+            JOIN document d ON d.id = c.doc_id AND d.deleted_at IS NULL
+            WHERE c.doc_id = :documentId
+              AND coalesce(c.search_vector, to_tsvector('english', c.chunk_text)) @@ plainto_tsquery('english', :queryText)
+            ORDER BY ts_rank(coalesce(c.search_vector, to_tsvector('english', c.chunk_text)), plainto_tsquery('english', :queryText)) DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<String> findLexicalMatchIds(@Param("documentId") String documentId,
+                                     @Param("queryText") String queryText,
+                                     @Param("limit") int limit);
+
+    // One statement for every chunk of the documents, instead of loading and deleting each chunk entity
+    @Modifying
+    @Query("DELETE FROM DocumentChunk c WHERE c.document.id IN :documentIds")
+    int deleteByDocumentIds(@Param("documentIds") List<String> documentIds);
 }
@@ -0,0 +1,135 @@
+package com.docqry.backend.repositories;
+
+import com.docqry.backend.repositories.DocumentView.IndexStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Pages through the live documents by keyset: each page continues after the sort key and id of the previous page's
+ * last row, so any page costs an index range scan however deep it is. The chunk count and indexing state of the
+ * page's documents are aggregated in the same query.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DocumentListingRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public enum Order {
+        NEWEST("uploaded_at", true),
+        OLDEST("uploaded_at", false),
+        NAME("name", false),
+        NAME_DESC("name", true);
+
+        private final String column;
+        private final boolean descending;
+
+        Order(String column, boolean descending) {
+            this.column = column;
+            this.descending = descending;
+        }
+
+        private Object keyOf(DocumentView document) {
+            return column.equals("uploaded_at") ? document.uploadedAt() : document.name();
+        }
+
+        private Object parseKey(String key) {
+            return column.equals("uploaded_at") ? LocalDateTime.parse(key) : key;
+        }
+
+        private String orderBy(String alias) {
+            String direction = descending ? " DESC" : " ASC";
+            return alias + column + direction + ", " + alias + "id" + direction;
+        }
+    }
+
+    /**
+     * Position after a row in a given order, passed to clients as an opaque token.
+     */
+    public record Cursor(Order order, Object key, String id) {
+
+        private static final char SEPARATOR = '|';
+
+        public static Cursor after(Order order, DocumentView last) {
+            return new Cursor(order, order.keyOf(last), last.id());
+        }
+
+        /**
+         * @throws IllegalArgumentException When the token is malformed or was issued for another order.
+         */
+        public static Cursor parse(Order order, String token) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            // Names may contain the separator, ids never do
+            int keyStart = decoded.indexOf(SEPARATOR);
+            int idStart = decoded.lastIndexOf(SEPARATOR);
+            if (keyStart < 0 || keyStart == idStart || !decoded.substring(0, keyStart).equals(order.name())) {
+                throw new IllegalArgumentException("Malformed cursor, or one issued for another sort order");
+            }
+            try {
+                return new Cursor(order, order.parseKey(decoded.substring(keyStart + 1, idStart)), decoded.substring(idStart + 1));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+        }
+
+        public String token() {
+            String raw = order.name() + SEPARATOR + key + SEPARATOR + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param after Cursor of the previous page's last row, {@code null} for the first page.
+     */
+    public List<DocumentView> findPage(Order order, Cursor after, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("limit", limit);
+        String keyset = "";
+        if (after != null) {
+            // Row comparison, so Postgres walks the (column, id) index from the cursor on
+            keyset = "AND (d." + order.column + ", d.id) " + (order.descending ? "<" : ">") + " (:key, :id)";
+            parameters.addValue("key", after.key()).addValue("id", after.id());
+        }
+        String sql = """
+                WITH page AS (
+                    SELECT d.id, d.name, d.uploaded_at FROM document d
+                    WHERE d.deleted_at IS NULL %s
+                    ORDER BY %s
+                    LIMIT :limit
+                )
+                SELECT p.id, p.name, p.uploaded_at,
+                       (SELECT count(*) FROM document_chunk c WHERE c.doc_id = p.id) AS chunk_count,
+                       o.pending, o.failing
+                FROM page p
+                LEFT JOIN LATERAL (
+                    SELECT count(*) AS pending, count(*) FILTER (WHERE attempts > 0) AS failing
+                    FROM indexing_outbox WHERE document_id = p.id
+                ) o ON true
+                ORDER BY %s
+                """.formatted(keyset, order.orderBy("d."), order.orderBy("p."));
+        return jdbcTemplate.query(sql, parameters, (rs, rowNum) -> {
+            long pending = rs.getLong("pending");
+            IndexStatus status = pending == 0 ? IndexStatus.INDEXED
+                    : rs.getLong("failing") > 0 ? IndexStatus.FAILING : IndexStatus.PENDING;
+            return new DocumentView(
+                    rs.getString("id"),
+                    rs.getString("name"),
+                    rs.getObject("uploaded_at", LocalDateTime.class),
+                    rs.getLong("chunk_count"),
+                    pending,
+                    status);
+        });
+    }
+}
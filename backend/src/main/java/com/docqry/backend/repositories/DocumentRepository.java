@@ -2,8 +2,55 @@ package com.docqry.backend.repositories;
 
 import com.docqry.backend.entities.Document;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface DocumentRepository extends JpaRepository<Document, String> {
+
+    @Query("select d.id from Document d where d.overviewModel is null or d.overviewModel <> :model")
+    List<String> findIdsWithStaleOverview(@Param("model") String model);
+
+    Optional<Document> findFirstByContentHash(String contentHash);
+
+    boolean existsByFilePath(String filePath);
+
+    // Held until the transaction ends, so uploads and deletions of one stored file take turns across instances
+    @Query(value = "select 1 from pg_advisory_xact_lock(hashtextextended(:filePath, 0))", nativeQuery = true)
+    int lockFilePath(@Param("filePath") String filePath);
+
+    /**
+     * The id and stored file of a deleted document still waiting to be purged.
+     */
+    interface TombstonedDocument {
+        String getId();
+        String getFilePath();
+    }
+
+    // Native queries, the entity's tombstone restriction would hide these rows from JPQL
+    @Query(value = "select chunk_dictionary from document where id = :id", nativeQuery = true)
+    byte[] findChunkDictionary(@Param("id") String id);
+
+    @Transactional
+    @Modifying
+    @Query(value = "update document set deleted_at = now() where id = :id and deleted_at is null", nativeQuery = true)
+    int markDeleted(@Param("id") String id);
+
+    @Query(value = """
+            SELECT d.id AS id, d.file_path AS filePath FROM document d
+            WHERE d.deleted_at IS NOT NULL
+            ORDER BY d.deleted_at
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<TombstonedDocument> findTombstoned(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "delete from document where id in (:ids) and deleted_at is not null", nativeQuery = true)
+    int purgeTombstoned(@Param("ids") List<String> ids);
 }
@@ -0,0 +1,18 @@
+package com.docqry.backend.repositories;
+
+import com.docqry.backend.entities.DocumentSentences;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface DocumentSentencesRepository extends JpaRepository<DocumentSentences, String> {
+
+    @Modifying
+    @Query("DELETE FROM DocumentSentences s WHERE s.documentId IN :documentIds")
+    int deleteByDocumentIds(@Param("documentIds") List<String> documentIds);
+}
@@ -0,0 +1,24 @@
+package com.docqry.backend.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * A document as the document list shows it: no overview or storage columns, but how many chunks it has and how
+ * far indexing them has come.
+ */
+public record DocumentView(String id,
+                           String name,
+                           LocalDateTime uploadedAt,
+                           long chunkCount,
+                           long pendingVectors,
+                           IndexStatus indexStatus) {
+
+    public enum IndexStatus {
+        // Every chunk embedding is in the vector store
+        INDEXED,
+        // Embeddings are waiting in the outbox
+        PENDING,
+        // The vector store rejected some of them, they are being retried
+        FAILING
+    }
+}
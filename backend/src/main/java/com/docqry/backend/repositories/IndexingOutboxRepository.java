@@ -0,0 +1,44 @@
+package com.docqry.backend.repositories;
+
+import com.docqry.backend.entities.IndexingOutboxEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IndexingOutboxRepository extends JpaRepository<IndexingOutboxEntry, Long> {
+
+    /**
+     * Locks the oldest entries that are due, skipping the ones another dispatcher holds, so any number of
+     * dispatchers can drain the outbox side by side. Entries of deleted documents are left to the cleanup worker.
+     */
+    @Query(value = """
+            SELECT o.* FROM indexing_outbox o
+            JOIN document d ON d.id = o.document_id
+            WHERE o.next_attempt_at <= now() AND d.deleted_at IS NULL
+            ORDER BY o.id
+            LIMIT :limit
+            FOR UPDATE OF o SKIP LOCKED
+            """, nativeQuery = true)
+    List<IndexingOutboxEntry> claimDue(@Param("limit") int limit);
+
+    /**
+     * The size of the outbox and the creation time of its oldest entry, {@code null} when it is empty.
+     */
+    interface Backlog {
+        long getPending();
+        LocalDateTime getOldest();
+    }
+
+    @Query("SELECT count(o) AS pending, min(o.createdAt) AS oldest FROM IndexingOutboxEntry o")
+    Backlog findBacklog();
+
+    @Modifying
+    @Query("DELETE FROM IndexingOutboxEntry o WHERE o.documentId IN :documentIds")
+    int deleteByDocumentIds(@Param("documentIds") List<String> documentIds);
+}
@@ -0,0 +1,87 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.services.BlobStore.StoredBlob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Keeps a stored file from being deleted under an upload that is about to commit a document pointing to it.
+ * <p>
+ * Identical uploads share one file, so deleting a document's file is only safe while no live document uses it, and
+ * an upload that found its file already stored is not a live document until it commits. Uploads and deletions of a
+ * file therefore take a database lock on its path, held until their transaction ends: an upload takes it once its
+ * file is stored and keeps it until its document is committed, a deletion takes it before checking for live
+ * documents. A deletion waits for a pending upload and then sees its document, and an upload that lost its file to
+ * a deletion before it got the lock stores the file again.
+ */
+@Component
+public class BlobGuard {
+
+    Logger log = LoggerFactory.getLogger(BlobGuard.class);
+
+    private final DocumentRepository documentRepository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate newTransaction;
+
+    public BlobGuard(DocumentRepository documentRepository, BlobStore blobStore,
+                     PlatformTransactionManager transactionManager) {
+        this.documentRepository = documentRepository;
+        this.blobStore = blobStore;
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        // Also called once a rolled back upload has completed, when its own transaction can no longer be used
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Locks the stored file of an upload until the upload's transaction ends, storing it again if a deletion
+     * removed it in the meantime. Must be called within that transaction.
+     *
+     * @param content The uploaded content, read again only when the file has to be stored again.
+     * @return The blob to use from now on.
+     */
+    public StoredBlob lockForUpload(StoredBlob blob, InputStreamSource content) throws IOException {
+        documentRepository.lockFilePath(blob.path().toString());
+        if (Files.exists(blob.path())) {
+            return blob;
+        }
+        log.debug("Blob {} was deleted before its upload locked it, storing it again", blob.hash());
+        try (InputStream in = content.getInputStream()) {
+            return blobStore.store(in);
+        }
+    }
+
+    /**
+     * Deletes a stored file in a transaction of its own, unless a live document uses it.
+     *
+     * @return Whether the file was deleted.
+     */
+    public boolean deleteIfUnused(String filePath) throws IOException {
+        try {
+            return Boolean.TRUE.equals(newTransaction.execute(status -> {
+                documentRepository.lockFilePath(filePath);
+                if (documentRepository.existsByFilePath(filePath)) {
+                    return false;
+                }
+                try {
+                    return Files.deleteIfExists(Paths.get(filePath));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
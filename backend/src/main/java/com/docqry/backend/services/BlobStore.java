@@ -0,0 +1,93 @@
+package com.docqry.backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Stores uploaded files by the SHA-256 of their content, at {@code <root>/ab/cd/<hash>}. Two levels of 256
+ * directories keep every directory small however many files there are, and identical uploads share one file.
+ * <p>
+ * A file is written to a temporary file on the same file system, forced to disk and then renamed into place, so a
+ * blob is either complete or absent, even when the process dies mid-write.
+ */
+@Component
+public class BlobStore {
+
+    Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    /**
+     * @param existed Whether an identical file was stored already, in which case the new copy was discarded.
+     */
+    public record StoredBlob(String hash, Path path, long size, boolean existed) {
+    }
+
+    private final Path root;
+    private final Path temporaryDirectory;
+
+    public BlobStore(@Value("${uploads.dir:uploads}") String root) {
+        this.root = Paths.get(root);
+        this.temporaryDirectory = this.root.resolve("tmp");
+        try {
+            Files.createDirectories(temporaryDirectory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the upload directory " + temporaryDirectory, e);
+        }
+    }
+
+    public StoredBlob store(InputStream content) throws IOException {
+        MessageDigest digest = sha256();
+        Path temporary = Files.createTempFile(temporaryDirectory, "upload-", ".tmp");
+        try {
+            long size;
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+                 InputStream in = new DigestInputStream(content, digest)) {
+                OutputStream out = Channels.newOutputStream(channel);
+                size = in.transferTo(out);
+                channel.force(true);
+            }
+
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathOf(hash);
+            if (Files.exists(target)) {
+                return new StoredBlob(hash, target, size, true);
+            }
+            Files.createDirectories(target.getParent());
+            // Same content, same name: losing a race against an identical upload still leaves the right file
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Stored blob {} ({} bytes)", hash, size);
+            return new StoredBlob(hash, target, size, false);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every JVM", e);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.observability.PipelineMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Ranks the chunks retrieved for a question before they are summarized, so the summarizer gets the best
+ * {@code ranking.top-k} chunks in order and no longer embeds the query and every chunk again to rank them itself.
+ * <p>
+ * A chunk's relevance is a weighted sum of
+ * <ul>
+ *     <li>the cosine similarity of its stored vector to the query vector, or the vector store's score when the
+ *     hit came back without its vector,</li>
+ *     <li>the share of the question's terms found in its text,</li>
+ *     <li>a prior for chunks near the start of the document, where definitions and overviews tend to be.</li>
+ * </ul>
+ * Adjacent chunks overlap by design, so the best chunks by relevance alone often repeat the same passage. The
+ * chunks are therefore picked by maximal marginal relevance: each pick maximizes
+ * {@code lambda * relevance - (1 - lambda) * similarity to the closest chunk picked so far}, from a candidate set
+ * {@code ranking.over-fetch} times larger than what is kept, until {@code ranking.top-k} chunks are picked or the
+ * next one would exceed {@code ranking.token-budget}. A {@code lambda} of 1 ranks on relevance alone. Chunks are
+ * compared by their vectors, or by their terms when they have none. Ties keep the retrieval order.
+ * <p>
+ * The estimated tokens of the candidates and of the picked chunks are published as {@code docqry.ranking.tokens}.
+ */
+@Service
+public class ChunkRanker {
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "do", "does", "for", "from", "has", "have", "how",
+            "in", "is", "it", "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "what", "when",
+            "where", "which", "who", "why", "with");
+
+    // Upper bound of the candidates fetched for one question, whatever limit the client asks for
+    private static final int MAX_CANDIDATES = 100;
+
+    /**
+     * A retrieved chunk: its text, its stored vector if the vector store returned it, and the store's score.
+     */
+    public record Candidate(String chunkId, int chunkIndex, String text, float[] vector, float score) {
+    }
+
+    public record RankedChunk(String chunkId, int chunkIndex, String text, float score) {
+    }
+
+    private final int topK;
+    private final double vectorWeight;
+    private final double lexicalWeight;
+    private final double positionWeight;
+    private final double lambda;
+    private final int tokenBudget;
+    private final int overFetch;
+
+    private final DistributionSummary candidateTokens;
+    private final DistributionSummary selectedTokens;
+
+    public ChunkRanker(
+            MeterRegistry meterRegistry,
+            @Value("${ranking.top-k:5}") int topK,
+            @Value("${ranking.vector-weight:1.0}") double vectorWeight,
+            @Value("${ranking.lexical-weight:0.15}") double lexicalWeight,
+            @Value("${ranking.position-weight:0.05}") double positionWeight,
+            @Value("${ranking.mmr.lambda:0.7}") double lambda,
+            @Value("${ranking.token-budget:2048}") int tokenBudget,
+            @Value("${ranking.over-fetch:4}") int overFetch) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("ranking.top-k must be greater than 0.");
+        }
+        if (lambda < 0 || lambda > 1) {
+            throw new IllegalArgumentException("ranking.mmr.lambda must be between 0 and 1.");
+        }
+        if (tokenBudget <= 0 || overFetch <= 0) {
+            throw new IllegalArgumentException("ranking.token-budget and ranking.over-fetch must be greater than 0.");
+        }
+        this.topK = topK;
+        this.vectorWeight = vectorWeight;
+        this.lexicalWeight = lexicalWeight;
+        this.positionWeight = positionWeight;
+        this.lambda = lambda;
+        this.tokenBudget = tokenBudget;
+        this.overFetch = overFetch;
+
+        this.candidateTokens = DistributionSummary.builder("docqry.ranking.tokens")
+                .tag("chunks", "candidates")
+                .description("Estimated tokens of the chunks retrieved for a question, before selection")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.selectedTokens = DistributionSummary.builder("docqry.ranking.tokens")
+                .tag("chunks", "selected")
+                .description("Estimated tokens of the chunks selected for summarization")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param limit The number of chunks the client asked for.
+     * @return How many chunks to retrieve so there is enough to pick a diverse set from.
+     */
+    public int candidateCount(int limit) {
+        return Math.min(MAX_CANDIDATES, Math.max(limit, topK) * overFetch);
+    }
+
+    /**
+     * @param queryVector The question's embedding, {@code null} when only the store's scores should be used.
+     * @param candidates  The retrieved chunks in retrieval order.
+     * @return At most {@code ranking.top-k} chunks within the token budget, in the order they were picked, each
+     * with its relevance. The first pick is kept even if it alone exceeds the budget.
+     */
+    public List<RankedChunk> rank(String queryText, float[] queryVector, List<Candidate> candidates) {
+        return rank(queryText, queryVector, candidates, topK);
+    }
+
+    /**
+     * Like {@link #rank(String, float[], List)}, keeping at most {@code limit} chunks instead of
+     * {@code ranking.top-k}, for clients that ask for a number of chunks themselves.
+     */
+    public List<RankedChunk> rank(String queryText, float[] queryVector, List<Candidate> candidates, int limit) {
+        int count = candidates.size();
+        Set<String> queryTerms = terms(queryText);
+        double queryNorm = queryVector == null ? 0 : norm(queryVector);
+        int dimension = queryVector == null ? 0 : queryVector.length;
+
+        // Unit vectors packed row by row, so the similarity of two candidates is a dot product over one array
+        float[] unitVectors = new float[count * dimension];
+        boolean[] hasVector = new boolean[count];
+        List<Set<String>> candidateTerms = new ArrayList<>(count);
+        double[] relevance = new double[count];
+        int[] tokens = new int[count];
+        long totalTokens = 0;
+        for (int i = 0; i < count; i++) {
+            Candidate candidate = candidates.get(i);
+            Set<String> textTerms = candidate.text() == null ? Set.of() : terms(candidate.text());
+            candidateTerms.add(textTerms);
+            hasVector[i] = packUnitVector(candidate.vector(), dimension, unitVectors, i * dimension);
+            double similarity = hasVector[i] && queryNorm > 0
+                    ? dot(queryVector, unitVectors, i * dimension, dimension) / queryNorm
+                    : candidate.score();
+            relevance[i] = vectorWeight * similarity
+                    + lexicalWeight * overlap(queryTerms, textTerms)
+                    + positionWeight * positionPrior(candidate.chunkIndex());
+            tokens[i] = PipelineMetrics.estimateTokens(candidate.text());
+            totalTokens += tokens[i];
+        }
+        candidateTokens.record(totalTokens);
+
+        // Similarity of every candidate to the closest one picked so far
+        double[] redundancy = new double[count];
+        boolean[] picked = new boolean[count];
+        int budgetLeft = tokenBudget;
+        long pickedTokens = 0;
+        List<RankedChunk> ranked = new ArrayList<>(Math.min(limit, count));
+        while (ranked.size() < limit) {
+            int best = -1;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                if (picked[i] || (!ranked.isEmpty() && tokens[i] > budgetLeft)) {
+                    continue;
+                }
+                double score = lambda * relevance[i] - (1 - lambda) * redundancy[i];
+                if (score > bestScore) {
+                    best = i;
+                    bestScore = score;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            picked[best] = true;
+            budgetLeft -= tokens[best];
+            pickedTokens += tokens[best];
+            Candidate candidate = candidates.get(best);
+            ranked.add(new RankedChunk(candidate.chunkId(), candidate.chunkIndex(), candidate.text(), (float) relevance[best]));
+
+            for (int i = 0; i < count; i++) {
+                if (!picked[i]) {
+                    double similarity = hasVector[i] && hasVector[best]
+                            ? dot(unitVectors, i * dimension, unitVectors, best * dimension, dimension)
+                            : jaccard(candidateTerms.get(i), candidateTerms.get(best));
+                    redundancy[i] = Math.max(redundancy[i], similarity);
+                }
+            }
+        }
+        selectedTokens.record(pickedTokens);
+        return List.copyOf(ranked);
+    }
+
+    // Copies the vector scaled to unit length into the packed array, false when it is missing or unusable
+    private static boolean packUnitVector(float[] vector, int dimension, float[] target, int offset) {
+        if (vector == null || dimension == 0 || vector.length != dimension) {
+            return false;
+        }
+        double norm = norm(vector);
+        if (norm == 0) {
+            return false;
+        }
+        for (int i = 0; i < dimension; i++) {
+            target[offset + i] = (float) (vector[i] / norm);
+        }
+        return true;
+    }
+
+    private static double dot(float[] vector, float[] packed, int offset, int dimension) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += vector[i] * packed[offset + i];
+        }
+        return sum;
+    }
+
+    private static double dot(float[] a, int aOffset, float[] b, int bOffset, int dimension) {
+        double sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    private static double norm(float[] vector) {
+        double sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        return Math.sqrt(sum);
+    }
+
+    static double overlap(Set<String> queryTerms, Set<String> textTerms) {
+        if (queryTerms.isEmpty()) {
+            return 0;
+        }
+        int matched = 0;
+        for (String term : queryTerms) {
+            if (textTerms.contains(term)) {
+                matched++;
+            }
+        }
+        return (double) matched / queryTerms.size();
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int shared = 0;
+        for (String term : a) {
+            if (b.contains(term)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    // 1 for the first chunk, decaying slowly so it only breaks near ties
+    static double positionPrior(int chunkIndex) {
+        return 1 / (1 + Math.log1p(Math.max(0, chunkIndex)));
+    }
+
+    static Set<String> terms(String text) {
+        Set<String> terms = new HashSet<>();
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.length() > 1 && !STOP_WORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
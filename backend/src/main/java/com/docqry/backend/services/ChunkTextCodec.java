@@ -0,0 +1,87 @@
+package com.docqry.backend.services;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw deflate of chunk texts against a per-document dictionary. Overlapping chunks repeat the same sentences and
+ * every chunk of a document shares its vocabulary, so priming deflate with samples of the document lets even a
+ * single short chunk refer back to text it does not contain itself.
+ */
+public final class ChunkTextCodec {
+
+    // Deflate only looks back 32 KiB, a larger dictionary would never be referenced
+    public static final int MAX_DICTIONARY_BYTES = 32 * 1024;
+
+    private static final int SAMPLE_BYTES = 1024;
+
+    private ChunkTextCodec() {
+    }
+
+    /**
+     * Builds a dictionary from slices of chunks spread evenly over the document, at most
+     * {@value #MAX_DICTIONARY_BYTES} bytes.
+     */
+    public static byte[] buildDictionary(List<String> chunks) {
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(MAX_DICTIONARY_BYTES);
+        if (chunks.isEmpty()) {
+            return dictionary.toByteArray();
+        }
+        int samples = Math.min(chunks.size(), MAX_DICTIONARY_BYTES / SAMPLE_BYTES);
+        for (int i = 0; i < samples && dictionary.size() < MAX_DICTIONARY_BYTES; i++) {
+            byte[] chunk = chunks.get((int) ((long) i * chunks.size() / samples)).getBytes(StandardCharsets.UTF_8);
+            // Fewer chunks than samples get longer slices, a short document ends up in the dictionary whole
+            int length = Math.min(chunk.length, Math.max(SAMPLE_BYTES, MAX_DICTIONARY_BYTES / samples));
+            dictionary.write(chunk, 0, Math.min(length, MAX_DICTIONARY_BYTES - dictionary.size()));
+        }
+        return dictionary.toByteArray();
+    }
+
+    public static byte[] compress(String text, byte[] dictionary, int level) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            byte[] input = text.getBytes(StandardCharsets.UTF_8);
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] compressed, byte[] dictionary) {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary.length > 0) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(compressed);
+            ByteArrayOutputStream text = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated or corrupt compressed chunk text");
+                }
+                text.write(buffer, 0, inflated);
+            }
+            return text.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed chunk text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
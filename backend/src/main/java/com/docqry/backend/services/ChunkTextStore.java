@@ -0,0 +1,178 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.entities.Document;
+import com.docqry.backend.entities.DocumentChunk;
+import com.docqry.backend.entities.DocumentSentences;
+import com.docqry.backend.repositories.ChunkView;
+import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.repositories.DocumentSentencesRepository;
+import com.docqry.backend.services.SemanticChunker.Segmentation;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides how chunk texts are stored and turns them back into text on read. Three storage modes:
+ * <ul>
+ *     <li>{@code PLAIN}, every chunk keeps its own copy of its text.</li>
+ *     <li>{@code COMPRESSED}, every chunk is deflated against a dictionary kept once per document.</li>
+ *     <li>{@code SENTENCE_RANGES}, the document's sentences are stored once as a deflated stream and every chunk
+ *     is the range of sentences it spans, so overlapping chunks no longer repeat any text.</li>
+ * </ul>
+ * The mode applies to new uploads, chunks stored in any mode are always readable. Recently used sentence streams
+ * and decompressed chunk texts are cached, so the chunks a conversation keeps coming back to cost no CPU after
+ * the first read.
+ * <p>
+ * Publishes {@code docqry.chunk.text.cache.requests}, hits and misses of the decoded text caches.
+ */
+@Component
+public class ChunkTextStore {
+
+    public enum Mode {
+        PLAIN,
+        COMPRESSED,
+        SENTENCE_RANGES
+    }
+
+    private static final byte[] NO_DICTIONARY = new byte[0];
+
+    private final DocumentRepository documentRepository;
+    private final DocumentSentencesRepository documentSentencesRepository;
+    private final Mode mode;
+    private final int level;
+    private final Cache<String, String> texts;
+    private final Cache<String, byte[]> dictionaries;
+    private final Cache<String, SentenceStream> sentenceStreams;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ChunkTextStore(
+            DocumentRepository documentRepository,
+            DocumentSentencesRepository documentSentencesRepository,
+            MeterRegistry meterRegistry,
+            @Value("${chunks.storage.mode:SENTENCE_RANGES}") Mode mode,
+            @Value("${chunks.storage.compression-level:6}") int level,
+            @Value("${chunks.storage.cache-size:4096}") int cacheSize,
+            @Value("${chunks.storage.sentence-cache-size:64MB}") DataSize sentenceCacheSize) {
+        this.documentRepository = documentRepository;
+        this.documentSentencesRepository = documentSentencesRepository;
+        this.mode = mode;
+        this.level = level;
+        this.texts = CacheBuilder.newBuilder().maximumSize(cacheSize).build();
+        // Dictionaries are up to 32 KiB each, a few hundred cover every document that is being talked about
+        this.dictionaries = CacheBuilder.newBuilder().maximumSize(256).build();
+        this.sentenceStreams = CacheBuilder.newBuilder()
+                .maximumWeight(sentenceCacheSize.toBytes())
+                .<String, SentenceStream>weigher((documentId, sentences) -> sentences.weight())
+                .build();
+        this.hits = Counter.builder("docqry.chunk.text.cache.requests")
+                .tag("result", "hit")
+                .description("Stored chunk reads served from the decoded text caches")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docqry.chunk.text.cache.requests")
+                .tag("result", "miss")
+                .description("Stored chunk reads that had to be inflated")
+                .register(meterRegistry);
+        Gauge.builder("docqry.chunk.text.cache.entries", texts, Cache::size)
+                .description("Decompressed chunk texts held in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the chunk entities of a freshly segmented document in the configured mode, storing the document's
+     * dictionary or sentence stream alongside. Must run in the upload transaction.
+     *
+     * @param chunks The texts of the segmentation's chunks, already materialized for embedding.
+     */
+    public List<DocumentChunk> prepareChunks(Document document, Segmentation segmentation, List<String> chunks) {
+        byte[] dictionary = null;
+        switch (mode) {
+            case COMPRESSED -> {
+                dictionary = ChunkTextCodec.buildDictionary(chunks);
+                document.setChunkDictionary(dictionary);
+            }
+            case SENTENCE_RANGES -> documentSentencesRepository.save(DocumentSentences.builder()
+                    .documentId(document.getId())
+                    .sentenceCount(segmentation.sentences().size())
+                    .text(segmentation.sentences().encodeText(level))
+                    .offsets(segmentation.sentences().encodeOffsets())
+                    .build());
+            case PLAIN -> {
+            }
+        }
+
+        List<DocumentChunk> documentChunks = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            DocumentChunk.DocumentChunkBuilder documentChunk = DocumentChunk.builder()
+                    .document(document)
+                    .version(0L)
+                    .chunkIndex(i);  // Add index metadata
+            switch (mode) {
+                case PLAIN -> documentChunk.chunkText(chunks.get(i));
+                case COMPRESSED -> documentChunk.compressedText(ChunkTextCodec.compress(chunks.get(i), dictionary, level))
+                        .searchVector(chunks.get(i));
+                case SENTENCE_RANGES -> documentChunk.startSentence(segmentation.chunkStarts()[i])
+                        .endSentence(segmentation.chunkEnds()[i])
+                        .searchVector(chunks.get(i));
+            }
+            documentChunks.add(documentChunk.build());
+        }
+        return documentChunks;
+    }
+
+    /**
+     * @return The text of the chunk, cut from its document's sentence stream or inflated with its document's
+     * dictionary when it is not stored as plain text.
+     */
+    public String text(String documentId, ChunkView chunk) {
+        if (chunk.chunkText() != null) {
+            return chunk.chunkText();
+        }
+        if (chunk.startSentence() != null) {
+            return sentences(documentId).chunk(chunk.startSentence(), chunk.endSentence());
+        }
+        String text = texts.getIfPresent(chunk.id());
+        if (text != null) {
+            hits.increment();
+            return text;
+        }
+        misses.increment();
+        text = ChunkTextCodec.decompress(chunk.compressedText(), dictionary(documentId));
+        texts.put(chunk.id(), text);
+        return text;
+    }
+
+    private SentenceStream sentences(String documentId) {
+        SentenceStream sentences = sentenceStreams.getIfPresent(documentId);
+        if (sentences != null) {
+            hits.increment();
+            return sentences;
+        }
+        misses.increment();
+        DocumentSentences stored = documentSentencesRepository.findById(documentId)
+                .orElseThrow(() -> new IllegalStateException("No sentences stored for document " + documentId));
+        sentences = SentenceStream.decode(stored.getText(), stored.getOffsets());
+        sentenceStreams.put(documentId, sentences);
+        return sentences;
+    }
+
+    private byte[] dictionary(String documentId) {
+        byte[] dictionary = dictionaries.getIfPresent(documentId);
+        if (dictionary == null) {
+            dictionary = documentRepository.findChunkDictionary(documentId);
+            if (dictionary == null) {
+                dictionary = NO_DICTIONARY;
+            }
+            dictionaries.put(documentId, dictionary);
+        }
+        return dictionary;
+    }
+}
@@ -0,0 +1,129 @@
+package com.docqry.backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * The last few per-query contexts, combined into the context sent to the LLM and truncated, oldest first,
+ * to stay within the model's input token limit. Not thread-safe, callers guard it.
+ */
+public class ContextHistory {
+
+    Logger log = LoggerFactory.getLogger(ContextHistory.class);
+
+    private final int capacity;
+    private final int maxInputTokens;
+    private final Deque<String> contextHistory;
+    private String context = "";
+
+    public ContextHistory(int capacity, int maxInputTokens) {
+        this.capacity = capacity;
+        this.maxInputTokens = maxInputTokens;
+        this.contextHistory = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * Adds the context of the current query to the history.
+     *
+     * @param currentContext The summarized context for the current query.
+     * @return The historical contexts combined with the current one, within the token limit.
+     */
+    public String append(String currentContext) {
+        // Add the current context to the history
+        if (contextHistory.size() >= capacity) {
+            contextHistory.poll(); // Remove the oldest context if the history is full
+        }
+        contextHistory.offer(currentContext);
+
+        // Combine the historical context with the current context
+        this.context = combineContexts(currentContext);
+
+        // Ensure the context does not exceed the token limit
+        truncateContextIfNeeded();
+        return context;
+    }
+
+    public int size() {
+        return contextHistory.size();
+    }
+
+    public void clear() {
+        context = "";
+        contextHistory.clear();
+    }
+
+    private String combineContexts(String currentContext) {
+        StringBuilder combinedContext = new StringBuilder();
+
+        // Append historical contexts
+        for (String historicalContext : contextHistory) {
+            combinedContext.append(historicalContext).append("\n");
+        }
+
+        // Append the current context
+        combinedContext.append(currentContext);
+
+        return combinedContext.toString();
+    }
+
+    private void truncateContextIfNeeded() {
+        // Estimate the token count (assuming 1 token ≈ 4 characters)
+        int tokenCount = calculateTokenCount(context);
+
+        if (tokenCount > maxInputTokens) {
+            log.warn("Context exceeds token limit. Truncating oldest parts recursively...");
+            truncateOldestContextRecursively();
+        }
+    }
+
+    private void truncateOldestContextRecursively() {
+        // Calculate the total token count
+        int tokenCount = calculateTokenCount(context);
+
+        // Base case: If the token count is within limits, stop recursion
+        if (tokenCount <= maxInputTokens) {
+            return;
+        }
+
+        // If the context history is empty, truncate the main context directly
+        if (contextHistory.isEmpty()) {
+            int maxAllowedLength = maxInputTokens * 4;
+            context = context.substring(context.length() - maxAllowedLength);
+            log.warn("Context truncated to stay within token limits.");
+            return;
+        }
+
+        // Remove the oldest context from the history
+        String oldestContext = contextHistory.poll();
+
+        // Remove the oldest context partially from the context history
+        if (calculateTokenCount(context) - calculateTokenCount(oldestContext) < maxInputTokens) {
+            // Remove part of the oldest context
+            int excessTokens = tokenCount - maxInputTokens;
+            int tokensToRemove = Math.min(excessTokens, calculateTokenCount(oldestContext));
+            int charsToRemove = tokensToRemove * 4; // Assuming 1 token ≈ 4 characters
+
+            // Remove the excess characters from the oldest context
+            String truncatedOldestContext = oldestContext.substring(charsToRemove);
+
+            // Add the truncated context back to the history (if it's still meaningful)
+            if (!truncatedOldestContext.trim().isEmpty()) {
+                contextHistory.offerFirst(truncatedOldestContext);
+            }
+        }
+
+        // Rebuild the context from the updated history
+        context = combineContexts("");
+
+        // Recursively check and truncate further if needed
+        truncateOldestContextRecursively();
+    }
+
+    private int calculateTokenCount(String text) {
+        // Estimate token count (1 token ≈ 4 characters)
+        return text.length() / 4;
+    }
+}
@@ -1,9 +1,13 @@
 package com.docqry.backend.services;
 
+import com.docqry.backend.concurrent.StructuredScope;
 import com.docqry.backend.entities.EmbeddingRequest;
 import com.docqry.backend.exceptions.LLMCommunicationException;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.observability.jfr.ContextBuildEvent;
 import com.docqry.backend.repositories.DocumentChunkRepository;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -21,14 +25,18 @@ public class ContextManagerService {
     private final ReentrantLock lock = new ReentrantLock();
     private final SummarizationService summarizationService;
     Logger log = LoggerFactory.getLogger(ContextManagerService.class);
-    private final QdrantService qdrantService;
+    private final VectorStore vectorStore;
     private final DocumentChunkRepository documentChunkRepository;
     private final DocumentChunkService documentChunkService;
+    private final PythonServiceClient pythonServiceClient;
+    private final DocumentOverviewService documentOverviewService;
+    private final PipelineMetrics pipelineMetrics;
+    private final ChunkRanker chunkRanker;
 
     @Getter
-    private String activeDocumentId;
+    private volatile String activeDocumentId;
     @Getter
-    private String context = "";
+    private volatile String context = "";
 
     /**
      * Creating a table will be the extension if the app supports multiple users.
@@ -38,10 +46,10 @@ public class ContextManagerService {
 
     // Define the maximum number of historical contexts to retain
     private static final int CONTEXT_HISTORY_SIZE = 5;
-    private final Deque<String> contextHistory = new ArrayDeque<>(CONTEXT_HISTORY_SIZE);
 
     // Token limits for the model
     private static final int MAX_INPUT_TOKENS = 1_048_576;
+    private final ContextHistory contextHistory = new ContextHistory(CONTEXT_HISTORY_SIZE, MAX_INPUT_TOKENS);
     /**
      * private static final int MAX_OUTPUT_TOKENS = 8_192; can be used if you need
      * to limit the number of output tokens and this can be passed to the LLM service
@@ -58,36 +66,62 @@ public class ContextManagerService {
     private long lastRequestTimestamp = System.currentTimeMillis();
 
 
+    @PostConstruct
+    void registerMetrics() {
+        pipelineMetrics.gauge("docqry.context.tokens", "Estimated tokens in the context the next prompt is built from",
+                this, service -> PipelineMetrics.estimateTokens(service.context));
+        pipelineMetrics.gauge("docqry.context.history.size", "Per-query contexts combined into the current context",
+                contextHistory, ContextHistory::size);
+    }
+
     public void setActiveDocumentId(String activeDocumentId) {
         this.activeDocumentId = activeDocumentId;
         clearContext(); // Clear context when a new document is selected
     }
 
 
+    /**
+     * The query embedding together with the full-text matches fetched alongside it.
+     */
+    public record QueryRetrieval(float[] queryVector, String documentId, List<String> lexicalChunkIds) {
+    }
+
     public void appendToContext(String newQuery, List<String> relevantChunks) {
-        lock.lock();
-        try {
-            // Check rate limits before proceeding
-            checkRateLimits();
+        appendToContext(newQuery, relevantChunks, null);
+    }
 
-            // Summarize the current query and relevant chunks to retrieve the context for current user query
-            String currentContext = summarizationService.summarizeContext(newQuery, relevantChunks);
+    /**
+     * Summarizes the ranked chunks in their ranking order and adds the summary to the context.
+     */
+    public void appendRankedToContext(String newQuery, List<ChunkRanker.RankedChunk> rankedChunks) {
+        appendToContext(newQuery,
+                rankedChunks.stream().map(ChunkRanker.RankedChunk::text).toList(),
+                rankedChunks.stream().map(ChunkRanker.RankedChunk::score).toList());
+    }
 
-            // Add the current context to the history
-            if (contextHistory.size() >= CONTEXT_HISTORY_SIZE) {
-                contextHistory.poll(); // Remove the oldest context if the history is full
+    private void appendToContext(String newQuery, List<String> relevantChunks, List<Float> chunkScores) {
+        try {
+            // Check rate limits before proceeding
+            lock.lock();
+            try {
+                checkRateLimits();
+            } finally {
+                lock.unlock();
             }
-            contextHistory.offer(currentContext);
 
-            // Combine the historical context with the current context
-            this.context = combineContexts(currentContext);
+            // Summarize the current query and relevant chunks to retrieve the context for current user query.
+            // This is a remote call, so it runs outside the lock and concurrent queries do not queue behind it.
+            String currentContext = summarizationService.summarizeContext(newQuery, relevantChunks, chunkScores);
 
-            // Ensure the context does not exceed the token limit
-            truncateContextIfNeeded();
+            lock.lock();
+            try {
+                // Combine the historical contexts with the current one, within the token limit
+                this.context = contextHistory.append(currentContext);
+            } finally {
+                lock.unlock();
+            }
         } catch (Exception e) {
             log.error("Failed to append to context", e);
-        } finally {
-            lock.unlock();
         }
     }
 
@@ -113,143 +147,157 @@ public class ContextManagerService {
         requestsToday++;
     }
 
-    private String combineContexts(String currentContext) {
-        StringBuilder combinedContext = new StringBuilder();
-
-        // Append historical contexts
-        for (String historicalContext : contextHistory) {
-            combinedContext.append(historicalContext).append("\n");
+    public void clearContext() {
+        lock.lock();
+        try {
+            context = "";
+            contextHistory.clear(); // Clear the history as well
+        } finally {
+            lock.unlock();
         }
-
-        // Append the current context
-        combinedContext.append(currentContext);
-
-        return combinedContext.toString();
     }
 
-    private void truncateContextIfNeeded() {
-        // Estimate the token count (assuming 1 token ≈ 4 characters)
-        int tokenCount = calculateTokenCount(context);
-
-        if (tokenCount > MAX_INPUT_TOKENS) {
-            log.warn("Context exceeds token limit. Truncating oldest parts recursively...");
-            truncateOldestContextRecursively();
-        }
+    public void initializeContext(String documentId) {
+        // The overview is generated at ingestion, selecting a document only reads it back
+        var document = documentOverviewService.getOrGenerateOverview(documentId);
+        this.context = document.getOverviewSummary();
     }
 
-    private void truncateOldestContextRecursively() {
-        // Calculate the total token count
-        int tokenCount = calculateTokenCount(context);
-
-        // Base case: If the token count is within limits, stop recursion
-        if (tokenCount <= MAX_INPUT_TOKENS) {
-            return;
-        }
-
-        // If the context history is empty, truncate the main context directly
-        if (contextHistory.isEmpty()) {
-            int maxAllowedLength = MAX_INPUT_TOKENS * 4;
-            context = context.substring(context.length() - maxAllowedLength);
-            log.warn("Context truncated to stay within token limits.");
-            return;
-        }
-
-        // Remove the oldest context from the history
-        String oldestContext = contextHistory.poll();
-
-        // Remove the oldest context partially from the context history
-        if (calculateTokenCount(context) - calculateTokenCount(oldestContext) < MAX_INPUT_TOKENS) {
-            // Remove part of the oldest context
-            int excessTokens = tokenCount - MAX_INPUT_TOKENS;
-            int tokensToRemove = Math.min(excessTokens, calculateTokenCount(oldestContext));
-            int charsToRemove = tokensToRemove * 4; // Assuming 1 token ≈ 4 characters
-
-            // Remove the excess characters from the oldest context
-            String truncatedOldestContext = oldestContext.substring(charsToRemove);
+    public List<String> buildContext(EmbeddingRequest payload)
+            throws
+            LLMCommunicationException,
+            ExecutionException,
+            InterruptedException {
+        float[] queryVector = pipelineMetrics.time(Stage.EMBEDDING,
+                () -> pythonServiceClient.generateQueryVector(payload.getQueryText()));
+        return buildContext(payload, queryVector);
+    }
 
-            // Add the truncated context back to the history (if it's still meaningful)
-            if (!truncatedOldestContext.trim().isEmpty()) {
-                contextHistory.offerFirst(truncatedOldestContext);
-            }
+    /**
+     * Embeds the query and, concurrently, fetches the full-text matches the context falls back to when the
+     * vector search finds nothing. If either step fails the other one is cancelled.
+     *
+     * @param documentId The id of the document being queried.
+     * @param payload    The query text and the number of chunks to retrieve.
+     * @return The query embedding and the ids of the full-text matches.
+     */
+    public QueryRetrieval prepareRetrieval(String documentId, EmbeddingRequest payload)
+            throws ExecutionException, InterruptedException {
+        try (var scope = new StructuredScope("retrieval")) {
+            var queryVector = scope.fork(() -> pipelineMetrics.time(Stage.EMBEDDING,
+                    () -> pythonServiceClient.generateQueryVector(payload.getQueryText())));
+            var lexicalChunkIds = scope.fork(() ->
+                    documentChunkRepository.findLexicalMatchIds(documentId, payload.getQueryText(),
+                            chunkRanker.candidateCount(payload.getLimit())));
+            scope.join();
+            return new QueryRetrieval(queryVector.get(), documentId, lexicalChunkIds.get());
         }
+    }
 
-        // Rebuild the context from the updated history
-        context = combineContexts("");
-
-        // Recursively check and truncate further if needed
-        truncateOldestContextRecursively();
+    /**
+     * Builds the context for a query whose embedding has already been generated.
+     *
+     * @return The ids of the chunks the context was built from.
+     */
+    public List<String> buildContext(EmbeddingRequest payload, float[] queryVector)
+            throws
+            LLMCommunicationException,
+            ExecutionException,
+            InterruptedException {
+        return buildContext(payload, new QueryRetrieval(queryVector, null, List.of()));
     }
 
-    private int calculateTokenCount(String text) {
-        // Estimate token count (1 token ≈ 4 characters)
-        return text.length() / 4;
+    /**
+     * The document a question was searched in, {@code null} when there is none, and its nearest chunks.
+     */
+    public record DocumentHits(String documentId, List<VectorStore.ScoredChunk> hits) {
     }
 
-    public void clearContext() {
-        lock.lock();
-        try {
-            context = "";
-            contextHistory.clear(); // Clear the history as well
-        } finally {
-            lock.unlock();
+    /**
+     * Searches a document's chunks for the ones nearest to the query, with their vectors so they can be ranked.
+     * Without a document id, the document of the nearest chunk overall is searched.
+     */
+    public DocumentHits searchDocument(String documentId, float[] queryVector, int count)
+            throws ExecutionException, InterruptedException {
+        if (documentId == null) {
+            var nearest = vectorStore.search(null, queryVector, 1, false);
+            if (nearest.isEmpty()) {
+                return new DocumentHits(null, List.of());
+            }
+            documentId = nearest.getFirst().docId();
         }
+        return new DocumentHits(documentId, vectorStore.search(documentId, queryVector, count, true));
     }
 
-    public void initializeContext(String documentId) {
-        // Get the first few chunks of the document (you can define how many you want)
-        List<String> initialChunks = getInitialChunksFromDocument(documentId);
-
-        // Summarize the chunks using the summarization service
-        this.context = summarizationService.summarizeInitialChunks(initialChunks);
+    /**
+     * Ranks the search hits of a query with their stored vectors, their words and their position, and keeps a
+     * diverse subset of the best within the token budget.
+     */
+    public List<ChunkRanker.RankedChunk> rankHits(String documentId, String queryText, float[] queryVector,
+                                                  List<VectorStore.ScoredChunk> hits) {
+        var candidates = documentChunkService.getRankingCandidates(documentId, hits);
+        return pipelineMetrics.time(Stage.RANKING, () -> chunkRanker.rank(queryText, queryVector, candidates));
     }
 
-    @Transactional
-    public List<String> getInitialChunksFromDocument(String documentId) {
-        var initialChunks = documentChunkService.getDocumentChunks(documentId);
-
-        if (initialChunks.isEmpty()) {
-            log.warn("No initial chunks found");
-            return Collections.emptyList();
-        } else {
-            return initialChunks.stream()
-                    .limit(Math.min(6, initialChunks.size()))
-                    .toList();
-        }
+    /**
+     * Like {@link #rankHits(String, String, float[], List)}, keeping at most {@code limit} chunks.
+     */
+    public List<ChunkRanker.RankedChunk> rankHits(String documentId, String queryText, float[] queryVector,
+                                                  List<VectorStore.ScoredChunk> hits, int limit) {
+        var candidates = documentChunkService.getRankingCandidates(documentId, hits);
+        return pipelineMetrics.time(Stage.RANKING, () -> chunkRanker.rank(queryText, queryVector, candidates, limit));
     }
 
-    public void buildContext(EmbeddingRequest payload)
+    /**
+     * Builds the context from the vector search, or from the full-text matches when the vector search finds nothing.
+     * Either way the chunks are ranked here and the summarizer only gets the best of them.
+     *
+     * @return The ids of the chunks the context was built from.
+     */
+    public List<String> buildContext(EmbeddingRequest payload, QueryRetrieval retrieval)
             throws
             LLMCommunicationException,
             ExecutionException,
             InterruptedException {
+        ContextBuildEvent buildEvent = new ContextBuildEvent();
+        buildEvent.begin();
 
         var queryText = payload.getQueryText();
         var topK = payload.getLimit();
 
-        // Retrieve relevant vector embeddings from Qdrant
-        var searchResults = qdrantService.getRelevantEmbeddings(queryText, topK);
-
-        if (searchResults.isEmpty()) {
+        // Retrieve relevant vector embeddings of the document being queried, or of the best hit's document when the
+        // caller did not name one. More are fetched than kept, the ranker picks a diverse subset that fits the token
+        // budget.
+        var documentHits = searchDocument(retrieval.documentId(), retrieval.queryVector(), chunkRanker.candidateCount(topK));
+        var results = documentHits.hits();
+        String documentId = documentHits.documentId();
+        List<ChunkRanker.RankedChunk> rankedChunks = results.isEmpty()
+                ? List.of()
+                : rankHits(documentId, queryText, retrieval.queryVector(), results);
+        boolean lexicalFallback = rankedChunks.isEmpty();
+        if (lexicalFallback && !retrieval.lexicalChunkIds().isEmpty()) {
+            log.info("No vector results for query, falling back to {} full-text matches", retrieval.lexicalChunkIds().size());
+            var candidates = documentChunkService.getLexicalCandidates(documentId, retrieval.lexicalChunkIds());
+            rankedChunks = pipelineMetrics.time(Stage.RANKING, () -> chunkRanker.rank(queryText, null, candidates));
+        } else if (lexicalFallback) {
             log.warn("No results found for query: {}", queryText);
             throw new LLMCommunicationException("No results found for query: "+queryText);
         }
-        // Prepare the response with the results and  Get the results list from the processed search results
-        Map<String, Object> processedSearchResults = qdrantService.processQueryResponse(searchResults);
-        var results = (List<Map<String, Object>>) processedSearchResults.get("results");
-
-        if (results.isEmpty()) {
-            throw new LLMCommunicationException("Query out of context");
-        }
-        // Get the documentId from the results since it's the same for each item get the first result & Get the chunkIds from the results
-        var documentId = (String) results.getFirst().get("docId");
-        var chunkIds = results.stream()
-                .map(result -> (String) result.get("chunkId"))
-                .toList();
-
-        // Retrieve the respective chunkText from PG database
-        var relevantChunks = documentChunkService.getDocumentChunks(documentId, chunkIds);
+        List<String> chunkIds = rankedChunks.stream().map(ChunkRanker.RankedChunk::chunkId).toList();
+        List<String> relevantChunks = rankedChunks.stream().map(ChunkRanker.RankedChunk::text).toList();
 
         // reinitialize the context
-        appendToContext(queryText, relevantChunks);
+        appendRankedToContext(queryText, rankedChunks);
+
+        if (buildEvent.shouldCommit()) {
+            buildEvent.documentId = documentId;
+            buildEvent.queryChars = queryText.length();
+            buildEvent.chunkCount = relevantChunks.size();
+            buildEvent.chunkChars = relevantChunks.stream().mapToLong(String::length).sum();
+            buildEvent.lexicalFallback = lexicalFallback;
+            buildEvent.contextChars = context.length();
+            buildEvent.commit();
+        }
+        return chunkIds;
     }
 }
\ No newline at end of file
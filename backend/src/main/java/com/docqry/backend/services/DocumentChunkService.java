@@ -1,49 +1,155 @@
 package com.docqry.backend.services;
 
-import com.docqry.backend.entities.DocumentChunk;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.repositories.ChunkView;
 import com.docqry.backend.repositories.DocumentChunkRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class DocumentChunkService {
     Logger log = LoggerFactory.getLogger(DocumentChunkService.class);
     private final DocumentChunkRepository documentChunkRepository;
-    private final QdrantService qdrantService;
+    private final VectorStore vectorStore;
+    private final PipelineMetrics pipelineMetrics;
+    private final ChunkTextStore chunkTextStore;
 
+    // Rows per keyset page when a whole document is scanned
+    private static final int SCAN_PAGE_SIZE = 500;
+
+    /**
+     * One keyset page of a document's chunks in index order.
+     *
+     * @param chunks        The chunks of the page.
+     * @param nextAfterIndex The chunk index to continue after, or {@code null} on the last page.
+     */
+    public record ChunkPage(List<ChunkView> chunks, Integer nextAfterIndex) {
+    }
+
+    /**
+     * @return The texts of every chunk of the document in index order, read page by page.
+     */
     public List<String> getDocumentChunks(String documentId){
-        var documentChunks = documentChunkRepository.findByDocumentId(documentId);
-        return getChunkTexts(documentChunks);
+        List<String> texts = new ArrayList<>();
+        ChunkPage page = getChunkPage(documentId, null, SCAN_PAGE_SIZE);
+        texts.addAll(getChunkTexts(documentId, page.chunks()));
+        while (page.nextAfterIndex() != null) {
+            page = getChunkPage(documentId, page.nextAfterIndex(), SCAN_PAGE_SIZE);
+            texts.addAll(getChunkTexts(documentId, page.chunks()));
+        }
+        return texts;
+    }
+
+    /**
+     * @return The texts of the first {@code count} chunks of the document, limited by the database.
+     */
+    public List<String> getLeadingChunks(String documentId, int count) {
+        return getChunkTexts(documentId, documentChunkRepository.findLeadingChunks(documentId, Limit.of(count)));
+    }
+
+    /**
+     * Reads the chunks following {@code afterIndex}, or the first ones when it is {@code null}. Each page seeks
+     * straight to its first row on the (doc_id, chunk_index) index however deep into the document it is.
+     * Texts stored compressed or as sentence ranges are returned decoded.
+     */
+    public ChunkPage getChunkPage(String documentId, Integer afterIndex, int size) {
+        // One extra row tells whether another page follows without a count query
+        Limit limit = Limit.of(size + 1);
+        List<ChunkView> chunks = afterIndex == null
+                ? documentChunkRepository.findLeadingChunks(documentId, limit)
+                : documentChunkRepository.findChunksAfter(documentId, afterIndex, limit);
+        List<ChunkView> page = chunks.subList(0, Math.min(size, chunks.size())).stream()
+                .map(chunk -> chunk.withText(chunkTextStore.text(documentId, chunk)))
+                .toList();
+        return new ChunkPage(page, chunks.size() > size ? page.getLast().chunkIndex() : null);
     }
 
     public List<String> getDocumentChunks(String documentId, List<String> chunkIds) {
-        var documentChunks = documentChunkRepository.findByDocumentIdAndIdIn(documentId, chunkIds);
+        var documentChunks = pipelineMetrics.time(Stage.CHUNK_FETCH,
+                () -> documentChunkRepository.findChunks(documentId, chunkIds));
         if(documentChunks.isEmpty()){
             log.warn("No document chunks found for document");
             return Collections.emptyList();
         }else{
             log.info(" {} Relevant document chunks found for document", documentChunks.size());
-            return getChunkTexts(documentChunks);
+            return getChunkTexts(documentId, documentChunks);
         }
     }
 
-    private List<String> getChunkTexts(List<DocumentChunk> documentChunks){
+    /**
+     * Pairs the search hits of the document with their chunk texts for the {@link ChunkRanker}, in retrieval order.
+     * Hits that came back with their chunk are decoded as they are, otherwise the chunks are fetched by id.
+     */
+    public List<ChunkRanker.Candidate> getRankingCandidates(String documentId, List<VectorStore.ScoredChunk> hits) {
+        Map<String, ChunkView> fetched = Map.of();
+        if (hits.stream().anyMatch(hit -> hit.chunk() == null)) {
+            var chunkIds = hits.stream().map(VectorStore.ScoredChunk::chunkId).toList();
+            fetched = pipelineMetrics.time(Stage.CHUNK_FETCH, () -> documentChunkRepository.findChunks(documentId, chunkIds))
+                    .stream()
+                    .collect(Collectors.toMap(ChunkView::id, Function.identity()));
+        }
+        List<ChunkRanker.Candidate> candidates = new ArrayList<>(hits.size());
+        for (VectorStore.ScoredChunk hit : hits) {
+            ChunkView chunk = hit.chunk() != null ? hit.chunk() : fetched.get(hit.chunkId());
+            if (chunk != null) {
+                candidates.add(new ChunkRanker.Candidate(hit.chunkId(), chunk.chunkIndex(),
+                        chunkTextStore.text(documentId, chunk), hit.vector(), hit.score()));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Pairs full-text matches with their chunk texts for the {@link ChunkRanker}, in the order the ids are given.
+     * Without vectors or scores they are ranked on their words and position alone.
+     */
+    public List<ChunkRanker.Candidate> getLexicalCandidates(String documentId, List<String> chunkIds) {
+        Map<String, ChunkView> chunks = pipelineMetrics.time(Stage.CHUNK_FETCH,
+                        () -> documentChunkRepository.findChunks(documentId, chunkIds))
+                .stream()
+                .collect(Collectors.toMap(ChunkView::id, Function.identity()));
+        List<ChunkRanker.Candidate> candidates = new ArrayList<>(chunkIds.size());
+        for (String chunkId : chunkIds) {
+            ChunkView chunk = chunks.get(chunkId);
+            if (chunk != null) {
+                candidates.add(new ChunkRanker.Candidate(chunkId, chunk.chunkIndex(),
+                        chunkTextStore.text(documentId, chunk), null, 0f));
+            }
+        }
+        return candidates;
+    }
+
+    private List<String> getChunkTexts(String documentId, List<ChunkView> documentChunks){
         return documentChunks.stream()
-                .map(DocumentChunk::getChunkText)
+                .map(chunk -> chunkTextStore.text(documentId, chunk))
                 .toList();
     }
 
-    public void deleteRelatedChunksAndVectorEmbeddingsByDocId(String id) throws Exception {
-        // Delete the relevant vector embeddings from Qdrant Vector store
-        qdrantService.deleteVectorEmbeddingsByFilter("documents","docId", id);
+    /**
+     * Deletes the vector embeddings of the documents from the vector store, all of them in one delete.
+     */
+    public void deleteVectorEmbeddingsByDocIds(List<String> ids) throws Exception {
+        vectorStore.deleteByDocumentIds(ids);
+    }
 
-        // Delete the relevant chunks from DB
-        documentChunkRepository.deleteByDocumentId(id);
+    /**
+     * Deletes every chunk of the documents with one set-based statement. Must run in a transaction.
+     *
+     * @return The number of deleted chunks.
+     */
+    public int deleteChunksByDocIds(List<String> ids) {
+        return documentChunkRepository.deleteByDocumentIds(ids);
     }
 }
@@ -0,0 +1,115 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.repositories.DocumentRepository.TombstonedDocument;
+import com.docqry.backend.repositories.DocumentSentencesRepository;
+import com.docqry.backend.repositories.IndexingOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Purges deleted documents in the background. Every run picks up a batch of tombstones, drops their pending outbox
+ * entries, deletes their vectors with one filter delete, removes their stored files, then deletes their chunks and
+ * rows with one statement each.
+ * <p>
+ * A failed run leaves the tombstones in place and is retried on the next one, nothing is lost on a restart since
+ * the tombstones themselves are the queue.
+ */
+@Component
+public class DocumentCleanupWorker {
+
+    Logger log = LoggerFactory.getLogger(DocumentCleanupWorker.class);
+
+    private final DocumentRepository documentRepository;
+    private final DocumentChunkService documentChunkService;
+    private final IndexingOutboxRepository indexingOutboxRepository;
+    private final DocumentSentencesRepository documentSentencesRepository;
+    private final BlobGuard blobGuard;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Counter purgedDocuments;
+    private final Counter purgedChunks;
+
+    public DocumentCleanupWorker(
+            DocumentRepository documentRepository,
+            DocumentChunkService documentChunkService,
+            IndexingOutboxRepository indexingOutboxRepository,
+            DocumentSentencesRepository documentSentencesRepository,
+            BlobGuard blobGuard,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${documents.cleanup.batch-size:100}") int batchSize) {
+        this.documentRepository = documentRepository;
+        this.documentChunkService = documentChunkService;
+        this.indexingOutboxRepository = indexingOutboxRepository;
+        this.documentSentencesRepository = documentSentencesRepository;
+        this.blobGuard = blobGuard;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.purgedDocuments = Counter.builder("docqry.documents.purged")
+                .description("Deleted documents whose vectors, file and chunks were purged")
+                .register(meterRegistry);
+        this.purgedChunks = Counter.builder("docqry.documents.purged.chunks")
+                .description("Chunks removed while purging deleted documents")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${documents.cleanup.interval:PT10S}", initialDelayString = "${documents.cleanup.interval:PT10S}")
+    public void purgeDeletedDocuments() {
+        List<TombstonedDocument> tombstones;
+        while (!(tombstones = documentRepository.findTombstoned(batchSize)).isEmpty()) {
+            try {
+                purge(tombstones);
+            } catch (Exception e) {
+                log.error("Failed to purge {} deleted documents, retrying on the next run", tombstones.size(), e);
+                return;
+            }
+            if (tombstones.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    private void purge(List<TombstonedDocument> tombstones) throws Exception {
+        List<String> ids = tombstones.stream().map(TombstonedDocument::getId).toList();
+
+        // Embeddings still waiting to be indexed would otherwise bring the vectors back. The delete waits for a
+        // dispatcher holding some of them, so no upsert of these documents is in flight once it has committed.
+        transactionTemplate.executeWithoutResult(status -> indexingOutboxRepository.deleteByDocumentIds(ids));
+
+        // Vectors before the rows, a document whose row is gone could otherwise leave orphaned points behind
+        documentChunkService.deleteVectorEmbeddingsByDocIds(ids);
+
+        for (TombstonedDocument tombstone : tombstones) {
+            try {
+                // Identical uploads share one file, it stays while a live or pending document still uses it
+                if (tombstone.getFilePath() != null) {
+                    blobGuard.deleteIfUnused(tombstone.getFilePath());
+                }
+            } catch (IOException e) {
+                // A leftover upload is harmless, it must not hold back the rest of the batch
+                log.warn("Failed to delete the stored file {} of document {}", tombstone.getFilePath(), tombstone.getId(), e);
+            }
+        }
+
+        Integer chunks = transactionTemplate.execute(status -> {
+            int deletedChunks = documentChunkService.deleteChunksByDocIds(ids);
+            documentSentencesRepository.deleteByDocumentIds(ids);
+            documentRepository.purgeTombstoned(ids);
+            return deletedChunks;
+        });
+
+        purgedDocuments.increment(ids.size());
+        purgedChunks.increment(chunks == null ? 0 : chunks);
+        log.info("Purged {} deleted documents with {} chunks", ids.size(), chunks);
+    }
+}
@@ -0,0 +1,42 @@
+package com.docqry.backend.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the document list, bumped after every committed change that shows in it: an upload, a deletion, or
+ * chunk embeddings being indexed or failing to. The list's ETag is derived from it, so a client polling an
+ * unchanged list gets a 304 without the database being queried.
+ * <p>
+ * Held in memory, which assumes a single backend instance, and seeded from the clock so a restart never hands out
+ * an ETag of the previous run.
+ */
+@Component
+public class DocumentListVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Bumps the version once the current transaction commits, or right away outside of one. Bumping earlier
+     * would let a list read before the commit be cached under the new version.
+     */
+    public void bumpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    version.incrementAndGet();
+                }
+            });
+        } else {
+            version.incrementAndGet();
+        }
+    }
+}
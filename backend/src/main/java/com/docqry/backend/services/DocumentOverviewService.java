@@ -0,0 +1,118 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.entities.Document;
+import com.docqry.backend.events.DocumentIngestedEvent;
+import com.docqry.backend.repositories.DocumentRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Generates a document's overview summary, key topics and representative chunks once, as an
+ * ingestion stage, and persists them on the {@link Document} so selecting a document is a plain read.
+ */
+@Service
+@RequiredArgsConstructor
+public class DocumentOverviewService {
+
+    Logger log = LoggerFactory.getLogger(DocumentOverviewService.class);
+
+    // Number of leading chunks the overview is generated from
+    private static final int OVERVIEW_CHUNK_COUNT = 6;
+
+    private final DocumentRepository documentRepository;
+    private final DocumentChunkService documentChunkService;
+    private final PythonServiceClient pythonServiceClient;
+
+    @Value("${summarizer.model:mistral-medium}")
+    private String summarizerModel;
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentIngested(DocumentIngestedEvent event) {
+        try {
+            generateOverview(event.documentId());
+        } catch (Exception e) {
+            // Selection falls back to generating the overview on demand
+            log.error("Failed to generate overview for document {}", event.documentId(), e);
+        }
+    }
+
+    /**
+     * Regenerates, in the background, every overview produced by a different summarizer model than the configured one.
+     */
+    @Async("taskExecutor")
+    @EventListener(ApplicationReadyEvent.class)
+    public void refreshStaleOverviews() {
+        List<String> staleDocumentIds = documentRepository.findIdsWithStaleOverview(summarizerModel);
+        if (staleDocumentIds.isEmpty()) {
+            return;
+        }
+        log.info("Refreshing {} document overviews for summarizer model {}", staleDocumentIds.size(), summarizerModel);
+        for (String documentId : staleDocumentIds) {
+            try {
+                generateOverview(documentId);
+            } catch (Exception e) {
+                log.error("Failed to refresh overview for document {}", documentId, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the document with its overview, generating it only if ingestion has not produced one yet.
+     *
+     * @param documentId The id of the document.
+     * @return The document carrying its overview summary.
+     */
+    public Document getOrGenerateOverview(String documentId) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("No such document found for id " + documentId));
+        if (document.getOverviewSummary() != null) {
+            return document;
+        }
+        log.info("Overview for document {} not ready yet, generating it now", documentId);
+        return generateOverview(documentId);
+    }
+
+    public Document generateOverview(String documentId) {
+        List<String> initialChunks = getInitialChunksFromDocument(documentId);
+        var overview = pythonServiceClient.summarizeInitialChunks(initialChunks);
+
+        try {
+            return saveOverview(documentId, overview);
+        } catch (ObjectOptimisticLockingFailureException e) {
+            // The document changed concurrently (e.g. generated by a selection meanwhile), retry on the fresh row
+            return saveOverview(documentId, overview);
+        }
+    }
+
+    private Document saveOverview(String documentId, PythonServiceClientImpl.InitialSummarizationResponse overview) {
+        Document document = documentRepository.findById(documentId)
+                .orElseThrow(() -> new RuntimeException("No such document found for id " + documentId));
+        document.setOverviewSummary(overview.getOverviewSummary());
+        document.setKeyTopics(overview.getKeyTopics());
+        document.setRepresentativeChunks(overview.getSelectedChunks());
+        document.setOverviewModel(summarizerModel);
+        document.setOverviewGeneratedAt(LocalDateTime.now());
+        return documentRepository.save(document);
+    }
+
+    private List<String> getInitialChunksFromDocument(String documentId) {
+        var chunks = documentChunkService.getLeadingChunks(documentId, OVERVIEW_CHUNK_COUNT);
+        if (chunks.isEmpty()) {
+            log.warn("No initial chunks found");
+        }
+        return chunks;
+    }
+}
@@ -2,66 +2,119 @@ package com.docqry.backend.services;
 
 import com.docqry.backend.entities.Document;
 import com.docqry.backend.entities.DocumentChunk;
+import com.docqry.backend.entities.IndexingOutboxEntry;
+import com.docqry.backend.events.DocumentIngestedEvent;
+import com.docqry.backend.extraction.TextExtractionService;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.observability.jfr.DocumentUploadEvent;
 import com.docqry.backend.repositories.DocumentChunkRepository;
+import com.docqry.backend.repositories.DocumentListingRepository;
+import com.docqry.backend.repositories.DocumentListingRepository.Cursor;
+import com.docqry.backend.repositories.DocumentListingRepository.Order;
 import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.repositories.DocumentView;
+import com.docqry.backend.repositories.IndexingOutboxRepository;
+import com.docqry.backend.services.BlobStore.StoredBlob;
+import com.docqry.backend.services.SemanticChunker.Segmentation;
+import com.docqry.backend.services.SemanticChunker.Segmenter;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
-import opennlp.tools.sentdetect.SentenceDetectorME;
-import opennlp.tools.sentdetect.SentenceModel;
-import org.hibernate.StaleObjectStateException;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
-import java.util.concurrent.ExecutionException;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 public class DocumentService {
-    private static final String uploadUrl = "uploads/";
+    Logger log = LoggerFactory.getLogger(DocumentService.class);
 
     private final DocumentRepository documentRepository;
     private final DocumentChunkRepository documentChunkRepository;
-    private final PythonServiceClientImpl pythonServiceClient;
-    private final QdrantService qdrantService;
-    private final DocumentChunkService documentChunkService;
+    private final PythonServiceClient pythonServiceClient;
+    private final IndexingOutboxRepository indexingOutboxRepository;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SemanticChunker semanticChunker;
+    private final PipelineMetrics pipelineMetrics;
+    private final ChunkTextStore chunkTextStore;
+    private final BlobStore blobStore;
+    private final BlobGuard blobGuard;
+    private final TextExtractionService textExtractionService;
+    private final DocumentListingRepository documentListingRepository;
+    private final DocumentListVersion documentListVersion;
+
+    /**
+     * A page of the document list and the cursor of the next one, {@code null} on the last page.
+     */
+    public record DocumentPage(List<DocumentView> items, String nextCursor) {
+    }
 
     public Document getDocument(String id) {
         return documentRepository.findById(id).orElseThrow(() -> new RuntimeException("Couldn't find document'"));
     }
 
-    public List<Document> listDocuments() {
-        var documents = documentRepository.findAll();
-        if (documents.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * @param cursor {@code nextCursor} of the previous page, {@code null} for the first one.
+     * @throws IllegalArgumentException When the cursor is malformed or belongs to another order.
+     */
+    public DocumentPage listDocuments(Order order, String cursor, int size) {
+        Cursor after = cursor == null || cursor.isBlank() ? null : Cursor.parse(order, cursor);
+        // One row past the page tells whether there is a next one
+        List<DocumentView> documents = documentListingRepository.findPage(order, after, size + 1);
+        if (documents.size() <= size) {
+            return new DocumentPage(documents, null);
         }
-        return documents;
+        List<DocumentView> page = documents.subList(0, size);
+        return new DocumentPage(page, Cursor.after(order, page.getLast()).token());
+    }
+
+    public long listVersion() {
+        return documentListVersion.current();
     }
 
 
     @Transactional
     public Document uploadDocument(MultipartFile file) throws IOException {
+        DocumentUploadEvent uploadEvent = new DocumentUploadEvent();
+        uploadEvent.begin();
         try {
-            // Save file locally
-            String filePath = saveFileLocally(file);
-            System.out.println(filePath);
+            // Store the file under its content hash
+            StoredBlob stored;
+            try (InputStream content = file.getInputStream()) {
+                stored = blobStore.store(content);
+            }
+            // Waits for a deletion of the same file and keeps the file from being deleted until this upload ends
+            StoredBlob blob = blobGuard.lockForUpload(stored, file);
+            log.debug("Stored upload {} at {}", file.getOriginalFilename(), blob.path());
+            if (!blob.existed()) {
+                deleteBlobOnRollback(blob);
+            }
+
+            // An identical file is already a document: hand that one back before any chunking or embedding
+            Optional<Document> duplicate = documentRepository.findFirstByContentHash(blob.hash());
+            if (duplicate.isPresent()) {
+                log.info("Upload {} is identical to document {}, skipping ingestion",
+                        file.getOriginalFilename(), duplicate.get().getId());
+                return duplicate.get();
+            }
 
             // Create and save Document entity
             Document doc = Document.builder()
                     .name(file.getOriginalFilename())
-                    .filePath(filePath)
+                    .filePath(blob.path().toString())
+                    .contentHash(blob.hash())
                     .uploadedAt(LocalDateTime.now())
                     .version(0L)
                     .build();
@@ -69,14 +122,17 @@ public class DocumentService {
             // Save the Document entity and get the managed entity with an ID
             doc = documentRepository.save(doc);
 
-            // Split text into chunks
-            String content = new String(file.getBytes());
-
-
-            List<String> chunks = splitTextIntoSemanticChunks(content, 512, 80);
+            // Extract the text section by section straight into the chunker, junk is rejected before any embedding
+            Segmentation segmentation = pipelineMetrics.time(Stage.EXTRACTION, () -> {
+                Segmenter segmenter = semanticChunker.segmenter(512, 80);
+                textExtractionService.extract(blob.path(), file.getOriginalFilename(), file.getContentType(), segmenter);
+                return segmenter.finish();
+            });
+            List<String> chunks = segmentation.chunks();
 
             // Generate embeddings for all chunks in a batch
-            List<float[]> embeddings = pythonServiceClient.generateEmbeddings(chunks);
+            List<float[]> embeddings = pipelineMetrics.time(Stage.EMBEDDING,
+                    () -> pythonServiceClient.generateEmbeddings(chunks));
 
             // Ensure chunks and embeddings are aligned
             if (chunks.size() != embeddings.size()) {
@@ -89,104 +145,90 @@ public class DocumentService {
 //                chunkIds.add(UUID.randomUUID().toString());
 //            }
 
-            // Save chunk metadata and store embeddings in Qdrant
-            saveDocumentChunksAndEmbeddings(chunks, embeddings, doc);
+            // Save chunk metadata and queue the embeddings for indexing, in the upload transaction
+            saveDocumentChunksAndEmbeddings(segmentation, chunks, embeddings, doc);
+            documentListVersion.bumpAfterCommit();
+
+            if (uploadEvent.shouldCommit()) {
+                uploadEvent.documentId = doc.getId();
+                uploadEvent.fileName = file.getOriginalFilename();
+                uploadEvent.fileBytes = file.getSize();
+                uploadEvent.chunkCount = chunks.size();
+                uploadEvent.commit();
+            }
+
+            // Generate the overview and index the embeddings once the chunks are committed
+            eventPublisher.publishEvent(new DocumentIngestedEvent(doc.getId()));
 
             return doc;
 
         } catch (IOException e) {
-            e.printStackTrace();
+            log.error("Failed to upload document {}", file.getOriginalFilename(), e);
             return null;
         }
     }
 
-    @Retryable(
-            value = {StaleObjectStateException.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000)
-    )
-    @Transactional
-    public void saveDocumentChunksAndEmbeddings(List<String> chunks, List<float[]> embeddings, Document doc) {
-        // Prepare chunks with metadata
-        List<DocumentChunk> documentChunks = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            DocumentChunk documentChunk = DocumentChunk.builder()
-                    .document(doc)
-                    .chunkText(chunks.get(i))
-                    .version(0L)
-                    .chunkIndex(i)  // Add index metadata
-                    .build();
-            documentChunks.add(documentChunk);
-        }
-
-        // Batch save chunks to the database
-        List<DocumentChunk> savedChunks = documentChunkRepository.saveAll(documentChunks);
-
-        // Collect chunk IDs
-        List<String> chunkIds = savedChunks.stream()
-                .map(DocumentChunk::getId)
-                .toList();
-
-        // Store embeddings in Qdrant
-        try {
-            qdrantService.storeEmbeddings("documents", embeddings, doc.getId(), chunkIds);
-        } catch (ExecutionException | InterruptedException e) {
-            e.printStackTrace();
-            // Handle Qdrant errors gracefully (e.g., rollback changes if needed)
-        }
-    }
-
-
-    private String saveFileLocally(MultipartFile file) throws IOException {
-        Path dir = Paths.get(uploadUrl);
-        if (!Files.exists(dir)) Files.createDirectories(dir);
-
-        String filePath = uploadUrl + UUID.randomUUID() + "_" + file.getOriginalFilename();
-        Files.write(Paths.get(filePath), file.getBytes());
-        return filePath;
-    }
-
-    private List<String> splitTextIntoSemanticChunks(String text, int chunkSize, int    overlap) {
-        try (InputStream modelIn = new FileInputStream("./models/en-sent.bin")) {
-            SentenceModel model = new SentenceModel(modelIn);
-            SentenceDetectorME detector = new SentenceDetectorME(model);
-            String[] sentences = detector.sentDetect(text);
-
-            List<String> chunks = new ArrayList<>();
-            StringBuilder chunk = new StringBuilder();
-
-            for (int i = 0; i < sentences.length; i++) {
-                if (chunk.length() + sentences[i].length() > chunkSize) {
-                    chunks.add(chunk.toString());
-                    chunk = new StringBuilder();
-
-                    // Add overlap by re-including the last few sentences
-                    for (int j = Math.max(0, i - overlap); j < i; j++) {
-                        chunk.append(sentences[j]).append(" ");
+    /**
+     * Deletes a blob this upload created if the upload rolls back, rejected or failed uploads would otherwise leave
+     * files no document points to and the cleanup worker never visits. An identical upload keeps it.
+     */
+    private void deleteBlobOnRollback(StoredBlob blob) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_ROLLED_BACK) {
+                    return;
+                }
+                try {
+                    if (blobGuard.deleteIfUnused(blob.path().toString())) {
+                        log.debug("Deleted blob {} of a rolled back upload", blob.hash());
                     }
+                } catch (IOException e) {
+                    log.warn("Failed to delete blob {} of a rolled back upload", blob.path(), e);
                 }
-                chunk.append(sentences[i]).append(" ");
-            }
-            if (!chunk.isEmpty()) {
-                chunks.add(chunk.toString());
             }
-            return chunks;
+        });
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Error loading sentence detection model", e);
+    /**
+     * Persists the chunks and an outbox entry per embedding. Both commit or roll back with the upload, and the
+     * {@link IndexingOutboxDispatcher} indexes the embeddings in Qdrant afterwards, retrying until it succeeds.
+     */
+    private void saveDocumentChunksAndEmbeddings(Segmentation segmentation, List<String> chunks,
+                                                 List<float[]> embeddings, Document doc) {
+        // Prepare chunks with metadata, stored the way chunks.storage.mode says
+        List<DocumentChunk> documentChunks = chunkTextStore.prepareChunks(doc, segmentation, chunks);
+
+        // Batch save chunks to the database
+        List<DocumentChunk> savedChunks = pipelineMetrics.time(Stage.CHUNK_PERSISTENCE,
+                () -> documentChunkRepository.saveAll(documentChunks));
+
+        List<IndexingOutboxEntry> outboxEntries = new ArrayList<>(savedChunks.size());
+        for (int i = 0; i < savedChunks.size(); i++) {
+            outboxEntries.add(IndexingOutboxEntry.builder()
+                    .documentId(doc.getId())
+                    .chunkId(savedChunks.get(i).getId())
+                    .chunkIndex(i)
+                    .vector(embeddings.get(i))
+                    .build());
         }
+        indexingOutboxRepository.saveAll(outboxEntries);
     }
 
-    @Transactional
-    public void deleteDocumentById(String id) throws Exception {
-        var doc = documentRepository.findById(id).orElseThrow(()-> new RuntimeException("No such document found for id " + id));
-        // Delete the document in the local uploads folder
-        Files.deleteIfExists(Paths.get(doc.getFilePath()));
-
-        // Delete the related chunks and their respective vector embeddings in the Qdrant
-        documentChunkService.deleteRelatedChunksAndVectorEmbeddingsByDocId(id);
+    /**
+     * Tombstones the document, which hides it and its chunks from every read at once: document reads through the
+     * entity's restriction, chunk reads and the pgvector search by joining the document. Qdrant keeps returning
+     * its vectors until they are purged, those hits are dropped when their chunks are read. Its vectors, stored
+     * file and chunks are purged in the background by the {@link DocumentCleanupWorker}, so deleting takes one
+     * row update whatever the size of the document.
+     */
+    public void deleteDocumentById(String id) {
+        if (documentRepository.markDeleted(id) == 0) {
+            throw new RuntimeException("No such document found for id " + id);
+        }
+        documentListVersion.bumpAfterCommit();
 
-        // Delete the document metadata in DB
-        documentRepository.deleteById(id);
+        // Cached answers were generated from the deleted chunks
+        semanticAnswerCache.invalidate(id);
     }
 }
\ No newline at end of file
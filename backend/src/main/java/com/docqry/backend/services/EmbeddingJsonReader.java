@@ -0,0 +1,68 @@
+package com.docqry.backend.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams the {@code {"embeddings": [[...], ...]}} response of the embedding service straight into
+ * {@code float[]} vectors. The first vector fixes the dimension, so every following one is read into
+ * an exactly sized array without growing or trimming buffers, and no number is ever boxed.
+ */
+final class EmbeddingJsonReader {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private EmbeddingJsonReader() {
+    }
+
+    static List<float[]> readEmbeddings(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected an embedding response object");
+        }
+        List<float[]> embeddings = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            if ("embeddings".equals(field)) {
+                embeddings = readVectors(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (embeddings == null) {
+            throw new IOException("Embedding response has no embeddings field");
+        }
+        return embeddings;
+    }
+
+    private static List<float[]> readVectors(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected an array of embeddings");
+        }
+        List<float[]> vectors = new ArrayList<>();
+        int dimension = -1;
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            float[] vector = new float[dimension > 0 ? dimension : INITIAL_CAPACITY];
+            int length = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (length == vector.length) {
+                    vector = Arrays.copyOf(vector, vector.length * 2);
+                }
+                vector[length++] = parser.getFloatValue();
+            }
+            if (length != vector.length) {
+                vector = Arrays.copyOf(vector, length);
+            }
+            if (dimension < 0) {
+                dimension = length;
+            }
+            vectors.add(vector);
+        }
+        return vectors;
+    }
+}
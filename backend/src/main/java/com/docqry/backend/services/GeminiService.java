@@ -5,15 +5,20 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -25,33 +30,22 @@ public class GeminiService implements LLMService {
     @Value("${gemini.api.url:https://generativelanguage.googleapis.com/v1/models/gemini-1.5-pro:generateContent}")
     private String apiUrl;
 
+    // Defaults to the streamGenerateContent variant of gemini.api.url when left empty
+    @Value("${gemini.api.stream-url:}")
+    private String streamUrl;
+
     private final ObjectMapper objectMapper;
     private final RestTemplate restTemplate;
 
-    public GeminiService(ObjectMapper objectMapper) {
+    public GeminiService(ObjectMapper objectMapper, RestTemplate geminiRestTemplate) {
         this.objectMapper = objectMapper;
-        this.restTemplate = new RestTemplateBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .readTimeout(Duration.ofSeconds(30))
-                .build();
+        this.restTemplate = geminiRestTemplate;
     }
 
     public String getLLMResponse(String prompt) throws LLMCommunicationException {
         try {
             // Construct request body
-            Map<String, Object> requestBody = new HashMap<>();
-            Map<String, Object> contents = new HashMap<>();
-            contents.put("role", "user");
-            contents.put("parts", List.of(Map.of("text", prompt)));
-
-            requestBody.put("contents", List.of(contents));
-            requestBody.put("generationConfig", Map.of(
-                    "temperature", 0.7,
-                    "topK", 40,
-                    "topP", 0.95,
-                    "maxOutputTokens", 2048,
-                    "stopSequences", List.of()
-            ));
+            Map<String, Object> requestBody = buildRequestBody(prompt);
 
             // Add API key to URL
             String fullUrl = apiUrl + "?key=" + apiKey;
@@ -90,6 +84,100 @@ public class GeminiService implements LLMService {
         }
     }
 
+    /**
+     * Streams the answer through Gemini's {@code streamGenerateContent} endpoint using server-sent events,
+     * forwarding each text fragment to {@code onToken} as soon as it has been received.
+     *
+     * @param prompt  The sanitized prompt to send.
+     * @param onToken Callback receiving the generated text fragments in order.
+     * @throws LLMCommunicationException If the request fails or the stream cannot be read.
+     */
+    @Override
+    public void streamLLMResponse(String prompt, Consumer<String> onToken) throws LLMCommunicationException {
+        try {
+            byte[] requestBody = objectMapper.writeValueAsBytes(buildRequestBody(prompt));
+
+            // alt=sse makes Gemini emit one "data:" line per partial candidate instead of a JSON array
+            String fullUrl = resolveStreamUrl() + "?alt=sse&key=" + apiKey;
+
+            log.debug("Streaming request to Gemini API");
+
+            restTemplate.execute(
+                    fullUrl,
+                    HttpMethod.POST,
+                    request -> {
+                        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                        request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM));
+                        request.getBody().write(requestBody);
+                    },
+                    response -> {
+                        readEventStream(response.getBody(), onToken);
+                        return null;
+                    }
+            );
+        } catch (UncheckedIOException e) {
+            // Raised by onToken when the downstream consumer can no longer accept fragments
+            throw e;
+        } catch (Exception e) {
+            log.error("Error while streaming from Gemini API", e);
+            throw new LLMCommunicationException("Failed to stream response from Gemini API: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> buildRequestBody(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        Map<String, Object> contents = new HashMap<>();
+        contents.put("role", "user");
+        contents.put("parts", List.of(Map.of("text", prompt)));
+
+        requestBody.put("contents", List.of(contents));
+        requestBody.put("generationConfig", Map.of(
+                "temperature", 0.7,
+                "topK", 40,
+                "topP", 0.95,
+                "maxOutputTokens", 2048,
+                "stopSequences", List.of()
+        ));
+        return requestBody;
+    }
+
+    private String resolveStreamUrl() {
+        if (streamUrl != null && !streamUrl.isBlank()) {
+            return streamUrl;
+        }
+        return apiUrl.replace(":generateContent", ":streamGenerateContent");
+    }
+
+    private void readEventStream(InputStream body, Consumer<String> onToken) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Each event carries a complete GenerateContentResponse on its data line
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring("data:".length()).trim();
+                if (data.isEmpty() || "[DONE]".equals(data)) {
+                    continue;
+                }
+                String text = extractStreamedText(objectMapper.readTree(data));
+                if (!text.isEmpty()) {
+                    onToken.accept(text);
+                }
+            }
+        }
+    }
+
+    private String extractStreamedText(JsonNode responseNode) {
+        // Streamed events may carry only metadata (e.g. the final finishReason), so missing text is not an error
+        JsonNode partsNode = responseNode.path("candidates").path(0).path("content").path("parts");
+        StringBuilder text = new StringBuilder();
+        for (JsonNode part : partsNode) {
+            text.append(part.path("text").asText(""));
+        }
+        return text.toString();
+    }
+
     private String extractTextFromGeminiResponse(JsonNode responseNode) throws LLMCommunicationException {
         try {
             // Navigate through the response structure
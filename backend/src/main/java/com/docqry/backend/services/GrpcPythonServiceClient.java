@@ -0,0 +1,168 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.grpc.embedding.EmbedRequest;
+import com.docqry.backend.grpc.embedding.EmbedResponse;
+import com.docqry.backend.grpc.embedding.EmbeddingServiceGrpc;
+import com.docqry.backend.observability.TraceContextClientInterceptor;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PythonServiceClient} that fetches embeddings over the bidirectional gRPC {@code EmbedStream} RPC.
+ * Texts are streamed in batches and vectors come back as packed little-endian float32 buffers that are
+ * copied straight into {@code float[]}, avoiding the decimal JSON encoding of the REST endpoint.
+ * Summarization still goes through the REST client.
+ * <p>
+ * Enabled with {@code embedding.provider=grpc}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "grpc")
+public class GrpcPythonServiceClient implements PythonServiceClient {
+
+    private final Logger log = LoggerFactory.getLogger(GrpcPythonServiceClient.class);
+
+    private final PythonServiceClientImpl restClient;
+    private final ManagedChannel channel;
+    private final EmbeddingServiceGrpc.EmbeddingServiceStub embeddingStub;
+    private final int batchSize;
+    private final Duration deadline;
+
+    public GrpcPythonServiceClient(
+            PythonServiceClientImpl restClient,
+            @Value("${embedding.grpc.host:embedding-service}") String host,
+            @Value("${embedding.grpc.port:50051}") int port,
+            @Value("${embedding.grpc.batch-size:32}") int batchSize,
+            @Value("${embedding.grpc.deadline:PT120S}") Duration deadline) {
+        this.restClient = restClient;
+        this.batchSize = batchSize;
+        this.deadline = deadline;
+        this.channel = ManagedChannelBuilder.forAddress(host, port)
+                .usePlaintext()
+                .keepAliveTime(30, TimeUnit.SECONDS)
+                .maxInboundMessageSize(64 * 1024 * 1024)
+                .intercept(new TraceContextClientInterceptor())
+                .build();
+        this.embeddingStub = EmbeddingServiceGrpc.newStub(channel);
+        log.info("Using gRPC embedding transport at {}:{}", host, port);
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        float[][] embeddings = new float[texts.size()][];
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+
+        StreamObserver<EmbedRequest> requests = embeddingStub
+                .withDeadlineAfter(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                .embedStream(new StreamObserver<>() {
+                    @Override
+                    public void onNext(EmbedResponse response) {
+                        decodeInto(response, embeddings, (int) response.getBatchId() * batchSize);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                        completed.completeExceptionally(t);
+                    }
+
+                    @Override
+                    public void onCompleted() {
+                        completed.complete(null);
+                    }
+                });
+
+        try {
+            for (int offset = 0, batchId = 0; offset < texts.size(); offset += batchSize, batchId++) {
+                requests.onNext(EmbedRequest.newBuilder()
+                        .setBatchId(batchId)
+                        .addAllTexts(texts.subList(offset, Math.min(offset + batchSize, texts.size())))
+                        .build());
+            }
+            requests.onCompleted();
+        } catch (RuntimeException e) {
+            requests.onError(e);
+            throw e;
+        }
+
+        try {
+            completed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for embeddings", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to generate embeddings over gRPC: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        for (int i = 0; i < embeddings.length; i++) {
+            if (embeddings[i] == null) {
+                throw new IllegalStateException("Embedding service returned no vector for text " + i);
+            }
+        }
+        return Arrays.asList(embeddings);
+    }
+
+    @Override
+    public float[] generateQueryVector(String queryText) {
+        List<float[]> embeddings = generateEmbeddings(List.of(queryText));
+        if (!embeddings.isEmpty()) {
+            return embeddings.getFirst();
+        }
+        throw new IllegalArgumentException("Failed to generate query vector");
+    }
+
+    @Override
+    public PythonServiceClientImpl.SummarizationResponse summarizeText(String query, List<String> rankedChunks, List<Float> chunkScores) {
+        return restClient.summarizeText(query, rankedChunks, chunkScores);
+    }
+
+    @Override
+    public PythonServiceClientImpl.InitialSummarizationResponse summarizeInitialChunks(List<String> initialChunks) {
+        return restClient.summarizeInitialChunks(initialChunks);
+    }
+
+    /**
+     * Copies the packed vectors of one response into their slots, starting at {@code offset}.
+     */
+    static void decodeInto(EmbedResponse response, float[][] embeddings, int offset) {
+        int dimension = response.getDimension();
+        int count = response.getCount();
+        if (response.getVectors().size() != count * dimension * Float.BYTES) {
+            throw new IllegalStateException("Embedding batch " + response.getBatchId() + " has "
+                    + response.getVectors().size() + " bytes, expected " + count * dimension * Float.BYTES);
+        }
+        FloatBuffer floats = response.getVectors()
+                .asReadOnlyByteBuffer()
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        for (int i = 0; i < count; i++) {
+            float[] vector = new float[dimension];
+            floats.get(vector);
+            embeddings[offset + i] = vector;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
@@ -8,13 +8,11 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,7 +21,8 @@ import java.util.Map;
 public class HuggingFaceService implements LLMService {
 
     private final Logger log = LoggerFactory.getLogger(HuggingFaceService.class);
-    private final RestTemplate restTemplate;
+    private final RestTemplate huggingFaceRestTemplate;
+    private final ObjectMapper objectMapper;
 
 
     @Override
@@ -41,7 +40,6 @@ public class HuggingFaceService implements LLMService {
             headers.setContentType(MediaType.APPLICATION_JSON);
 
             // Hugging Face Inference API expects this specific format
-            ObjectMapper mapper = new ObjectMapper();
             Map<String, Object> requestMap = new HashMap<>();
             requestMap.put("inputs", processedPrompt);
             // Optional parameters for Zephyr
@@ -52,19 +50,14 @@ public class HuggingFaceService implements LLMService {
                     "do_sample", true
             ));
 
-            String requestBody = mapper.writeValueAsString(requestMap);
+            String requestBody = objectMapper.writeValueAsString(requestMap);
             log.debug("Request body: {}", requestBody);
 
             HttpEntity<String> requestEntity = new HttpEntity<>(requestBody, headers);
 
-            RestTemplate restTemplateWithTimeout = new RestTemplateBuilder()
-                    .connectTimeout(Duration.ofSeconds(10))
-                    .readTimeout(Duration.ofSeconds(30))
-                    .build();
-
             //    @Value("${huggingface.api.url}")
             String apiUrl = "";
-            ResponseEntity<String> response = restTemplateWithTimeout.exchange(
+            ResponseEntity<String> response = huggingFaceRestTemplate.exchange(
                     apiUrl,
                     HttpMethod.POST,
                     requestEntity,
@@ -73,7 +66,7 @@ public class HuggingFaceService implements LLMService {
 
             if (response.getStatusCode().is2xxSuccessful()) {
                 // Parse the response - Hugging Face returns an array of responses
-                JsonNode responseArray = mapper.readTree(response.getBody());
+                JsonNode responseArray = objectMapper.readTree(response.getBody());
                 if (responseArray.isArray() && responseArray.size() > 0) {
                     String generatedText = responseArray.get(0)
                             .path("generated_text")
@@ -0,0 +1,156 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.entities.IndexingOutboxEntry;
+import com.docqry.backend.events.DocumentIngestedEvent;
+import com.docqry.backend.repositories.IndexingOutboxRepository;
+import com.docqry.backend.services.VectorStore.IndexedChunk;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the indexing outbox into the vector store. Entries of every pending document are claimed together and sent
+ * as one upsert per batch, entries of a failed batch are retried with an exponential backoff. Runs on a schedule and
+ * right after each upload commits, so a healthy store indexes new documents within moments while an unavailable one
+ * only delays indexing instead of failing or silently dropping it.
+ * <p>
+ * Publishes {@code docqry.outbox.pending}, {@code docqry.outbox.lag} (age of the oldest entry),
+ * {@code docqry.outbox.dispatched} and {@code docqry.outbox.failures}.
+ */
+@Component
+public class IndexingOutboxDispatcher {
+
+    Logger log = LoggerFactory.getLogger(IndexingOutboxDispatcher.class);
+
+    private final IndexingOutboxRepository outboxRepository;
+    private final VectorStore vectorStore;
+    private final TransactionTemplate transactionTemplate;
+    private final DocumentListVersion documentListVersion;
+    private final int batchSize;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Counter dispatched;
+    private final Counter failures;
+    private final AtomicLong pending = new AtomicLong();
+    private volatile LocalDateTime oldestPending;
+
+    public IndexingOutboxDispatcher(
+            IndexingOutboxRepository outboxRepository,
+            VectorStore vectorStore,
+            TransactionTemplate transactionTemplate,
+            DocumentListVersion documentListVersion,
+            MeterRegistry meterRegistry,
+            @Value("${outbox.dispatch.batch-size:512}") int batchSize,
+            @Value("${outbox.dispatch.initial-backoff:PT1S}") Duration initialBackoff,
+            @Value("${outbox.dispatch.max-backoff:PT5M}") Duration maxBackoff) {
+        this.outboxRepository = outboxRepository;
+        this.vectorStore = vectorStore;
+        this.transactionTemplate = transactionTemplate;
+        this.documentListVersion = documentListVersion;
+        this.batchSize = batchSize;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.dispatched = Counter.builder("docqry.outbox.dispatched")
+                .description("Chunk embeddings indexed in the vector store from the outbox")
+                .register(meterRegistry);
+        this.failures = Counter.builder("docqry.outbox.failures")
+                .description("Outbox batches the vector store failed to index, retried after a backoff")
+                .register(meterRegistry);
+        Gauge.builder("docqry.outbox.pending", pending, AtomicLong::get)
+                .description("Chunk embeddings waiting in the outbox, as of the last dispatch")
+                .register(meterRegistry);
+        Gauge.builder("docqry.outbox.lag", this, IndexingOutboxDispatcher::lagSeconds)
+                .description("Age of the oldest chunk embedding waiting in the outbox")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Async("taskExecutor")
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onDocumentIngested(DocumentIngestedEvent event) {
+        dispatch();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatch.interval:PT2S}")
+    public void dispatch() {
+        try {
+            Integer indexed;
+            do {
+                indexed = transactionTemplate.execute(status -> dispatchBatch());
+            } while (indexed != null && indexed == batchSize);
+        } finally {
+            var backlog = outboxRepository.findBacklog();
+            pending.set(backlog.getPending());
+            oldestPending = backlog.getOldest();
+        }
+    }
+
+    // Runs in a transaction holding the row locks of the claimed entries until they are deleted or rescheduled
+    private int dispatchBatch() {
+        List<IndexingOutboxEntry> entries = outboxRepository.claimDue(batchSize);
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        List<IndexedChunk> chunks = entries.stream()
+                .map(entry -> new IndexedChunk(entry.getDocumentId(), entry.getChunkId(), entry.getChunkIndex(), entry.getVector()))
+                .toList();
+        try {
+            vectorStore.store(chunks);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            reschedule(entries, e);
+            return 0;
+        }
+        outboxRepository.deleteAllInBatch(entries);
+        // The documents' index status changed
+        documentListVersion.bumpAfterCommit();
+        dispatched.increment(entries.size());
+        log.debug("Indexed {} chunk embeddings from the outbox", entries.size());
+        return entries.size();
+    }
+
+    private void reschedule(List<IndexingOutboxEntry> entries, Exception failure) {
+        failures.increment();
+        LocalDateTime now = LocalDateTime.now();
+        String error = String.valueOf(failure.getMessage());
+        for (IndexingOutboxEntry entry : entries) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            entry.setNextAttemptAt(now.plus(backoff(entry.getAttempts(), initialBackoff, maxBackoff)));
+            entry.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+        }
+        outboxRepository.saveAll(entries);
+        documentListVersion.bumpAfterCommit();
+        log.warn("Failed to index {} chunk embeddings in the vector store, retrying in {}", entries.size(),
+                backoff(entries.getFirst().getAttempts(), initialBackoff, maxBackoff), failure);
+    }
+
+    /**
+     * @return The delay before the given attempt: doubling from the initial backoff and capped at the maximum.
+     */
+    static Duration backoff(int attempts, Duration initial, Duration max) {
+        // Past 2^20 the cap has long been reached, the bound keeps the shift from overflowing
+        Duration delay = initial.multipliedBy(1L << Math.min(Math.max(attempts - 1, 0), 20));
+        return delay.compareTo(max) > 0 ? max : delay;
+    }
+
+    private double lagSeconds() {
+        LocalDateTime oldest = oldestPending;
+        return oldest == null ? 0 : Math.max(Duration.between(oldest, LocalDateTime.now()).toMillis() / 1000.0, 0);
+    }
+}
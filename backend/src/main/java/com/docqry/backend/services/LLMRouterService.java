@@ -0,0 +1,455 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.exceptions.LLMCommunicationException;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * {@link LLMService} that spreads calls over the configured providers. It keeps a sliding window of
+ * latencies and outcomes per provider, routes every call to the fastest healthy one, trips a circuit
+ * breaker on repeated failures and, when hedging is enabled, fires the same prompt at the next best
+ * provider once the first has been running for longer than its own p95.
+ * <p>
+ * Being the primary {@link LLMService}, it is what every caller injecting the interface receives.
+ */
+@Service
+@Primary
+public class LLMRouterService implements LLMService {
+
+    Logger log = LoggerFactory.getLogger(LLMRouterService.class);
+
+    // Number of most recent calls kept per provider for latency percentiles and error rates
+    private static final int WINDOW_SIZE = 256;
+    // Calls needed in the window before the error rate alone may open the circuit
+    private static final int MIN_CALLS_FOR_ERROR_RATE = 20;
+
+    private final List<Provider> providers;
+    private final TaskExecutor taskExecutor;
+    private final boolean hedgingEnabled;
+    private final long minHedgeDelayMillis;
+    private final int failureThreshold;
+    private final double errorRateThreshold;
+    private final long openDurationMillis;
+    private final Counter hedgedRequests;
+    private final PipelineMetrics pipelineMetrics;
+
+    public LLMRouterService(
+            Map<String, LLMService> llmServices,
+            TaskExecutor taskExecutor,
+            MeterRegistry meterRegistry,
+            PipelineMetrics pipelineMetrics,
+            @Value("${llm.router.providers:geminiService}") List<String> providerNames,
+            @Value("${llm.router.hedging.enabled:false}") boolean hedgingEnabled,
+            @Value("${llm.router.hedging.min-delay:PT2S}") Duration minHedgeDelay,
+            @Value("${llm.router.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${llm.router.circuit-breaker.error-rate-threshold:0.5}") double errorRateThreshold,
+            @Value("${llm.router.circuit-breaker.open-duration:PT30S}") Duration openDuration) {
+        this.taskExecutor = taskExecutor;
+        this.pipelineMetrics = pipelineMetrics;
+        this.hedgingEnabled = hedgingEnabled;
+        this.minHedgeDelayMillis = minHedgeDelay.toMillis();
+        this.failureThreshold = failureThreshold;
+        this.errorRateThreshold = errorRateThreshold;
+        this.openDurationMillis = openDuration.toMillis();
+
+        List<Provider> configured = new ArrayList<>();
+        for (int i = 0; i < providerNames.size(); i++) {
+            String name = providerNames.get(i).trim();
+            LLMService service = llmServices.get(name);
+            if (service == null) {
+                throw new IllegalStateException("Unknown LLM provider '" + name + "', available: " + llmServices.keySet());
+            }
+            configured.add(new Provider(name, service, i, meterRegistry));
+        }
+        if (configured.isEmpty()) {
+            throw new IllegalStateException("At least one LLM provider must be configured in llm.router.providers");
+        }
+        this.providers = List.copyOf(configured);
+        this.hedgedRequests = Counter.builder("docqry.llm.router.hedged")
+                .description("Requests for which a hedged call to a second provider was fired")
+                .register(meterRegistry);
+        log.info("LLM router using providers {} (hedging {})", providerNames, hedgingEnabled ? "enabled" : "disabled");
+    }
+
+    @Override
+    public String getLLMResponse(String prompt) throws LLMCommunicationException {
+        return pipelineMetrics.time(Stage.LLM_GENERATION, () -> route(prompt));
+    }
+
+    private String route(String prompt) throws LLMCommunicationException {
+        List<Provider> ranked = rankProviders();
+        if (ranked.isEmpty()) {
+            throw new LLMCommunicationException("No healthy LLM provider available");
+        }
+        if (hedgingEnabled && ranked.size() > 1) {
+            return callHedged(ranked, prompt);
+        }
+        return callWithFallback(ranked, prompt);
+    }
+
+    @Override
+    public void streamLLMResponse(String prompt, Consumer<String> onToken) throws LLMCommunicationException {
+        pipelineMetrics.run(Stage.LLM_GENERATION, () -> routeStream(prompt, onToken));
+    }
+
+    private void routeStream(String prompt, Consumer<String> onToken) throws LLMCommunicationException {
+        LLMCommunicationException lastFailure = null;
+        for (Provider provider : rankProviders()) {
+            if (!provider.tryAcquire()) {
+                continue;
+            }
+            // Falling back is only possible as long as nothing has been forwarded to the caller yet
+            boolean[] emitted = new boolean[1];
+            StringBuilder answer = new StringBuilder();
+            long start = System.nanoTime();
+            try {
+                provider.service.streamLLMResponse(prompt, token -> {
+                    emitted[0] = true;
+                    answer.append(token);
+                    onToken.accept(token);
+                });
+                provider.recordSuccess(System.nanoTime() - start);
+                pipelineMetrics.recordTokens(provider.name, prompt, answer.toString());
+                return;
+            } catch (LLMCommunicationException e) {
+                provider.recordFailure(System.nanoTime() - start);
+                if (emitted[0]) {
+                    throw e;
+                }
+                log.warn("LLM provider {} failed to stream, trying the next one", provider.name);
+                lastFailure = e;
+            } catch (RuntimeException e) {
+                // Raised by the caller's token consumer (e.g. the client went away), not the provider's fault
+                provider.releaseTrial();
+                throw e;
+            }
+        }
+        throw lastFailure != null ? lastFailure : new LLMCommunicationException("No healthy LLM provider available");
+    }
+
+    /**
+     * @return The providers whose circuit allows a call, fastest first. Providers without any
+     * recorded call keep their configured order ahead of the measured ones so they get sampled.
+     */
+    List<Provider> rankProviders() {
+        long now = System.currentTimeMillis();
+        return providers.stream()
+                .filter(provider -> provider.isAvailable(now))
+                .sorted(Comparator.comparingLong(Provider::expectedLatencyNanos)
+                        .thenComparingInt(provider -> provider.preference))
+                .toList();
+    }
+
+    private String callWithFallback(List<Provider> ranked, String prompt) throws LLMCommunicationException {
+        LLMCommunicationException lastFailure = null;
+        for (Provider provider : ranked) {
+            if (!provider.tryAcquire()) {
+                continue;
+            }
+            try {
+                return call(provider, prompt);
+            } catch (LLMCommunicationException e) {
+                log.warn("LLM provider {} failed, trying the next one", provider.name);
+                lastFailure = e;
+            }
+        }
+        throw lastFailure != null ? lastFailure : new LLMCommunicationException("No healthy LLM provider available");
+    }
+
+    private String callHedged(List<Provider> ranked, String prompt) throws LLMCommunicationException {
+        Provider primary = ranked.get(0);
+        if (!primary.tryAcquire()) {
+            return callWithFallback(ranked.subList(1, ranked.size()), prompt);
+        }
+        CompletableFuture<String> primaryCall = submit(primary, prompt);
+
+        // Give the primary its usual tail latency before spending a second call on the same prompt
+        long hedgeDelayMillis = Math.max(minHedgeDelayMillis, TimeUnit.NANOSECONDS.toMillis(primary.latencyPercentileNanos(0.95)));
+        try {
+            return primaryCall.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Primary is slower than usual, hedge below
+        } catch (ExecutionException e) {
+            return callWithFallback(ranked.subList(1, ranked.size()), prompt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMCommunicationException("Interrupted while waiting for the LLM response");
+        }
+
+        Provider secondary = ranked.get(1);
+        if (!secondary.tryAcquire()) {
+            return await(primaryCall);
+        }
+        hedgedRequests.increment();
+        log.debug("LLM provider {} exceeded {} ms, hedging with {}", primary.name, hedgeDelayMillis, secondary.name);
+        return await(firstSuccessful(primaryCall, submit(secondary, prompt)));
+    }
+
+    private CompletableFuture<String> submit(Provider provider, String prompt) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call(provider, prompt);
+            } catch (LLMCommunicationException e) {
+                throw new CompletionException(e);
+            }
+        }, taskExecutor);
+    }
+
+    private String call(Provider provider, String prompt) throws LLMCommunicationException {
+        long start = System.nanoTime();
+        try {
+            String response = provider.service.getLLMResponse(prompt);
+            provider.recordSuccess(System.nanoTime() - start);
+            pipelineMetrics.recordTokens(provider.name, prompt, response);
+            return response;
+        } catch (LLMCommunicationException | RuntimeException e) {
+            provider.recordFailure(System.nanoTime() - start);
+            if (e instanceof LLMCommunicationException llmException) {
+                throw llmException;
+            }
+            throw new LLMCommunicationException("LLM provider " + provider.name + " failed: " + e.getMessage());
+        }
+    }
+
+    private static CompletableFuture<String> firstSuccessful(CompletableFuture<String> first, CompletableFuture<String> second) {
+        CompletableFuture<String> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<String> call : List.of(first, second)) {
+            call.whenComplete((response, failure) -> {
+                if (failure == null) {
+                    winner.complete(response);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(failure);
+                }
+            });
+        }
+        // The loser keeps running to completion so its latency still feeds the statistics
+        return winner;
+    }
+
+    private static String await(CompletableFuture<String> call) throws LLMCommunicationException {
+        try {
+            return call.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LLMCommunicationException("Interrupted while waiting for the LLM response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof LLMCommunicationException llmException) {
+                throw llmException;
+            }
+            throw new LLMCommunicationException("LLM call failed: " + cause);
+        }
+    }
+
+    private enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Per provider latency window, error rate and circuit breaker.
+     */
+    final class Provider {
+        final String name;
+        final LLMService service;
+        final int preference;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final long[] latencies = new long[WINDOW_SIZE];
+        private final boolean[] failed = new boolean[WINDOW_SIZE];
+        private int calls;
+        private int next;
+
+        private CircuitState state = CircuitState.CLOSED;
+        private int consecutiveFailures;
+        private long openUntil;
+        private boolean trialInFlight;
+
+        private final Timer successTimer;
+        private final Timer failureTimer;
+
+        Provider(String name, LLMService service, int preference, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.service = service;
+            this.preference = preference;
+            this.successTimer = Timer.builder("docqry.llm.provider.latency")
+                    .tag("provider", name)
+                    .tag("outcome", "success")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.failureTimer = Timer.builder("docqry.llm.provider.latency")
+                    .tag("provider", name)
+                    .tag("outcome", "failure")
+                    .register(meterRegistry);
+            Gauge.builder("docqry.llm.provider.circuit.open", this, provider -> provider.state == CircuitState.CLOSED ? 0 : 1)
+                    .tag("provider", name)
+                    .description("1 while the provider's circuit breaker is open or half open")
+                    .register(meterRegistry);
+        }
+
+        boolean isAvailable(long now) {
+            lock.lock();
+            try {
+                return switch (state) {
+                    case CLOSED -> true;
+                    case OPEN -> now >= openUntil;
+                    case HALF_OPEN -> !trialInFlight;
+                };
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Claims permission to call the provider, letting a single trial call through once an open circuit has cooled down.
+         */
+        boolean tryAcquire() {
+            lock.lock();
+            try {
+                if (state == CircuitState.CLOSED) {
+                    return true;
+                }
+                if (state == CircuitState.OPEN && System.currentTimeMillis() >= openUntil) {
+                    state = CircuitState.HALF_OPEN;
+                }
+                if (state == CircuitState.HALF_OPEN && !trialInFlight) {
+                    trialInFlight = true;
+                    return true;
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordSuccess(long nanos) {
+            successTimer.record(nanos, TimeUnit.NANOSECONDS);
+            lock.lock();
+            try {
+                record(nanos, false);
+                consecutiveFailures = 0;
+                trialInFlight = false;
+                if (state != CircuitState.CLOSED) {
+                    log.info("LLM provider {} recovered, closing its circuit", name);
+                    state = CircuitState.CLOSED;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void recordFailure(long nanos) {
+            failureTimer.record(nanos, TimeUnit.NANOSECONDS);
+            lock.lock();
+            try {
+                record(nanos, true);
+                consecutiveFailures++;
+                trialInFlight = false;
+                boolean trip = state == CircuitState.HALF_OPEN
+                        || consecutiveFailures >= failureThreshold
+                        || (calls >= MIN_CALLS_FOR_ERROR_RATE && errorRate() >= errorRateThreshold);
+                if (trip && state != CircuitState.OPEN) {
+                    log.warn("Opening circuit for LLM provider {} for {} ms", name, openDurationMillis);
+                }
+                if (trip) {
+                    state = CircuitState.OPEN;
+                    openUntil = System.currentTimeMillis() + openDurationMillis;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void releaseTrial() {
+            lock.lock();
+            try {
+                trialInFlight = false;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * @return The median successful latency inflated by the error rate, 0 for a provider never called,
+         * and {@link Long#MAX_VALUE} for one that has only failed so far.
+         */
+        long expectedLatencyNanos() {
+            double errorRate;
+            lock.lock();
+            try {
+                if (calls == 0) {
+                    return 0;
+                }
+                errorRate = errorRate();
+            } finally {
+                lock.unlock();
+            }
+            if (errorRate >= 1.0) {
+                return Long.MAX_VALUE;
+            }
+            return (long) (latencyPercentileNanos(0.5) / (1.0 - errorRate));
+        }
+
+        /**
+         * @return The given percentile of successful call latencies in the window, or 0 if there are none yet.
+         */
+        long latencyPercentileNanos(double percentile) {
+            long[] samples;
+            lock.lock();
+            try {
+                samples = new long[calls];
+                int count = 0;
+                for (int i = 0; i < calls; i++) {
+                    if (!failed[i]) {
+                        samples[count++] = latencies[i];
+                    }
+                }
+                samples = Arrays.copyOf(samples, count);
+            } finally {
+                lock.unlock();
+            }
+            if (samples.length == 0) {
+                return 0;
+            }
+            Arrays.sort(samples);
+            int index = (int) Math.ceil(percentile * samples.length) - 1;
+            return samples[Math.max(0, index)];
+        }
+
+        private void record(long nanos, boolean failure) {
+            latencies[next] = nanos;
+            failed[next] = failure;
+            next = (next + 1) % WINDOW_SIZE;
+            calls = Math.min(calls + 1, WINDOW_SIZE);
+        }
+
+        private double errorRate() {
+            int failures = 0;
+            for (int i = 0; i < calls; i++) {
+                if (failed[i]) {
+                    failures++;
+                }
+            }
+            return calls == 0 ? 0 : (double) failures / calls;
+        }
+    }
+}
@@ -3,9 +3,24 @@ package com.docqry.backend.services;
 import com.docqry.backend.exceptions.LLMCommunicationException;
 import org.springframework.stereotype.Service;
 
+import java.util.function.Consumer;
+
 @Service
 public interface LLMService {
     String getLLMResponse(String prompt) throws LLMCommunicationException;
+
+    /**
+     * Streams the response for the given prompt, handing every text fragment to {@code onToken}
+     * as soon as the provider emits it. Providers without a streaming endpoint fall back to
+     * delivering the whole answer as a single fragment.
+     *
+     * @param prompt  The sanitized prompt to send to the LLM.
+     * @param onToken Callback receiving the generated text fragments in order.
+     */
+    default void streamLLMResponse(String prompt, Consumer<String> onToken) throws LLMCommunicationException {
+        onToken.accept(getLLMResponse(prompt));
+    }
+
     default String sanitizePrompt(String prompt) {
         if (prompt == null) return "";
         // Remove control characters
@@ -0,0 +1,222 @@
+package com.docqry.backend.services;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * {@link PythonServiceClient} that needs neither Python nor the network, for load tests and offline profiling.
+ * Embeddings are deterministic feature-hashed bags of words: every token is hashed to a dimension and a sign,
+ * and the vector is L2-normalized, so texts sharing words land close together. Summaries are extractive.
+ * An optional simulated latency per call stands in for the model's service time.
+ * <p>
+ * Enabled with {@code embedding.provider=local}.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "embedding.provider", havingValue = "local")
+public class LocalEmbeddingServiceClient implements PythonServiceClient {
+
+    private final Logger log = LoggerFactory.getLogger(LocalEmbeddingServiceClient.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?])\\s+");
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "have", "in", "is", "it",
+            "its", "of", "on", "or", "that", "the", "this", "to", "was", "were", "which", "with");
+
+    // Number of chunks a query-focused summary is built from, as the Python service does with top_k
+    private static final int SUMMARY_TOP_K = 5;
+    private static final int OVERVIEW_CHUNK_COUNT = 5;
+    private static final int KEY_TOPIC_COUNT = 5;
+
+    private final HashFunction hashFunction = Hashing.murmur3_32_fixed();
+    private final int dimension;
+    private final Duration embeddingLatency;
+    private final Duration summaryLatency;
+
+    public LocalEmbeddingServiceClient(
+            @Value("${embedding.local.dimension:1024}") int dimension,
+            @Value("${embedding.local.embedding-latency:PT0S}") Duration embeddingLatency,
+            @Value("${embedding.local.summary-latency:PT0S}") Duration summaryLatency) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Embedding dimension must be greater than 0.");
+        }
+        this.dimension = dimension;
+        this.embeddingLatency = embeddingLatency;
+        this.summaryLatency = summaryLatency;
+        log.info("Using local {}-dimensional hashed embeddings, embedding latency {}, summary latency {}",
+                dimension, embeddingLatency, summaryLatency);
+    }
+
+    @Override
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        simulateLatency(embeddingLatency);
+        List<float[]> embeddings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            embeddings.add(embed(text));
+        }
+        return embeddings;
+    }
+
+    @Override
+    public float[] generateQueryVector(String queryText) {
+        simulateLatency(embeddingLatency);
+        return embed(queryText);
+    }
+
+    @Override
+    public PythonServiceClientImpl.SummarizationResponse summarizeText(String query, List<String> relevantChunks, List<Float> chunkScores) {
+        simulateLatency(summaryLatency);
+        float[] scores = new float[relevantChunks.size()];
+        List<Integer> ranked;
+        if (chunkScores != null) {
+            // Ranked by the caller already, keep its order
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = i < chunkScores.size() ? chunkScores.get(i) : 0f;
+            }
+            ranked = IntStream.range(0, relevantChunks.size()).boxed().toList();
+        } else {
+            float[] queryVector = embed(query);
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = dot(queryVector, embed(relevantChunks.get(i)));
+            }
+            ranked = IntStream.range(0, relevantChunks.size())
+                    .boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) -> scores[i]).reversed())
+                    .limit(SUMMARY_TOP_K)
+                    .toList();
+        }
+
+        List<String> rankedChunks = new ArrayList<>(ranked.size());
+        List<Float> rankedScores = new ArrayList<>(ranked.size());
+        StringBuilder summary = new StringBuilder();
+        for (int index : ranked) {
+            String chunk = relevantChunks.get(index);
+            rankedChunks.add(chunk);
+            rankedScores.add(scores[index]);
+            appendSentence(summary, firstSentence(chunk));
+        }
+
+        PythonServiceClientImpl.SummarizationResponse response = new PythonServiceClientImpl.SummarizationResponse();
+        response.setSummary(summary.toString());
+        response.setRankedChunks(rankedChunks);
+        response.setChunkScores(rankedScores);
+        return response;
+    }
+
+    @Override
+    public PythonServiceClientImpl.InitialSummarizationResponse summarizeInitialChunks(List<String> initialChunks) {
+        simulateLatency(summaryLatency);
+        List<String> selectedChunks = initialChunks.stream().limit(OVERVIEW_CHUNK_COUNT).toList();
+
+        StringBuilder overview = new StringBuilder();
+        Map<String, Integer> termCounts = new HashMap<>();
+        for (String chunk : selectedChunks) {
+            appendSentence(overview, firstSentence(chunk));
+            for (String token : tokenize(chunk)) {
+                if (token.length() > 2 && !STOP_WORDS.contains(token)) {
+                    termCounts.merge(token, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<String> keyTopics = termCounts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(KEY_TOPIC_COUNT)
+                .map(Map.Entry::getKey)
+                .toList();
+
+        PythonServiceClientImpl.InitialSummarizationResponse response = new PythonServiceClientImpl.InitialSummarizationResponse();
+        response.setOverviewSummary(overview.toString());
+        response.setKeyTopics(keyTopics);
+        response.setSelectedChunks(selectedChunks);
+        return response;
+    }
+
+    /**
+     * Hashes each token to one dimension, with the top hash bit choosing the sign so collisions tend to cancel
+     * out instead of piling up, then L2-normalizes to match the normalized embeddings of the real model.
+     */
+    float[] embed(String text) {
+        float[] vector = new float[dimension];
+        for (String token : tokenize(text)) {
+            int hash = hashFunction.hashString(token, StandardCharsets.UTF_8).asInt();
+            int index = Math.floorMod(hash, dimension);
+            vector[index] += (hash & 0x8000_0000) == 0 ? 1f : -1f;
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return TOKEN_SEPARATOR.splitAsStream(text.toLowerCase(Locale.ROOT))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static String firstSentence(String chunk) {
+        String trimmed = chunk.strip();
+        return SENTENCE_END.split(trimmed, 2)[0];
+    }
+
+    private static void appendSentence(StringBuilder text, String sentence) {
+        if (sentence.isEmpty()) {
+            return;
+        }
+        if (!text.isEmpty()) {
+            text.append(' ');
+        }
+        text.append(sentence);
+    }
+
+    private static void simulateLatency(Duration latency) {
+        if (latency.isZero() || latency.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating embedding service latency", e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.repositories.ChunkView;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Keeps the embeddings in Postgres with the pgvector extension, in a {@code chunk_embedding} table next to the
+ * chunks. A search joins the chunk rows in the same query, so the hits come back with their text and no second
+ * round trip is needed. Small deployments can run without Qdrant this way.
+ * <p>
+ * The table is searched through an HNSW index by default, or an IVFFlat one ({@code vector-store.pgvector.index}),
+ * both on inner product to rank like the Qdrant collection's dot product distance. Enabled with
+ * {@code vector-store.provider=pgvector}.
+ */
+@Service
+@ConditionalOnProperty(name = "vector-store.provider", havingValue = "pgvector")
+public class PgVectorStore implements VectorStore {
+
+    Logger log = LoggerFactory.getLogger(PgVectorStore.class);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final PipelineMetrics pipelineMetrics;
+    private final int dimension;
+    private final String index;
+    private final int hnswM;
+    private final int hnswEfConstruction;
+    private final int ivfflatLists;
+
+    public PgVectorStore(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            PipelineMetrics pipelineMetrics,
+            @Value("${vector-store.pgvector.dimension:1024}") int dimension,
+            @Value("${vector-store.pgvector.index:hnsw}") String index,
+            @Value("${vector-store.pgvector.hnsw.m:16}") int hnswM,
+            @Value("${vector-store.pgvector.hnsw.ef-construction:64}") int hnswEfConstruction,
+            @Value("${vector-store.pgvector.ivfflat.lists:100}") int ivfflatLists) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.pipelineMetrics = pipelineMetrics;
+        this.dimension = dimension;
+        this.index = index.toLowerCase(Locale.ROOT);
+        this.hnswM = hnswM;
+        this.hnswEfConstruction = hnswEfConstruction;
+        this.ivfflatLists = ivfflatLists;
+    }
+
+    @PostConstruct
+    public void createSchema() {
+        var jdbc = jdbcTemplate.getJdbcOperations();
+        jdbc.execute("CREATE EXTENSION IF NOT EXISTS vector");
+        jdbc.execute("""
+                CREATE TABLE IF NOT EXISTS chunk_embedding (
+                    chunk_id varchar(255) PRIMARY KEY,
+                    doc_id varchar(255) NOT NULL,
+                    chunk_index integer NOT NULL,
+                    embedding vector(%d) NOT NULL
+                )""".formatted(dimension));
+        jdbc.execute("CREATE INDEX IF NOT EXISTS idx_chunk_embedding_doc_id ON chunk_embedding (doc_id)");
+        switch (index) {
+            case "hnsw" -> jdbc.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_chunk_embedding_hnsw ON chunk_embedding
+                    USING hnsw (embedding vector_ip_ops) WITH (m = %d, ef_construction = %d)"""
+                    .formatted(hnswM, hnswEfConstruction));
+            // IVFFlat picks its lists from the rows present, build it once the table holds a representative sample
+            case "ivfflat" -> jdbc.execute("""
+                    CREATE INDEX IF NOT EXISTS idx_chunk_embedding_ivfflat ON chunk_embedding
+                    USING ivfflat (embedding vector_ip_ops) WITH (lists = %d)""".formatted(ivfflatLists));
+            case "none" -> log.warn("No vector index on chunk_embedding, every search scans the whole table");
+            default -> throw new IllegalArgumentException("Unknown pgvector index type " + index);
+        }
+        log.info("pgvector store ready with a {} index over {} dimensions", index, dimension);
+    }
+
+    @Override
+    public void store(List<IndexedChunk> chunks) {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        SqlParameterSource[] rows = new SqlParameterSource[chunks.size()];
+        for (int i = 0; i < rows.length; i++) {
+            IndexedChunk chunk = chunks.get(i);
+            rows[i] = new MapSqlParameterSource()
+                    .addValue("chunkId", chunk.chunkId())
+                    .addValue("docId", chunk.docId())
+                    .addValue("chunkIndex", chunk.chunkIndex())
+                    .addValue("embedding", toLiteral(chunk.vector()));
+        }
+        pipelineMetrics.run(Stage.PGVECTOR_UPSERT, () -> jdbcTemplate.batchUpdate("""
+                INSERT INTO chunk_embedding (chunk_id, doc_id, chunk_index, embedding)
+                VALUES (:chunkId, :docId, :chunkIndex, CAST(:embedding AS vector))
+                ON CONFLICT (chunk_id) DO UPDATE SET embedding = EXCLUDED.embedding, chunk_index = EXCLUDED.chunk_index
+                """, rows));
+    }
+
+    @Override
+    public List<ScoredChunk> search(String documentId, float[] queryVector, int topK, boolean withVectors) {
+        if (queryVector == null || queryVector.length == 0) {
+            throw new IllegalArgumentException("Query vector cannot be null or empty.");
+        }
+        if (topK <= 0) {
+            throw new IllegalArgumentException("TopK must be greater than 0.");
+        }
+        // <#> is the negated inner product, ascending order ranks the most similar first.
+        // Embeddings of tombstoned documents are skipped until the cleanup worker deletes them.
+        // One document's embeddings can be read through the doc_id index and ranked exactly, where an approximate
+        // index scan filtered afterwards could return fewer than topK.
+        String sql = """
+                SELECT e.chunk_id, e.doc_id, -(e.embedding <#> CAST(:query AS vector)) AS score,
+                       %s AS vector, c.chunk_index, c.chunk_text, c.compressed_text, c.start_sentence, c.end_sentence
+                FROM chunk_embedding e
+                JOIN document d ON d.id = e.doc_id AND d.deleted_at IS NULL
+                LEFT JOIN document_chunk c ON c.id = e.chunk_id
+                %s
+                ORDER BY e.embedding <#> CAST(:query AS vector)
+                LIMIT :topK
+                """.formatted(withVectors ? "e.embedding::text" : "NULL", documentId == null ? "" : "WHERE e.doc_id = :docId");
+        var parameters = new MapSqlParameterSource()
+                .addValue("query", toLiteral(queryVector))
+                .addValue("docId", documentId)
+                .addValue("topK", topK);
+        return pipelineMetrics.time(Stage.PGVECTOR_SEARCH, () -> jdbcTemplate.query(sql, parameters, (row, rowNum) -> {
+            String chunkId = row.getString("chunk_id");
+            String vector = row.getString("vector");
+            // A chunk row can be gone while its document is being purged, the hit then carries no chunk
+            ChunkView chunk = row.getObject("chunk_index") == null ? null : new ChunkView(
+                    chunkId,
+                    row.getInt("chunk_index"),
+                    row.getString("chunk_text"),
+                    row.getBytes("compressed_text"),
+                    (Integer) row.getObject("start_sentence"),
+                    (Integer) row.getObject("end_sentence"));
+            return new ScoredChunk(chunkId, row.getFloat("score"), row.getString("doc_id"), chunkId,
+                    vector == null ? null : parseVector(vector), chunk);
+        }));
+    }
+
+    @Override
+    public void deleteByDocumentIds(List<String> documentIds) {
+        if (!documentIds.isEmpty()) {
+            jdbcTemplate.update("DELETE FROM chunk_embedding WHERE doc_id IN (:docIds)",
+                    new MapSqlParameterSource("docIds", documentIds));
+        }
+    }
+
+    // pgvector's text form, [0.1,0.2,...]; Float.toString round trips every float exactly
+    static String toLiteral(float[] vector) {
+        StringBuilder literal = new StringBuilder(vector.length * 12 + 2).append('[');
+        for (int i = 0; i < vector.length; i++) {
+            if (i > 0) {
+                literal.append(',');
+            }
+            literal.append(vector[i]);
+        }
+        return literal.append(']').toString();
+    }
+
+    static float[] parseVector(String literal) {
+        String body = literal.substring(1, literal.length() - 1);
+        if (body.isEmpty()) {
+            return new float[0];
+        }
+        float[] vector = new float[(int) body.chars().filter(c -> c == ',').count() + 1];
+        int start = 0;
+        for (int i = 0; i < vector.length; i++) {
+            int end = body.indexOf(',', start);
+            vector[i] = Float.parseFloat(body.substring(start, end < 0 ? body.length() : end));
+            start = end + 1;
+        }
+        return vector;
+    }
+}
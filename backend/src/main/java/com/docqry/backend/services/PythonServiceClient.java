@@ -23,7 +23,18 @@ public interface PythonServiceClient {
      * @param relevantChunks List of relevant text chunks
      * @return SummarizationResponse containing the summary and ranked chunks
      */
-    PythonServiceClientImpl.SummarizationResponse summarizeText(String query, List<String> relevantChunks);
+    default PythonServiceClientImpl.SummarizationResponse summarizeText(String query, List<String> relevantChunks) {
+        return summarizeText(query, relevantChunks, null);
+    }
+
+    /**
+     * Generate a query-focused summary from chunks the backend has already ranked
+     * @param query The user's query
+     * @param rankedChunks Text chunks, the most relevant first
+     * @param chunkScores Relevance scores of the chunks, or null to have the summarizer rank the chunks itself
+     * @return SummarizationResponse containing the summary and the chunks it was built from
+     */
+    PythonServiceClientImpl.SummarizationResponse summarizeText(String query, List<String> rankedChunks, List<Float> chunkScores);
 
     /**
      * Generate an initial summary of the document
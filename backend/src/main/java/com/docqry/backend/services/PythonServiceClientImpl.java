@@ -1,9 +1,16 @@
 package com.docqry.backend.services;
 
+import com.docqry.backend.observability.jfr.EmbeddingCallEvent;
+import com.docqry.backend.observability.jfr.SummarizationCallEvent;
+import com.fasterxml.jackson.core.JsonParser;
+import com.google.common.io.CountingInputStream;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
@@ -18,12 +25,18 @@ import java.util.Map;
 public class PythonServiceClientImpl implements PythonServiceClient {
 
     private final Logger log = LoggerFactory.getLogger(PythonServiceClientImpl.class);
-    private final RestTemplate restTemplate;
+    private final RestTemplate pythonServiceRestTemplate;
+    private final ObjectMapper objectMapper;
 
-    private static final String BASE_URL = "http://embedding-service:8000";
-    private static final String EMBEDDING_ENDPOINT = BASE_URL + "/generate-embeddings";
-    private static final String SUMMARIZE_ENDPOINT = BASE_URL + "/summarize";
-    private static final String INITIAL_SUMMARY_ENDPOINT = BASE_URL + "/initial-summary";
+    private static final String EMBEDDING_ENDPOINT = "/generate-embeddings";
+    private static final String SUMMARIZE_ENDPOINT = "/summarize";
+    private static final String INITIAL_SUMMARY_ENDPOINT = "/initial-summary";
+
+    @Value("${fastapi.base.url:http://embedding-service:8000}")
+    private String baseUrl;
+
+    @Value("${summarizer.model:mistral-medium}")
+    private String summarizerModel;
 
     @Data
     public static class SummarizationResponse {
@@ -41,14 +54,35 @@ public class PythonServiceClientImpl implements PythonServiceClient {
 
     @Override
     public List<float[]> generateEmbeddings(List<String> texts) {
+        EmbeddingCallEvent callEvent = new EmbeddingCallEvent();
+        callEvent.begin();
         EmbeddingRequest request = new EmbeddingRequest(texts);
-        EmbeddingResponse response = restTemplate.postForObject(
-                EMBEDDING_ENDPOINT,
-                request,
-                EmbeddingResponse.class
+        long[] responseBytes = new long[1];
+        // Decode the vectors while the body streams in instead of binding an intermediate response object
+        List<float[]> embeddings = pythonServiceRestTemplate.execute(
+                baseUrl + EMBEDDING_ENDPOINT,
+                HttpMethod.POST,
+                pythonServiceRestTemplate.httpEntityCallback(request),
+                response -> {
+                    CountingInputStream body = new CountingInputStream(response.getBody());
+                    try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                        return EmbeddingJsonReader.readEmbeddings(parser);
+                    } finally {
+                        responseBytes[0] = body.getCount();
+                    }
+                }
         );
-        if (response == null) throw new AssertionError();
-        return response.getEmbeddings();
+        if (embeddings == null) throw new AssertionError();
+
+        if (callEvent.shouldCommit()) {
+            callEvent.textCount = texts.size();
+            callEvent.requestChars = totalLength(texts);
+            callEvent.responseBytes = responseBytes[0];
+            callEvent.vectorCount = embeddings.size();
+            callEvent.dimension = embeddings.isEmpty() ? 0 : embeddings.getFirst().length;
+            callEvent.commit();
+        }
+        return embeddings;
     }
 
     @Override
@@ -64,16 +98,24 @@ public class PythonServiceClientImpl implements PythonServiceClient {
     }
 
     @Override
-    public SummarizationResponse summarizeText(String query, List<String> relevantChunks) {
+    public SummarizationResponse summarizeText(String query, List<String> relevantChunks, List<Float> chunkScores) {
+        SummarizationCallEvent callEvent = new SummarizationCallEvent();
+        callEvent.begin();
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("query", query);
         requestBody.put("chunks", relevantChunks);
         requestBody.put("max_tokens", 1024);  // Configurable based on Gemini's constraints
-        requestBody.put("top_k", 5);          // Number of chunks to use for summary
+        if (chunkScores != null) {
+            // Already ranked and trimmed, the summarizer uses them as they are instead of embedding them again
+            requestBody.put("chunk_scores", chunkScores);
+            requestBody.put("top_k", Math.max(1, relevantChunks.size()));
+        } else {
+            requestBody.put("top_k", 5);      // Number of chunks to use for summary
+        }
 
         log.debug("Sending request to Python server for summarizing text with query: {}", query);
-        ResponseEntity<Map> response = restTemplate.postForEntity(
-                SUMMARIZE_ENDPOINT,
+        ResponseEntity<Map> response = pythonServiceRestTemplate.postForEntity(
+                baseUrl + SUMMARIZE_ENDPOINT,
                 requestBody,
                 Map.class
         );
@@ -94,14 +136,15 @@ public class PythonServiceClientImpl implements PythonServiceClient {
 
             Object chunkScoresObj = response.getBody().get("chunk_scores");
             if (chunkScoresObj instanceof List<?> chunkScoresList) {
-                List<Float> chunkScores = chunkScoresList.stream()
+                List<Float> rankedScores = chunkScoresList.stream()
                         .filter(Number.class::isInstance)
                         .map(num -> ((Number) num).floatValue())
                         .toList();
-                summarizationResponse.setChunkScores(chunkScores);
-                log.debug("Chunk relevance scores: {}", chunkScores);
+                summarizationResponse.setChunkScores(rankedScores);
+                log.debug("Chunk relevance scores: {}", rankedScores);
             }
 
+            commit(callEvent, SUMMARIZE_ENDPOINT, relevantChunks, query.length(), summarizationResponse.getSummary());
             return summarizationResponse;
         } else {
             throw new RuntimeException("Failed to summarize text");
@@ -110,14 +153,17 @@ public class PythonServiceClientImpl implements PythonServiceClient {
 
     @Override
     public InitialSummarizationResponse summarizeInitialChunks(List<String> initialChunks) {
+        SummarizationCallEvent callEvent = new SummarizationCallEvent();
+        callEvent.begin();
         Map<String, Object> requestBody = new HashMap<>();
         requestBody.put("chunks", initialChunks);
         requestBody.put("max_tokens", 1024);
         requestBody.put("chunk_count", 5);    // Number of representative chunks to use
+        requestBody.put("model", summarizerModel);
 
         log.debug("Sending request to Python server for initial document summarization");
-        ResponseEntity<Map> response = restTemplate.postForEntity(
-                INITIAL_SUMMARY_ENDPOINT,
+        ResponseEntity<Map> response = pythonServiceRestTemplate.postForEntity(
+                baseUrl + INITIAL_SUMMARY_ENDPOINT,
                 requestBody,
                 Map.class
         );
@@ -148,20 +194,34 @@ public class PythonServiceClientImpl implements PythonServiceClient {
             log.debug("Generated initial summary with {} key topics",
                     summaryResponse.getKeyTopics() != null ? summaryResponse.getKeyTopics().size() : 0);
 
+            commit(callEvent, INITIAL_SUMMARY_ENDPOINT, initialChunks, 0, summaryResponse.getOverviewSummary());
             return summaryResponse;
         } else {
             throw new RuntimeException("Failed to generate initial summary");
         }
     }
 
-    // Helper classes for embedding requests/responses
-    @Data
-    private static class EmbeddingRequest {
-        private final List<String> texts;
+    private static void commit(SummarizationCallEvent callEvent, String endpoint, List<String> chunks, int extraChars, String summary) {
+        if (callEvent.shouldCommit()) {
+            callEvent.endpoint = endpoint;
+            callEvent.chunkCount = chunks.size();
+            callEvent.requestChars = totalLength(chunks) + extraChars;
+            callEvent.summaryChars = summary == null ? 0 : summary.length();
+            callEvent.commit();
+        }
     }
 
+    private static long totalLength(List<String> texts) {
+        long length = 0;
+        for (String text : texts) {
+            length += text.length();
+        }
+        return length;
+    }
+
+    // Helper class for embedding requests
     @Data
-    private static class EmbeddingResponse {
-        private List<float[]> embeddings;
+    private static class EmbeddingRequest {
+        private final List<String> texts;
     }
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.docqry.backend.services;
 
 import com.docqry.backend.config.QdrantConfig;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import com.docqry.backend.observability.jfr.QdrantOperationEvent;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.qdrant.client.QdrantClient;
 import io.qdrant.client.QdrantGrpcClient;
@@ -14,78 +17,110 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.stream.IntStream;
 
 import static io.qdrant.client.ConditionFactory.matchKeyword;
+import static io.qdrant.client.ConditionFactory.matchKeywords;
 import static io.qdrant.client.PointIdFactory.id;
-import static io.qdrant.client.QueryFactory.nearest;
 import static io.qdrant.client.ValueFactory.value;
-import static io.qdrant.client.VectorsFactory.vectors;
 
+/**
+ * The Qdrant {@link VectorStore}, and the default one. Enabled with {@code vector-store.provider=qdrant}.
+ */
 @Service
 @RequiredArgsConstructor
-public class QdrantService {
+@ConditionalOnProperty(name = "vector-store.provider", havingValue = "qdrant", matchIfMissing = true)
+public class QdrantService implements VectorStore {
 
     private final QdrantClient qdrantClient;
-    private final RestTemplate restTemplate;
-
 
     private final PythonServiceClient pythonServiceClient;
 
     private final QdrantConfig qdrantConfig;
 
+    private final PipelineMetrics pipelineMetrics;
+
     Logger log = LoggerFactory.getLogger(QdrantService.class);
 
+    // Collection the chunks are written to and deleted from
+    private static final String COLLECTION = "documents";
+
     @Autowired
-    public QdrantService(RestTemplate restTemplate, PythonServiceClient pythonServiceClient, QdrantConfig qdrantConfig) {
-        this.restTemplate = restTemplate;
+    public QdrantService(PythonServiceClient pythonServiceClient, QdrantConfig qdrantConfig, PipelineMetrics pipelineMetrics) {
         this.pythonServiceClient = pythonServiceClient;
         this.qdrantConfig = qdrantConfig;
+        this.pipelineMetrics = pipelineMetrics;
         this.qdrantClient = new QdrantClient(QdrantGrpcClient.newBuilder("qdrant", 6334, false).build());
     }
 
+    @Override
+    public void store(List<IndexedChunk> chunks) throws ExecutionException, InterruptedException {
+        storeEmbeddings(COLLECTION, chunks);
+    }
+
+    @Override
+    public List<ScoredChunk> search(String documentId, float[] queryVector, int topK, boolean withVectors)
+            throws ExecutionException, InterruptedException {
+        return toScoredChunks(retrieveEmbeddings(qdrantConfig.getCollectionName(), documentId, queryVector, topK, withVectors));
+    }
+
+    @Override
+    public void deleteByDocumentIds(List<String> documentIds) throws ExecutionException, InterruptedException {
+        deleteVectorEmbeddingsByFilter(COLLECTION, "docId", documentIds);
+    }
+
     /**
-     * Stores an embedding in Qdrant along with metadata.
+     * Stores embeddings in Qdrant along with metadata, in one upsert whatever documents they belong to.
      *
      * @param collectionName The name of the Qdrant collection.
-     * @param embeddings     The list of embedding vectors to store.
-     * @param docId          The ID of the document the chunk belongs to.
-     * @param chunkIds       The IDs of specific chunks.
+     * @param chunks         The embeddings to store with the ids of their documents and chunks.
      */
-    public void storeEmbeddings(String collectionName, List<float[]> embeddings, String docId, List<String> chunkIds)
+    public void storeEmbeddings(String collectionName, List<IndexedChunk> chunks)
             throws ExecutionException, InterruptedException {
+        if (chunks.isEmpty()) {
+            return;
+        }
+        QdrantOperationEvent upsertEvent = new QdrantOperationEvent();
+        upsertEvent.begin();
 
-        System.out.println(qdrantConfig.getQdrantUrl());
         // Check and create collection if necessary
         if (!qdrantClient.collectionExistsAsync(collectionName).get()) {
-            System.out.println();
-            int vectorDimension = embeddings.get(0).length;
+            int vectorDimension = chunks.getFirst().vector().length;
             createNewCollection(collectionName, vectorDimension);
         }
 
         // Prepare point structures
-        List<PointStruct> points = new ArrayList<>();
-        for (int i = 0; i < embeddings.size(); i++) {
+        List<PointStruct> points = new ArrayList<>(chunks.size());
+        for (IndexedChunk chunk : chunks) {
             PointStruct point = PointStruct.newBuilder()
-                    .setId(id(UUID.fromString(chunkIds.get(i))))
-                    .setVectors(vectors(toFloatList(embeddings.get(i))))
+                    .setId(id(UUID.fromString(chunk.chunkId())))
+                    .setVectors(Points.Vectors.newBuilder().setVector(toVector(chunk.vector())))
                     .putAllPayload(Map.of(
-                            "docId", value(docId),
-                            "chunkId", value(chunkIds.get(i)),
-                            "chunkIndex", value(i)  // Adding chunk index metadata
+                            "docId", value(chunk.docId()),
+                            "chunkId", value(chunk.chunkId()),
+                            "chunkIndex", value(chunk.chunkIndex())  // Adding chunk index metadata
                     ))
                     .build();
             points.add(point);
         }
         // Batch upsert points to Qdrant
-        qdrantClient.upsertAsync(collectionName, points).get();
+        pipelineMetrics.await(Stage.QDRANT_UPSERT, () -> qdrantClient.upsertAsync(collectionName, points));
+
+        if (upsertEvent.shouldCommit()) {
+            long documents = chunks.stream().map(IndexedChunk::docId).distinct().count();
+            upsertEvent.operation = "upsert";
+            upsertEvent.collection = collectionName;
+            upsertEvent.documentId = documents == 1 ? chunks.getFirst().docId() : documents + " documents";
+            upsertEvent.pointCount = points.size();
+            upsertEvent.dimension = chunks.getFirst().vector().length;
+            upsertEvent.commit();
+        }
     }
 
     /**
@@ -95,8 +130,10 @@ public class QdrantService {
      * data and payload information in the results.
      *
      * @param collectionName The name of the Qdrant collection to search in. Must not be null or empty.
+     * @param documentId     Only points of this document are searched, every point when null.
      * @param queryVector    The query vector to use for similarity search. Must not be null or empty.
      * @param topK           The number of top similar points to retrieve. Must be greater than 0.
+     * @param withVectors    Whether Qdrant should send back the stored vectors of the hits.
      * @return A list of ScoredPoint objects representing the most similar points found,
      * ordered by similarity (highest similarity first). Each ScoredPoint includes
      * the point's ID, similarity score, payload, and vector data.
@@ -106,8 +143,10 @@ public class QdrantService {
      */
     public List<Points.ScoredPoint> retrieveEmbeddings(
             String collectionName,
+            String documentId,
             float[] queryVector,
-            int topK) throws ExecutionException, InterruptedException {
+            int topK,
+            boolean withVectors) throws ExecutionException, InterruptedException {
 
         // Validate inputs
         if (collectionName == null || collectionName.isBlank()) {
@@ -120,25 +159,39 @@ public class QdrantService {
             throw new IllegalArgumentException("TopK must be greater than 0.");
         }
 
-        // Convert query vector to List<Float>
-        List<Float> queryVectorList = toFloatList(queryVector);
+        QdrantOperationEvent searchEvent = new QdrantOperationEvent();
+        searchEvent.begin();
 
-        // Build the query
-        Points.QueryPoints query = Points.QueryPoints.newBuilder()
+        // Build the query, writing the vector straight into the repeated float field
+        Points.QueryPoints.Builder query = Points.QueryPoints.newBuilder()
                 .setCollectionName(collectionName)
                 .setLimit(topK)
-                .setQuery(nearest(queryVectorList))
+                .setQuery(Points.Query.newBuilder()
+                        .setNearest(Points.VectorInput.newBuilder().setDense(toDenseVector(queryVector))))
                 .setWithPayload(WithPayloadSelectorFactory.enable(true)) // Include payloads
-                .setWithVectors(WithVectorsSelectorFactory.enable(true)) // Include vectors
-                .build();
+                .setWithVectors(WithVectorsSelectorFactory.enable(withVectors));
+        if (documentId != null) {
+            // Filtered during the graph traversal, so the limit is filled with the document's own points
+            query.setFilter(Points.Filter.newBuilder().addMust(matchKeyword("docId", documentId)));
+        }
 
         // Log query details
         log.info("Querying Qdrant collection: {}", collectionName);
-        log.debug("Query vector: {}", queryVectorList);
+        log.debug("Query vector dimension: {}", queryVector.length);
         log.debug("TopK: {}", topK);
 
         // Execute the query
-        List<Points.ScoredPoint> results = qdrantClient.queryAsync(query).get();
+        List<Points.ScoredPoint> results = pipelineMetrics.await(Stage.QDRANT_SEARCH, () -> qdrantClient.queryAsync(query.build()));
+
+        if (searchEvent.shouldCommit()) {
+            searchEvent.operation = "search";
+            searchEvent.collection = collectionName;
+            searchEvent.pointCount = results.size();
+            searchEvent.dimension = queryVector.length;
+            searchEvent.topK = topK;
+            searchEvent.withVectors = withVectors;
+            searchEvent.commit();
+        }
 
         // Handle empty results
         if (results.isEmpty()) {
@@ -169,7 +222,7 @@ public class QdrantService {
                     .get(30, TimeUnit.SECONDS); // Add timeout
 
             if (!exists) {
-                System.out.println("Collection " + collectionName + " does not exist. Creating new collection...");
+                log.info("Collection {} does not exist. Creating new collection...", collectionName);
 
                 Collections.VectorParams params = Collections.VectorParams.newBuilder()
                         .setDistance(Collections.Distance.Dot)
@@ -181,16 +234,19 @@ public class QdrantService {
                         .get(30, TimeUnit.SECONDS);
 
                 if (created.getResult()) {
-                    System.out.println("Collection created successfully");
+                    log.info("Collection {} created successfully", collectionName);
                 } else {
-                    System.out.println("Failed to create collection");
+                    log.error("Failed to create collection {}", collectionName);
                 }
             } else {
-                System.out.println("Collection " + collectionName + " already exists");
+                log.info("Collection {} already exists", collectionName);
             }
+
+            // Searches filter on the document, a keyword index keeps the filtered search on the HNSW graph
+            qdrantClient.createPayloadIndexAsync(collectionName, "docId", Collections.PayloadSchemaType.Keyword,
+                    null, true, null, null).get(30, TimeUnit.SECONDS);
         } catch (InterruptedException | ExecutionException | TimeoutException e) {
-            System.err.println("Error creating/checking collection: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error creating/checking collection {}: {}", collectionName, e.getMessage(), e);
         }
     }
 
@@ -219,17 +275,37 @@ public class QdrantService {
 
             // Verify that the point exists
             if (searchResponse.resultNow().isEmpty()) {
-                System.err.println("Point with chunkId " + chunkId + " not found in collection " + collectionName);
+                log.warn("Point with chunkId {} not found in collection {}", chunkId, collectionName);
             } else {
-                System.out.println("Point with chunkId " + chunkId + " found in collection " + collectionName);
+                log.debug("Point with chunkId {} found in collection {}", chunkId, collectionName);
             }
         }
     }
 
-    private List<Float> toFloatList(float[] array) {
-        return IntStream.range(0, array.length)
-                .mapToObj(i -> array[i])
-                .toList();
+    // Protobuf keeps repeated floats in a primitive FloatList; adding one by one avoids boxing every element
+    static Points.Vector toVector(float[] array) {
+        Points.Vector.Builder builder = Points.Vector.newBuilder();
+        for (float value : array) {
+            builder.addData(value);
+        }
+        return builder.build();
+    }
+
+    static Points.DenseVector toDenseVector(float[] array) {
+        Points.DenseVector.Builder builder = Points.DenseVector.newBuilder();
+        for (float value : array) {
+            builder.addData(value);
+        }
+        return builder.build();
+    }
+
+    // Reads through getData(int), getDataList() would box each element on access
+    static float[] toFloatArray(Points.Vector vector) {
+        float[] array = new float[vector.getDataCount()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = vector.getData(i);
+        }
+        return array;
     }
 
     /**
@@ -245,10 +321,26 @@ public class QdrantService {
             int topK
     ) throws ExecutionException, InterruptedException {
         // Generate query vector using Python service
-        float[] queryVector = pythonServiceClient.generateQueryVector(queryText);
+        float[] queryVector = pipelineMetrics.time(Stage.EMBEDDING, () -> pythonServiceClient.generateQueryVector(queryText));
 
         // Retrieve embeddings from Qdrant
-        return retrieveEmbeddings(qdrantConfig.getCollectionName(), queryVector, topK);
+        return retrieveEmbeddings(qdrantConfig.getCollectionName(), null, queryVector, topK, true);
+    }
+
+    public List<ScoredChunk> toScoredChunks(List<Points.ScoredPoint> searchResults) {
+        List<ScoredChunk> chunks = new ArrayList<>(searchResults.size());
+        for (Points.ScoredPoint point : searchResults) {
+            Map<String, JsonWithInt.Value> payload = point.getPayloadMap();
+            chunks.add(new ScoredChunk(
+                    point.getId().getUuid(),
+                    point.getScore(),
+                    cleanStringValue(String.valueOf(payload.getOrDefault("docId", value("unknown")))),
+                    cleanStringValue(String.valueOf(payload.getOrDefault("chunkId", value("unknown")))),
+                    point.hasVectors() ? toFloatArray(point.getVectors().getVector()) : null,
+                    null
+            ));
+        }
+        return chunks;
     }
 
     // Method to delete points from the Qdrant vector store based on a filter
@@ -260,6 +352,12 @@ public class QdrantService {
         qdrantClient.deleteAsync(collectionName, filter).get();
     }
 
+    // Deletes the points matching any of the values in a single request
+    public void deleteVectorEmbeddingsByFilter(String collectionName, String filterField, List<String> filterValues) throws ExecutionException, InterruptedException {
+        Points.Filter filter = Points.Filter.newBuilder().addMust(matchKeywords(filterField, filterValues)).build();
+        qdrantClient.deleteAsync(collectionName, filter).get();
+    }
+
     public List<Map<String, Object>> prepareResponse(List<Points.ScoredPoint> searchResults) {
         List<Map<String, Object>> responseList = new ArrayList<>();
         for (Points.ScoredPoint point : searchResults) {
@@ -271,7 +369,7 @@ public class QdrantService {
             String chunkId = cleanStringValue(String.valueOf(payload.getOrDefault("chunkId", value("unknown"))));
 
             // Extract vector data
-            List<Float> vectorData = point.getVectors().getVector().getDataList();
+            float[] vectorData = toFloatArray(point.getVectors().getVector());
 
             result.put("id", point.getId().getUuid());
             result.put("score", point.getScore());
@@ -284,38 +382,6 @@ public class QdrantService {
         return responseList;
     }
 
-    // Helper method to process query results
-    public Map<String, Object> processQueryResponse(List<Points.ScoredPoint> searchResults) {
-        List<Map<String, Object>> responseList = new ArrayList<>();
-
-        for (Points.ScoredPoint point : searchResults) {
-            Map<String, Object> result = new HashMap<>();
-
-            // Extract payload data from the ScoredPoint
-            Map<String, JsonWithInt.Value> payload = point.getPayloadMap();
-            String docId = cleanStringValue(String.valueOf(payload.getOrDefault("docId", value("unknown"))));
-            String chunkId = cleanStringValue(String.valueOf(payload.getOrDefault("chunkId", value("unknown"))));
-
-            // Extract vector data (ensuring it's a simple list of floats)
-            List<Float> vectorData = new ArrayList<>(point.getVectors().getVector().getDataList());
-
-            // Prepare the result map with only serializable data
-            result.put("id", point.getId().getUuid());
-            result.put("score", point.getScore());
-            result.put("docId", docId);
-            result.put("chunkId", chunkId);
-            result.put("vectors", vectorData);
-
-            // Add the result to the response list
-            responseList.add(result);
-        }
-
-        // Return the prepared response
-        Map<String, Object> response = new HashMap<>();
-        response.put("results", responseList);
-        return response;
-    }
-
     // Helper method to clean up string values
     private String cleanStringValue(String rawValue) {
         // Remove "string_value: " and surrounding quotes
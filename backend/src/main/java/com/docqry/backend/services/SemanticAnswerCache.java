@@ -0,0 +1,240 @@
+package com.docqry.backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Caches LLM answers per document, keyed by the embedding of the question that produced them.
+ * A new question whose vector lies within the configured cosine similarity of a cached question
+ * for the same document is answered from the cache, skipping summarization and generation.
+ * The match is on the question alone: the chunks a new retrieval would pick and the conversation the
+ * answer was generated in are not compared, and answers only go stale through {@link #invalidate} or the TTL.
+ * <p>
+ * Each document owns a small flat vector index that is scanned brute force; with a few hundred
+ * entries per document that is cheaper than any approximate structure.
+ */
+@Service
+public class SemanticAnswerCache {
+
+    Logger log = LoggerFactory.getLogger(SemanticAnswerCache.class);
+
+    public record CachedAnswer(String answer, float similarity, long generationNanos) {
+    }
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final int maxEntriesPerDocument;
+    private final long ttlMillis;
+
+    private final Map<String, DocumentIndex> indexes = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer savedLatency;
+
+    public SemanticAnswerCache(
+            MeterRegistry meterRegistry,
+            @Value("${answer-cache.enabled:true}") boolean enabled,
+            @Value("${answer-cache.similarity-threshold:0.95}") double similarityThreshold,
+            @Value("${answer-cache.max-entries-per-document:256}") int maxEntriesPerDocument,
+            @Value("${answer-cache.ttl:PT6H}") Duration ttl) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.maxEntriesPerDocument = maxEntriesPerDocument;
+        this.ttlMillis = ttl.toMillis();
+
+        this.hits = Counter.builder("docqry.answer.cache.requests")
+                .tag("result", "hit")
+                .description("Questions answered from the semantic answer cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("docqry.answer.cache.requests")
+                .tag("result", "miss")
+                .description("Questions that needed a full summarize and LLM round trip")
+                .register(meterRegistry);
+        this.savedLatency = Timer.builder("docqry.answer.cache.saved.latency")
+                .description("Context building and LLM latency avoided by cache hits")
+                .register(meterRegistry);
+        Gauge.builder("docqry.answer.cache.hit.ratio", this, SemanticAnswerCache::hitRatio)
+                .description("Share of questions answered from the semantic answer cache")
+                .register(meterRegistry);
+        Gauge.builder("docqry.answer.cache.entries", this, SemanticAnswerCache::size)
+                .description("Answers currently held in the semantic answer cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Looks up an answer for a question on the given document.
+     *
+     * @param documentId  The document the question is asked against.
+     * @param queryVector The embedding of the question.
+     * @return The cached answer of the most similar question, if it is within the similarity threshold.
+     */
+    public Optional<CachedAnswer> lookup(String documentId, float[] queryVector) {
+        if (!enabled || documentId == null || queryVector == null) {
+            return Optional.empty();
+        }
+        DocumentIndex index = indexes.get(documentId);
+        Optional<CachedAnswer> answer = index == null
+                ? Optional.empty()
+                : index.nearest(queryVector, similarityThreshold, System.currentTimeMillis() - ttlMillis);
+
+        if (answer.isPresent()) {
+            hits.increment();
+            savedLatency.record(answer.get().generationNanos(), TimeUnit.NANOSECONDS);
+            log.debug("Answer cache hit for document {} with similarity {}", documentId, answer.get().similarity());
+        } else {
+            misses.increment();
+        }
+        return answer;
+    }
+
+    /**
+     * Stores the answer generated for a question.
+     *
+     * @param documentId      The document the question was asked against.
+     * @param queryVector     The embedding of the question.
+     * @param answer          The generated answer.
+     * @param generationNanos Time spent building the context and generating the answer.
+     */
+    public void put(String documentId, float[] queryVector, String answer, long generationNanos) {
+        if (!enabled || documentId == null || queryVector == null || answer == null || answer.isEmpty()) {
+            return;
+        }
+        indexes.computeIfAbsent(documentId, id -> new DocumentIndex(queryVector.length, maxEntriesPerDocument))
+                .add(queryVector, answer, generationNanos);
+    }
+
+    /**
+     * Drops every cached answer of a document, to be called whenever the document changes or is deleted.
+     */
+    public void invalidate(String documentId) {
+        if (documentId != null && indexes.remove(documentId) != null) {
+            log.debug("Invalidated cached answers for document {}", documentId);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private double size() {
+        return indexes.values().stream().mapToInt(DocumentIndex::size).sum();
+    }
+
+    /**
+     * Fixed capacity ring of normalized question vectors stored back to back in one primitive array.
+     */
+    private static final class DocumentIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final int dimension;
+        private final float[] vectors;
+        private final String[] answers;
+        private final long[] generationNanos;
+        private final long[] createdAt;
+        private int size;
+        private int next;
+
+        DocumentIndex(int dimension, int capacity) {
+            this.dimension = dimension;
+            this.vectors = new float[dimension * capacity];
+            this.answers = new String[capacity];
+            this.generationNanos = new long[capacity];
+            this.createdAt = new long[capacity];
+        }
+
+        Optional<CachedAnswer> nearest(float[] queryVector, double threshold, long notBefore) {
+            if (queryVector.length != dimension) {
+                return Optional.empty();
+            }
+            float[] query = normalize(queryVector);
+            lock.readLock().lock();
+            try {
+                int best = -1;
+                float bestScore = Float.NEGATIVE_INFINITY;
+                for (int slot = 0; slot < size; slot++) {
+                    if (createdAt[slot] < notBefore) {
+                        continue;
+                    }
+                    float score = dot(query, slot * dimension);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        best = slot;
+                    }
+                }
+                if (best < 0 || bestScore < threshold) {
+                    return Optional.empty();
+                }
+                return Optional.of(new CachedAnswer(answers[best], bestScore, generationNanos[best]));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void add(float[] queryVector, String answer, long nanos) {
+            if (queryVector.length != dimension) {
+                return;
+            }
+            float[] vector = normalize(queryVector);
+            lock.writeLock().lock();
+            try {
+                // Overwrite the oldest entry once the ring is full
+                int slot = next;
+                System.arraycopy(vector, 0, vectors, slot * dimension, dimension);
+                answers[slot] = answer;
+                generationNanos[slot] = nanos;
+                createdAt[slot] = System.currentTimeMillis();
+                next = (next + 1) % answers.length;
+                size = Math.min(size + 1, answers.length);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private float dot(float[] query, int offset) {
+            float sum = 0f;
+            for (int i = 0; i < dimension; i++) {
+                sum += query[i] * vectors[offset + i];
+            }
+            return sum;
+        }
+
+        private static float[] normalize(float[] vector) {
+            double norm = 0;
+            for (float v : vector) {
+                norm += v * v;
+            }
+            norm = Math.sqrt(norm);
+            float[] normalized = new float[vector.length];
+            if (norm == 0) {
+                return normalized;
+            }
+            for (int i = 0; i < vector.length; i++) {
+                normalized[i] = (float) (vector[i] / norm);
+            }
+            return normalized;
+        }
+    }
+}
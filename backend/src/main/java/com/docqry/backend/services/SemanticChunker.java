@@ -0,0 +1,194 @@
+package com.docqry.backend.services;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import opennlp.tools.sentdetect.SentenceDetectorME;
+import opennlp.tools.sentdetect.SentenceModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Splits text into chunks of whole sentences. The sentence model is loaded once, on first use, and shared
+ * since it is thread-safe; only the detector, which is not, is created per call.
+ */
+@Service
+public class SemanticChunker {
+
+    private final Supplier<SentenceModel> sentenceModel;
+
+    public SemanticChunker(@Value("${chunker.sentence-model-path:./models/en-sent.bin}") String sentenceModelPath) {
+        this.sentenceModel = Suppliers.memoize(() -> loadModel(sentenceModelPath));
+    }
+
+    /**
+     * A document split into sentences, with its chunks as ranges over them.
+     *
+     * @param sentences   The sentences of the document, stored once.
+     * @param chunkStarts The first sentence of each chunk.
+     * @param chunkEnds   The sentence after the last one of each chunk.
+     */
+    public record Segmentation(SentenceStream sentences, int[] chunkStarts, int[] chunkEnds) {
+
+        public int chunkCount() {
+            return chunkStarts.length;
+        }
+
+        public List<String> chunks() {
+            List<String> chunks = new ArrayList<>(chunkStarts.length);
+            for (int i = 0; i < chunkStarts.length; i++) {
+                chunks.add(sentences.chunk(chunkStarts[i], chunkEnds[i]));
+            }
+            return chunks;
+        }
+    }
+
+    /**
+     * @param text      The text to split.
+     * @param chunkSize The number of characters after which a new chunk is started.
+     * @param overlap   The number of preceding sentences repeated at the start of each new chunk.
+     * @return The chunks, in document order.
+     */
+    public List<String> splitTextIntoSemanticChunks(String text, int chunkSize, int overlap) {
+        return segment(text, chunkSize, overlap).chunks();
+    }
+
+    /**
+     * Same chunking as {@link #splitTextIntoSemanticChunks}, with each chunk kept as a range of sentences
+     * instead of a copy of their text.
+     */
+    public Segmentation segment(String text, int chunkSize, int overlap) {
+        Segmenter segmenter = segmenter(chunkSize, overlap);
+        segmenter.accept(text);
+        return segmenter.finish();
+    }
+
+    /**
+     * @return A segmenter to feed a document's text a section at a time, as it is extracted.
+     */
+    public Segmenter segmenter(int chunkSize, int overlap) {
+        return new Segmenter(new SentenceDetectorME(sentenceModel.get()), chunkSize, overlap);
+    }
+
+    /**
+     * Chunks text handed over in sections, such as the pages of a PDF, without ever holding the whole text: each
+     * section is split into sentences as it arrives and only the sentences are kept. A sentence running over the
+     * end of a section is carried into the next one, so a page break does not cut it in two. Fed the whole text
+     * at once, it chunks exactly like {@link #segment}.
+     */
+    public static final class Segmenter implements Consumer<String> {
+
+        // A section end without a sentence end is carried over, unless the carried text grows past this many chunks
+        private static final int MAX_CARRY_CHUNKS = 4;
+
+        private final SentenceDetectorME detector;
+        private final int chunkSize;
+        private final int overlap;
+        private final List<String> sentences = new ArrayList<>();
+        private final IntArrayList starts = new IntArrayList();
+        private final IntArrayList ends = new IntArrayList();
+        private int start;
+        // Length of the chunk's text so far, each sentence is followed by a space
+        private int length;
+        private String carried = "";
+
+        private Segmenter(SentenceDetectorME detector, int chunkSize, int overlap) {
+            this.detector = detector;
+            this.chunkSize = chunkSize;
+            this.overlap = overlap;
+        }
+
+        @Override
+        public void accept(String section) {
+            String[] detected = detector.sentDetect(carried.isEmpty() ? section : carried + " " + section);
+            carried = "";
+            int last = detected.length - 1;
+            for (int i = 0; i < last; i++) {
+                add(detected[i]);
+            }
+            if (last >= 0) {
+                if (endsSentence(detected[last]) || detected[last].length() > chunkSize * MAX_CARRY_CHUNKS) {
+                    add(detected[last]);
+                } else {
+                    carried = detected[last];
+                }
+            }
+        }
+
+        public Segmentation finish() {
+            if (!carried.isEmpty()) {
+                add(carried);
+                carried = "";
+            }
+            if (length > 0) {
+                starts.add(start);
+                ends.add(sentences.size());
+                length = 0;
+            }
+            return new Segmentation(SentenceStream.of(sentences.toArray(String[]::new)), starts.toArray(), ends.toArray());
+        }
+
+        private void add(String sentence) {
+            int i = sentences.size();
+            if (length + sentence.length() > chunkSize) {
+                starts.add(start);
+                ends.add(i);
+
+                // Add overlap by re-including the last few sentences
+                start = Math.max(0, i - overlap);
+                length = 0;
+                for (int j = start; j < i; j++) {
+                    length += sentences.get(j).length() + 1;
+                }
+            }
+            length += sentence.length() + 1;
+            sentences.add(sentence);
+        }
+
+        private static boolean endsSentence(String sentence) {
+            for (int i = sentence.length() - 1; i >= 0; i--) {
+                char c = sentence.charAt(i);
+                if (".!?\u2026".indexOf(c) >= 0) {
+                    return true;
+                }
+                // Closing quotes and brackets may follow the sentence end
+                if ("\"'\u201d\u2019)]".indexOf(c) < 0) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+
+    // Growable int array, the ranges of a large document would otherwise be boxed one by one
+    private static final class IntArrayList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static SentenceModel loadModel(String sentenceModelPath) {
+        try (InputStream modelIn = new FileInputStream(sentenceModelPath)) {
+            return new SentenceModel(modelIn);
+        } catch (IOException e) {
+            throw new RuntimeException("Error loading sentence detection model", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.docqry.backend.services;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The sentences of a document stored once, back to back, each followed by a space, with the offset at which every
+ * sentence starts. A chunk is a range of sentences, so its text is a single substring of the stream and widening
+ * it by neighbouring sentences costs nothing.
+ */
+public final class SentenceStream {
+
+    private final String text;
+    private final int[] offsets;
+
+    private SentenceStream(String text, int[] offsets) {
+        this.text = text;
+        this.offsets = offsets;
+    }
+
+    public static SentenceStream of(String[] sentences) {
+        int[] offsets = new int[sentences.length + 1];
+        int length = 0;
+        for (String sentence : sentences) {
+            length += sentence.length() + 1;
+        }
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < sentences.length; i++) {
+            offsets[i] = text.length();
+            text.append(sentences[i]).append(' ');
+        }
+        offsets[sentences.length] = text.length();
+        return new SentenceStream(text.toString(), offsets);
+    }
+
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    public String sentence(int index) {
+        return text.substring(offsets[index], offsets[index + 1] - 1);
+    }
+
+    /**
+     * @param start The first sentence of the chunk.
+     * @param end   The sentence after the last one of the chunk.
+     * @return The chunk's sentences, each followed by a space, as the chunker joins them.
+     */
+    public String chunk(int start, int end) {
+        return text.substring(offsets[start], offsets[end]);
+    }
+
+    /**
+     * Characters held in memory, to weigh the stream in a cache.
+     */
+    public int weight() {
+        return text.length() * 2 + offsets.length * 4;
+    }
+
+    public byte[] encodeText(int level) {
+        return ChunkTextCodec.compress(text, new byte[0], level);
+    }
+
+    public byte[] encodeOffsets() {
+        ByteBuffer buffer = ByteBuffer.allocate(offsets.length * Integer.BYTES);
+        buffer.asIntBuffer().put(offsets);
+        return buffer.array();
+    }
+
+    public static SentenceStream decode(byte[] text, byte[] offsets) {
+        int[] decodedOffsets = new int[offsets.length / Integer.BYTES];
+        ByteBuffer.wrap(offsets).asIntBuffer().get(decodedOffsets);
+        return new SentenceStream(ChunkTextCodec.decompress(text, new byte[0]), decodedOffsets);
+    }
+}
@@ -1,5 +1,7 @@
 package com.docqry.backend.services;
 
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.observability.PipelineMetrics.Stage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -9,7 +11,11 @@ import java.util.List;
 @RequiredArgsConstructor
 public class SummarizationService {
 
+    // Provider tag of the summarization tokens, the model itself is chosen by the embedding service
+    private static final String SUMMARIZER_PROVIDER = "summarizer";
+
     private final PythonServiceClient pythonServiceClient; // Assuming Python handles summarization logic
+    private final PipelineMetrics pipelineMetrics;
 
     /**
      * Summarizes the current context and new query using an AI model.
@@ -18,16 +24,27 @@ public class SummarizationService {
      * @return A summarized version of the updated context.
      */
     public String summarizeContext(String newQuery, List<String> relevantChunks) throws Exception {
-
-        // Call the Python summarization service (or an API)
-        var summarizedResponse = pythonServiceClient.summarizeText( newQuery, relevantChunks);
-
-        return getSummary(summarizedResponse);
+        return summarizeContext(newQuery, relevantChunks, null);
     }
 
-    public String summarizeInitialChunks(List<String> initialChunks) {
-        var summarizedResponse = pythonServiceClient.summarizeInitialChunks(initialChunks);
-        return summarizedResponse.getOverviewSummary();
+    /**
+     * Summarizes chunks the {@link ChunkRanker} has already ranked and trimmed, so the summarizer does not rank them again.
+     *
+     * @param chunkScores The ranking scores of the chunks, or {@code null} to let the summarizer rank them.
+     */
+    public String summarizeContext(String newQuery, List<String> relevantChunks, List<Float> chunkScores) throws Exception {
+
+        // Call the Python summarization service (or an API)
+        var summarizedResponse = pipelineMetrics.time(Stage.SUMMARIZATION,
+                () -> pythonServiceClient.summarizeText(newQuery, relevantChunks, chunkScores));
+
+        String summary = getSummary(summarizedResponse);
+        int sentTokens = PipelineMetrics.estimateTokens(newQuery);
+        for (String chunk : relevantChunks) {
+            sentTokens += PipelineMetrics.estimateTokens(chunk);
+        }
+        pipelineMetrics.recordTokens(SUMMARIZER_PROVIDER, sentTokens, PipelineMetrics.estimateTokens(summary));
+        return summary;
     }
 
     private String getSummary(PythonServiceClientImpl.SummarizationResponse summarizedResponse) {
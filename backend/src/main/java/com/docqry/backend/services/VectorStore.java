@@ -0,0 +1,43 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.repositories.ChunkView;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Where chunk embeddings are indexed and searched. {@code vector-store.provider} picks the implementation:
+ * {@code qdrant} ({@link QdrantService}, the default) or {@code pgvector} ({@link PgVectorStore}).
+ */
+public interface VectorStore {
+
+    /**
+     * A chunk's embedding with the ids of its document and chunk.
+     */
+    record IndexedChunk(String docId, String chunkId, int chunkIndex, float[] vector) {
+    }
+
+    /**
+     * A search hit with its ids and, when requested, its vector as a primitive array. Stores that keep the chunks
+     * next to the vectors return the chunk itself, which saves fetching it by id afterwards.
+     */
+    record ScoredChunk(String pointId, float score, String docId, String chunkId, float[] vector, ChunkView chunk) {
+    }
+
+    /**
+     * Indexes the embeddings, replacing the ones already stored for the same chunks.
+     */
+    void store(List<IndexedChunk> chunks) throws ExecutionException, InterruptedException;
+
+    /**
+     * @param documentId Only this document's chunks are searched, every document's when {@code null}.
+     * @return The {@code topK} chunks closest to the query by dot product, the most similar first.
+     */
+    List<ScoredChunk> search(String documentId, float[] queryVector, int topK, boolean withVectors)
+            throws ExecutionException, InterruptedException;
+
+    /**
+     * Deletes every embedding of the documents.
+     */
+    void deleteByDocumentIds(List<String> documentIds) throws ExecutionException, InterruptedException;
+}
@@ -0,0 +1,56 @@
+package com.docqry.backend.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StructuredScopeTests {
+
+	@Test
+	void runsForkedStepsConcurrently() throws Exception {
+		CountDownLatch bothStarted = new CountDownLatch(2);
+		try (var scope = new StructuredScope("test")) {
+			var first = scope.fork(() -> {
+				bothStarted.countDown();
+				return bothStarted.await(5, TimeUnit.SECONDS) ? "vector" : "timed out";
+			});
+			var second = scope.fork(() -> {
+				bothStarted.countDown();
+				return bothStarted.await(5, TimeUnit.SECONDS) ? "history" : "timed out";
+			});
+			scope.join();
+
+			assertThat(first.get()).isEqualTo("vector");
+			assertThat(second.get()).isEqualTo("history");
+		}
+	}
+
+	@Test
+	void failureCancelsTheOtherSteps() throws Exception {
+		CountDownLatch interrupted = new CountDownLatch(1);
+		try (var scope = new StructuredScope("test")) {
+			scope.fork(() -> {
+				try {
+					Thread.sleep(30_000);
+				} catch (InterruptedException e) {
+					interrupted.countDown();
+					throw e;
+				}
+				return "slow";
+			});
+			scope.fork(() -> {
+				throw new IllegalStateException("embedding service down");
+			});
+
+			assertThatThrownBy(scope::join)
+					.isInstanceOf(ExecutionException.class)
+					.hasCauseInstanceOf(IllegalStateException.class);
+			assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+		}
+	}
+}
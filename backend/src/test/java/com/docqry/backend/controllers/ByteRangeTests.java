@@ -0,0 +1,35 @@
+package com.docqry.backend.controllers;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteRangeTests {
+
+	@Test
+	void resolvesBoundedOpenAndSuffixRanges() {
+		assertThat(ByteRange.parse("bytes=0-99", 1000)).isEqualTo(new ByteRange(0, 99));
+		assertThat(ByteRange.parse("bytes=900-", 1000)).isEqualTo(new ByteRange(900, 999));
+		assertThat(ByteRange.parse("bytes=900-5000", 1000)).isEqualTo(new ByteRange(900, 999));
+		assertThat(ByteRange.parse("bytes=-100", 1000)).isEqualTo(new ByteRange(900, 999));
+		assertThat(ByteRange.parse("bytes=-5000", 1000)).isEqualTo(new ByteRange(0, 999));
+		assertThat(ByteRange.parse("bytes=10-19", 1000).length()).isEqualTo(10);
+	}
+
+	@Test
+	void servesTheWholeFileForMissingMalformedOrMultipartRanges() {
+		assertThat(ByteRange.parse(null, 1000)).isNull();
+		assertThat(ByteRange.parse("items=0-9", 1000)).isNull();
+		assertThat(ByteRange.parse("bytes=abc-", 1000)).isNull();
+		assertThat(ByteRange.parse("bytes=50-10", 1000)).isNull();
+		assertThat(ByteRange.parse("bytes=0-9, 20-29", 1000)).isNull();
+	}
+
+	@Test
+	void rejectsRangesPastTheEnd() {
+		assertThatThrownBy(() -> ByteRange.parse("bytes=1000-", 1000)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ByteRange.parse("bytes=-0", 1000)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> ByteRange.parse("bytes=-10", 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,58 @@
+package com.docqry.backend.extraction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PlainTextExtractorTests {
+
+	private final PlainTextExtractor extractor = new PlainTextExtractor();
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void detectsTheCharset() {
+		assertThat(PlainTextExtractor.detectCharset("Café au lait".getBytes(StandardCharsets.UTF_8), true))
+				.isEqualTo(StandardCharsets.UTF_8);
+		assertThat(PlainTextExtractor.detectCharset("Café au lait".getBytes(StandardCharsets.ISO_8859_1), true))
+				.isEqualTo(Charset.forName("windows-1252"));
+		assertThat(PlainTextExtractor.detectCharset("Café".getBytes(StandardCharsets.ISO_8859_1), true))
+				.isEqualTo(Charset.forName("windows-1252"));
+		assertThat(PlainTextExtractor.detectCharset("Café".getBytes(StandardCharsets.UTF_16), true))
+				.isEqualTo(StandardCharsets.UTF_16);
+		// A multibyte character cut off by the end of a sample is still UTF-8
+		byte[] cut = "naïve".getBytes(StandardCharsets.UTF_8);
+		assertThat(PlainTextExtractor.detectCharset(Arrays.copyOf(cut, 3), false)).isEqualTo(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void rejectsBinaryFiles() {
+		assertThat(extractor.supports("notes.txt", "text/plain", "plain text".getBytes(StandardCharsets.UTF_8))).isTrue();
+		assertThat(extractor.supports("image.png", "image/png", new byte[]{(byte) 0x89, 'P', 'N', 'G', 0, 0})).isFalse();
+	}
+
+	@Test
+	void readsLargeFilesInSectionsCutAtLineBreaks() throws IOException {
+		String line = "Generic drugs lower costs for patients and insurers alike.\n";
+		String text = line.repeat(1000);
+		Path file = directory.resolve("notes.txt");
+		Files.write(file, ("\uFEFF" + text).getBytes(StandardCharsets.UTF_8));
+
+		List<String> sections = new ArrayList<>();
+		extractor.extract(file, sections::add);
+
+		assertThat(sections).hasSizeGreaterThan(1).allMatch(section -> section.endsWith("\n"));
+		assertThat(String.join("", sections)).isEqualTo(text);
+	}
+}
@@ -0,0 +1,55 @@
+package com.docqry.backend.extraction;
+
+import com.docqry.backend.exceptions.UnsupportedDocumentException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TextExtractionServiceTests {
+
+	private final TextExtractionService service = new TextExtractionService(List.of(new PlainTextExtractor()), 0.05);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void streamsTheSectionsOfSupportedFiles() throws IOException {
+		Path file = write("notes.txt", "Insurers cover generic drugs.".getBytes(StandardCharsets.UTF_8));
+		List<String> sections = new ArrayList<>();
+
+		service.extract(file, "notes.txt", "text/plain", sections::add);
+
+		assertThat(sections).containsExactly("Insurers cover generic drugs.");
+	}
+
+	@Test
+	void rejectsUnsupportedEmptyAndJunkFiles() throws IOException {
+		Path binary = write("archive.bin", new byte[]{1, 2, 0, 3});
+		Path empty = write("empty.txt", " \n\n ".getBytes(StandardCharsets.UTF_8));
+		byte[] junk = new byte[8192];
+		for (int i = 0; i < junk.length; i++) {
+			junk[i] = (byte) (i % 2 == 0 ? 0x01 : 'a');
+		}
+		Path garbled = write("garbled.txt", junk);
+
+		assertThatThrownBy(() -> service.extract(binary, "archive.bin", null, section -> {
+		})).isInstanceOf(UnsupportedDocumentException.class).hasMessageContaining("Unsupported");
+		assertThatThrownBy(() -> service.extract(empty, "empty.txt", null, section -> {
+		})).isInstanceOf(UnsupportedDocumentException.class).hasMessageContaining("No text");
+		assertThatThrownBy(() -> service.extract(garbled, "garbled.txt", null, section -> {
+		})).isInstanceOf(UnsupportedDocumentException.class).hasMessageContaining("readable text");
+	}
+
+	private Path write(String name, byte[] content) throws IOException {
+		return Files.write(directory.resolve(name), content);
+	}
+}
@@ -0,0 +1,97 @@
+package com.docqry.backend.observability;
+
+import com.docqry.backend.observability.PipelineMetrics.Stage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PipelineMetricsTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PipelineMetrics pipelineMetrics = new PipelineMetrics(meterRegistry, true);
+
+	@AfterEach
+	void clearMdc() {
+		MDC.clear();
+	}
+
+	@Test
+	void timesStagesByOutcome() {
+		assertThat(pipelineMetrics.time(Stage.EMBEDDING, () -> "vector")).isEqualTo("vector");
+		assertThatThrownBy(() -> pipelineMetrics.run(Stage.EMBEDDING, () -> {
+			throw new IOException("embedding service down");
+		})).isInstanceOf(IOException.class);
+
+		assertThat(stageCount("embedding", "success")).isEqualTo(1);
+		assertThat(stageCount("embedding", "failure")).isEqualTo(1);
+		assertThat(stageCount("summarization", "success")).isZero();
+	}
+
+	@Test
+	void countsTokensAgainstTheDocumentInTheMdc() {
+		MDC.put(PipelineMetrics.DOCUMENT_MDC_KEY, "doc-1");
+		pipelineMetrics.recordTokens("geminiService", "x".repeat(400), "y".repeat(40));
+		MDC.remove(PipelineMetrics.DOCUMENT_MDC_KEY);
+		pipelineMetrics.recordTokens("geminiService", "x".repeat(40), "");
+
+		assertThat(tokens("geminiService", "doc-1", "sent")).isEqualTo(100);
+		assertThat(tokens("geminiService", "doc-1", "received")).isEqualTo(10);
+		assertThat(tokens("geminiService", "none", "sent")).isEqualTo(10);
+	}
+
+	@Test
+	void tracksQueuedAndActiveTasksAndCarriesTheMdcOver() throws InterruptedException {
+		TaskDecorator decorator = pipelineMetrics.executorTaskDecorator("test");
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicReference<String> document = new AtomicReference<>();
+
+		MDC.put(PipelineMetrics.DOCUMENT_MDC_KEY, "doc-2");
+		Runnable task = decorator.decorate(() -> {
+			document.set(MDC.get(PipelineMetrics.DOCUMENT_MDC_KEY));
+			started.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		MDC.clear();
+		assertThat(gauge("docqry.executor.queued")).isEqualTo(1);
+
+		Thread.ofVirtual().start(task);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(gauge("docqry.executor.queued")).isZero();
+		assertThat(gauge("docqry.executor.active")).isEqualTo(1);
+		assertThat(document.get()).isEqualTo("doc-2");
+
+		release.countDown();
+	}
+
+	private long stageCount(String stage, String outcome) {
+		return meterRegistry.get("docqry.pipeline.stage.duration").tag("stage", stage).tag("outcome", outcome).timer().count();
+	}
+
+	private double tokens(String provider, String document, String direction) {
+		return meterRegistry.get("docqry.llm.tokens")
+				.tag("provider", provider)
+				.tag("document", document)
+				.tag("direction", direction)
+				.counter()
+				.count();
+	}
+
+	private double gauge(String name) {
+		return meterRegistry.get(name).tag("executor", "test").gauge().value();
+	}
+}
@@ -0,0 +1,62 @@
+package com.docqry.backend.observability;
+
+import com.docqry.backend.concurrent.StructuredScope;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTraceTests {
+
+	@Test
+	void continuesAnIncomingTraceWithItsOwnSpanId() {
+		RequestTrace trace = RequestTrace.start("00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+
+		assertThat(trace.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736");
+		assertThat(trace.traceparent()).startsWith("00-4bf92f3577b34da6a3ce929d0e0e4736-").endsWith("-01")
+				.doesNotContain("00f067aa0ba902b7");
+		assertThat(trace.childTraceparent()).isNotEqualTo(trace.traceparent()).startsWith("00-" + trace.traceId());
+	}
+
+	@Test
+	void startsANewTraceForMissingOrMalformedHeaders() {
+		for (String header : new String[]{null, "garbage", "00-00000000000000000000000000000000-00f067aa0ba902b7-01"}) {
+			RequestTrace trace = RequestTrace.start(header);
+			assertThat(trace.traceId()).hasSize(32).isNotEqualTo("0".repeat(32));
+		}
+	}
+
+	@Test
+	void collectsSpansFromForkedThreads() throws Exception {
+		RequestTrace trace = RequestTrace.start(null);
+		try (var ignored = trace.activate();
+			 var scope = new StructuredScope("test")) {
+			scope.fork(() -> {
+				long start = System.nanoTime();
+				RequestTrace.recordSpan("embedding", start, start + 2_000_000, false);
+				return null;
+			});
+			scope.join();
+		}
+
+		assertThat(RequestTrace.current()).isNull();
+		assertThat(trace.spans()).extracting(RequestTrace.Span::name).containsExactly("embedding");
+		assertThat(trace.serverTiming()).startsWith("embedding;dur=2.0, total;dur=");
+	}
+
+	@Test
+	void breaksDownstreamTimingsIntoSpans() {
+		RequestTrace trace = RequestTrace.start(null);
+		try (var ignored = trace.activate()) {
+			RequestTrace.recordDownstreamTimings("python", "rank;dur=12.5, mistral;dur=840;desc=\"chat\", app;dur=nope",
+					System.nanoTime());
+		}
+
+		@SuppressWarnings("unchecked")
+		List<Map<String, Object>> spans = (List<Map<String, Object>>) trace.timing().get("spans");
+		assertThat(spans).extracting(span -> span.get("name")).containsExactly("python.rank", "python.mistral");
+		assertThat(spans.get(1).get("durationMs")).isEqualTo(840.0);
+	}
+}
@@ -0,0 +1,61 @@
+package com.docqry.backend.observability.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ContinuousRecordingTests {
+
+	@TempDir
+	Path dumpDirectory;
+
+	private ContinuousRecording continuousRecording;
+
+	@AfterEach
+	void stopRecording() {
+		if (continuousRecording != null) {
+			continuousRecording.stop();
+		}
+	}
+
+	@Test
+	void dumpsPipelineEventsOfTheLastMinutes() throws Exception {
+		continuousRecording = new ContinuousRecording(true, "default", Duration.ofMinutes(30), DataSize.ofMegabytes(64), dumpDirectory);
+		continuousRecording.start();
+
+		ContextBuildEvent event = new ContextBuildEvent();
+		event.begin();
+		event.documentId = "doc-1";
+		event.chunkCount = 3;
+		event.commit();
+
+		Path dump = continuousRecording.dump(Duration.ofMinutes(1));
+
+		List<RecordedEvent> pipelineEvents = RecordingFile.readAllEvents(dump).stream()
+				.filter(recorded -> recorded.getEventType().getName().equals("com.docqry.ContextBuild"))
+				.toList();
+		assertThat(pipelineEvents).hasSize(1);
+		assertThat(pipelineEvents.getFirst().getString("documentId")).isEqualTo("doc-1");
+		assertThat(pipelineEvents.getFirst().getInt("chunkCount")).isEqualTo(3);
+		assertThat(dumpDirectory.toFile().list()).containsExactly(dump.getFileName().toString());
+	}
+
+	@Test
+	void refusesToDumpWhenDisabled() throws Exception {
+		continuousRecording = new ContinuousRecording(false, "default", Duration.ofMinutes(30), DataSize.ofMegabytes(64), dumpDirectory);
+		continuousRecording.start();
+
+		assertThat(continuousRecording.isRecording()).isFalse();
+		assertThatThrownBy(() -> continuousRecording.dump(Duration.ofMinutes(1))).isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,38 @@
+package com.docqry.backend.repositories;
+
+import com.docqry.backend.repositories.DocumentListingRepository.Cursor;
+import com.docqry.backend.repositories.DocumentListingRepository.Order;
+import com.docqry.backend.repositories.DocumentView.IndexStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentListingRepositoryTests {
+
+	private final DocumentView document = new DocumentView("0b6c1f7e-5d1a-4c7e-9a57-0f3c2d1e8b4a", "q3|report.txt",
+			LocalDateTime.of(2025, 1, 31, 9, 30, 15, 123_456_000), 42, 0, IndexStatus.INDEXED);
+
+	@Test
+	void cursorsRoundTripTheSortKeyAndId() {
+		Cursor byDate = Cursor.parse(Order.NEWEST, Cursor.after(Order.NEWEST, document).token());
+		assertThat(byDate.key()).isEqualTo(document.uploadedAt());
+		assertThat(byDate.id()).isEqualTo(document.id());
+
+		Cursor byName = Cursor.parse(Order.NAME_DESC, Cursor.after(Order.NAME_DESC, document).token());
+		assertThat(byName.key()).isEqualTo("q3|report.txt");
+		assertThat(byName.id()).isEqualTo(document.id());
+	}
+
+	@Test
+	void rejectsMalformedCursorsAndCursorsOfAnotherOrder() {
+		String token = Cursor.after(Order.NAME, document).token();
+
+		assertThatThrownBy(() -> Cursor.parse(Order.NEWEST, token)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Cursor.parse(Order.NAME, "not base64!")).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> Cursor.parse(Order.OLDEST, "T0xERVNUfHllc3RlcmRheXxpZA"))
+				.isInstanceOf(IllegalArgumentException.class);
+	}
+}
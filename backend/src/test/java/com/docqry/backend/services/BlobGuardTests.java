@@ -0,0 +1,104 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.services.BlobStore.StoredBlob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BlobGuardTests {
+
+	private static final String CONTENT = "quarterly report";
+
+	@TempDir
+	Path root;
+
+	private BlobStore blobStore;
+	private DocumentRepository documentRepository;
+	private BlobGuard blobGuard;
+
+	// Stands in for the advisory lock: taken by lockFilePath, released when a transaction ends
+	private final Semaphore fileLock = new Semaphore(1);
+
+	@BeforeEach
+	void setUp() {
+		blobStore = new BlobStore(root.toString());
+		documentRepository = mock(DocumentRepository.class);
+		when(documentRepository.lockFilePath(anyString())).thenAnswer(invocation -> {
+			fileLock.acquire();
+			return 1;
+		});
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		doAnswer(invocation -> {
+			fileLock.release();
+			return null;
+		}).when(transactionManager).commit(any());
+		blobGuard = new BlobGuard(documentRepository, blobStore, transactionManager);
+	}
+
+	@Test
+	void purgeWaitsForAReUploadOfTheDeletedDocumentAndKeepsItsFile() throws Exception {
+		Path file = blobStore.store(content()).path();
+		// The document was deleted, an identical upload finds the file still stored and locks it
+		StoredBlob reUpload = blobStore.store(content());
+		assertThat(reUpload.existed()).isTrue();
+		blobGuard.lockForUpload(reUpload, new ByteArrayResource(CONTENT.getBytes(StandardCharsets.UTF_8)));
+
+		AtomicBoolean reUploadCommitted = new AtomicBoolean();
+		when(documentRepository.existsByFilePath(file.toString())).thenAnswer(invocation -> reUploadCommitted.get());
+		CompletableFuture<Boolean> purge = CompletableFuture.supplyAsync(() -> {
+			try {
+				return blobGuard.deleteIfUnused(file.toString());
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		});
+
+		Thread.sleep(100);
+		assertThat(purge).isNotDone();
+		reUploadCommitted.set(true);
+		fileLock.release();
+
+		assertThat(purge.get(5, TimeUnit.SECONDS)).isFalse();
+		assertThat(Files.readString(file)).isEqualTo(CONTENT);
+	}
+
+	@Test
+	void reUploadStoresTheFileAgainWhenThePurgeDeletedItFirst() throws Exception {
+		Path file = blobStore.store(content()).path();
+		StoredBlob reUpload = blobStore.store(content());
+
+		// The purge of the deleted document gets the lock between the re-upload storing and locking the file
+		assertThat(blobGuard.deleteIfUnused(file.toString())).isTrue();
+		assertThat(file).doesNotExist();
+
+		StoredBlob locked = blobGuard.lockForUpload(reUpload, new ByteArrayResource(CONTENT.getBytes(StandardCharsets.UTF_8)));
+
+		assertThat(locked.path()).isEqualTo(file);
+		assertThat(locked.existed()).isFalse();
+		assertThat(Files.readString(file)).isEqualTo(CONTENT);
+	}
+
+	private static ByteArrayInputStream content() {
+		return new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,47 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.services.BlobStore.StoredBlob;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlobStoreTests {
+
+	@TempDir
+	Path root;
+
+	@Test
+	void storesFilesUnderTheirShardedHash() throws IOException {
+		StoredBlob blob = new BlobStore(root.toString()).store(content("hello world"));
+
+		assertThat(blob.hash()).isEqualTo("b94d27b9934d3e08a52e52d7da7dabfac484efe37a5380ee9088f7ace2efcde9");
+		assertThat(blob.path()).isEqualTo(root.resolve("b9").resolve("4d").resolve(blob.hash()));
+		assertThat(blob.size()).isEqualTo(11);
+		assertThat(blob.existed()).isFalse();
+		assertThat(Files.readString(blob.path())).isEqualTo("hello world");
+	}
+
+	@Test
+	void storesIdenticalContentOnceAndLeavesNoTemporaryFiles() throws IOException {
+		BlobStore store = new BlobStore(root.toString());
+		StoredBlob first = store.store(content("same bytes"));
+		StoredBlob second = store.store(content("same bytes"));
+
+		assertThat(second.existed()).isTrue();
+		assertThat(second.path()).isEqualTo(first.path());
+		try (var temporaryFiles = Files.list(root.resolve("tmp"))) {
+			assertThat(temporaryFiles).isEmpty();
+		}
+	}
+
+	private static ByteArrayInputStream content(String text) {
+		return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,98 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.services.ChunkRanker.Candidate;
+import com.docqry.backend.services.ChunkRanker.RankedChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkRankerTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	// Relevance alone, lambda 1 disables the diversity penalty
+	private final ChunkRanker ranker = new ChunkRanker(meterRegistry, 2, 1.0, 0.15, 0.05, 1.0, 2048, 4);
+
+	@Test
+	void ranksByTheStoredVectorsAndKeepsTheTopK() {
+		float[] query = {1, 0, 0};
+		var ranked = ranker.rank("shipping volumes", query, List.of(
+				new Candidate("a", 3, "Unrelated text.", new float[]{0, 1, 0}, 0.9f),
+				new Candidate("b", 7, "Closest text.", new float[]{0.9f, 0.1f, 0}, 0.1f),
+				new Candidate("c", 5, "Second text.", new float[]{0.6f, 0.6f, 0}, 0.1f)));
+
+		assertThat(ranked).extracting(RankedChunk::chunkId).containsExactly("b", "c");
+	}
+
+	@Test
+	void usesTheStoreScoreForHitsWithoutVectorsAndBreaksTiesOnQueryTerms() {
+		var ranked = ranker.rank("generic drug prices", new float[]{1, 0}, List.of(
+				new Candidate("a", 4, "Shipping volumes fell in the third quarter.", null, 0.5f),
+				new Candidate("b", 4, "Generic drug prices dropped sharply.", null, 0.5f),
+				new Candidate("c", 4, "Revenue grew.", null, 0.2f)));
+
+		assertThat(ranked).extracting(RankedChunk::chunkId).containsExactly("b", "a");
+	}
+
+	@Test
+	void ranksFullTextMatchesOnTheirWordsAndPosition() {
+		var ranked = ranker.rank("generic drug prices", null, List.of(
+				new Candidate("late", 40, "Generic drug prices dropped sharply.", null, 0f),
+				new Candidate("early", 0, "Generic drug prices dropped sharply.", null, 0f),
+				new Candidate("partial", 1, "Drug approvals.", null, 0f)));
+
+		assertThat(ranked).extracting(RankedChunk::chunkId).containsExactly("early", "late");
+	}
+
+	@Test
+	void skipsChunksThatRepeatOneAlreadyPicked() {
+		ChunkRanker diverse = new ChunkRanker(meterRegistry, 2, 1.0, 0, 0, 0.5, 2048, 4);
+		float[] query = {1, 0, 0};
+		var candidates = List.of(
+				new Candidate("a", 0, "First passage.", new float[]{0.9f, 0.436f, 0}, 0f),
+				new Candidate("overlapping", 1, "First passage again.", new float[]{0.89f, 0.456f, 0}, 0f),
+				new Candidate("other", 9, "Another passage.", new float[]{0.8f, -0.6f, 0}, 0f));
+
+		assertThat(diverse.rank("passage", query, candidates)).extracting(RankedChunk::chunkId).containsExactly("a", "other");
+		assertThat(ranker.rank("passage", query, candidates)).extracting(RankedChunk::chunkId).containsExactly("a", "overlapping");
+	}
+
+	@Test
+	void fitsTheTokenBudgetAndRecordsTokensBeforeAndAfter() {
+		ChunkRanker budgeted = new ChunkRanker(meterRegistry, 3, 1.0, 0, 0, 1.0, 150, 4);
+		var ranked = budgeted.rank("query", null, List.of(
+				new Candidate("a", 0, "x".repeat(400), null, 0.9f),
+				new Candidate("b", 1, "y".repeat(400), null, 0.8f),
+				new Candidate("c", 2, "z".repeat(20), null, 0.1f)));
+
+		assertThat(ranked).extracting(RankedChunk::chunkId).containsExactly("a", "c");
+		assertThat(tokens("candidates")).isEqualTo(205);
+		assertThat(tokens("selected")).isEqualTo(105);
+	}
+
+	@Test
+	void keepsUpToTheCallersLimitInsteadOfTopK() {
+		var candidates = List.of(
+				new Candidate("a", 0, "First.", null, 0.9f),
+				new Candidate("b", 1, "Second.", null, 0.8f),
+				new Candidate("c", 2, "Third.", null, 0.7f),
+				new Candidate("d", 3, "Fourth.", null, 0.6f));
+
+		assertThat(ranker.rank("query", null, candidates, 3)).extracting(RankedChunk::chunkId).containsExactly("a", "b", "c");
+		assertThat(ranker.rank("query", null, candidates, 1)).extracting(RankedChunk::chunkId).containsExactly("a");
+	}
+
+	@Test
+	void overFetchesCandidatesWithinTheCap() {
+		assertThat(ranker.candidateCount(1)).isEqualTo(8);
+		assertThat(ranker.candidateCount(5)).isEqualTo(20);
+		assertThat(ranker.candidateCount(500)).isEqualTo(100);
+	}
+
+	private double tokens(String chunks) {
+		return meterRegistry.get("docqry.ranking.tokens").tag("chunks", chunks).summary().totalAmount();
+	}
+}
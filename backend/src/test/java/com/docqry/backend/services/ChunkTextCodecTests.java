@@ -0,0 +1,80 @@
+package com.docqry.backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChunkTextCodecTests {
+
+	@Test
+	void roundTripsChunksAgainstTheirDocumentDictionary() {
+		List<String> chunks = overlappingChunks(200);
+		byte[] dictionary = ChunkTextCodec.buildDictionary(chunks);
+
+		assertThat(dictionary.length).isLessThanOrEqualTo(ChunkTextCodec.MAX_DICTIONARY_BYTES);
+		for (String chunk : chunks) {
+			byte[] compressed = ChunkTextCodec.compress(chunk, dictionary, Deflater.DEFAULT_COMPRESSION);
+			assertThat(ChunkTextCodec.decompress(compressed, dictionary)).isEqualTo(chunk);
+		}
+	}
+
+	@Test
+	void dictionaryShrinksShortChunksFurtherThanPlainDeflate() {
+		List<String> chunks = overlappingChunks(200);
+		byte[] dictionary = ChunkTextCodec.buildDictionary(chunks);
+
+		long plain = 0, withoutDictionary = 0, withDictionary = 0;
+		for (String chunk : chunks) {
+			plain += chunk.getBytes(StandardCharsets.UTF_8).length;
+			withoutDictionary += ChunkTextCodec.compress(chunk, new byte[0], Deflater.DEFAULT_COMPRESSION).length;
+			withDictionary += ChunkTextCodec.compress(chunk, dictionary, Deflater.DEFAULT_COMPRESSION).length;
+		}
+
+		assertThat(withoutDictionary).isLessThan(plain);
+		assertThat(withDictionary).isLessThan(withoutDictionary);
+	}
+
+	@Test
+	void keepsNonAsciiTextIntact() {
+		String chunk = "Überprüfung der Wirkstoffe — 薬の承認 — naïve café.";
+		byte[] dictionary = ChunkTextCodec.buildDictionary(List.of(chunk));
+
+		assertThat(ChunkTextCodec.decompress(ChunkTextCodec.compress(chunk, dictionary, 9), dictionary)).isEqualTo(chunk);
+		assertThat(ChunkTextCodec.buildDictionary(List.of())).isEmpty();
+	}
+
+	@Test
+	void rejectsTruncatedInput() {
+		byte[] dictionary = ChunkTextCodec.buildDictionary(overlappingChunks(10));
+		byte[] compressed = ChunkTextCodec.compress(overlappingChunks(10).get(3), dictionary, 6);
+		byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+		assertThatThrownBy(() -> ChunkTextCodec.decompress(truncated, dictionary)).isInstanceOf(IllegalStateException.class);
+	}
+
+	// Windows of six sentences moving two at a time, like the chunker's overlap
+	private static List<String> overlappingChunks(int count) {
+		String[] words = {"generic", "drugs", "patients", "insurers", "costs", "trial", "results", "dosage", "approval",
+				"market", "price", "study", "effects", "regulator", "report", "coverage", "hospital", "evidence"};
+		List<String> sentences = new ArrayList<>();
+		for (int i = 0; i < count * 2 + 6; i++) {
+			StringBuilder sentence = new StringBuilder("The");
+			for (int w = 0; w < 12; w++) {
+				sentence.append(' ').append(words[(i * 7 + w * 5 + i * w) % words.length]);
+			}
+			sentences.add(sentence.append('.').toString());
+		}
+		List<String> chunks = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			chunks.add(String.join(" ", sentences.subList(i * 2, i * 2 + 6)));
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,39 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.repositories.ChunkView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentChunkServiceTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final DocumentChunkService service = new DocumentChunkService(null, null,
+			new PipelineMetrics(meterRegistry, true),
+			new ChunkTextStore(null, null, meterRegistry, ChunkTextStore.Mode.PLAIN, 6, 16, DataSize.ofMegabytes(1)));
+
+	@Test
+	void decodesHitsThatCarryTheirChunkInRetrievalOrder() {
+		float[] vector = {0.6f, 0.8f};
+		var candidates = service.getRankingCandidates("doc-1", List.of(
+				hit("doc-1", "second", 7, "The better match."),
+				new VectorStore.ScoredChunk("first", 0.4f, "doc-1", "first", vector,
+						new ChunkView("first", 3, "The queried document's chunk.", null, null, null))));
+
+		assertThat(candidates).extracting(ChunkRanker.Candidate::chunkId).containsExactly("second", "first");
+		assertThat(candidates.get(1).text()).isEqualTo("The queried document's chunk.");
+		assertThat(candidates.get(1).chunkIndex()).isEqualTo(3);
+		assertThat(candidates.get(1).vector()).isSameAs(vector);
+		assertThat(candidates.get(1).score()).isEqualTo(0.4f);
+	}
+
+	private static VectorStore.ScoredChunk hit(String docId, String chunkId, int chunkIndex, String text) {
+		return new VectorStore.ScoredChunk(chunkId, 0.5f, docId, chunkId, null,
+				new ChunkView(chunkId, chunkIndex, text, null, null, null));
+	}
+}
@@ -0,0 +1,47 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.repositories.DocumentRepository;
+import com.docqry.backend.repositories.DocumentRepository.TombstonedDocument;
+import com.docqry.backend.repositories.DocumentSentencesRepository;
+import com.docqry.backend.repositories.IndexingOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DocumentCleanupWorkerTests {
+
+	private final DocumentRepository documentRepository = mock(DocumentRepository.class);
+	private final DocumentChunkService documentChunkService = mock(DocumentChunkService.class);
+	private final IndexingOutboxRepository outboxRepository = mock(IndexingOutboxRepository.class);
+	private final DocumentSentencesRepository sentencesRepository = mock(DocumentSentencesRepository.class);
+	private final BlobGuard blobGuard = mock(BlobGuard.class);
+	private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+	@Test
+	void dropsPendingEmbeddingsInTheirOwnTransactionBeforeDeletingTheVectors() throws Exception {
+		TombstonedDocument tombstone = mock(TombstonedDocument.class);
+		when(tombstone.getId()).thenReturn("doc-1");
+		when(tombstone.getFilePath()).thenReturn("uploads/ab/cd/abcd");
+		when(documentRepository.findTombstoned(100)).thenReturn(List.of(tombstone));
+
+		new DocumentCleanupWorker(documentRepository, documentChunkService, outboxRepository, sentencesRepository,
+				blobGuard, new TransactionTemplate(transactionManager), new SimpleMeterRegistry(), 100)
+				.purgeDeletedDocuments();
+
+		InOrder order = inOrder(outboxRepository, transactionManager, documentChunkService, blobGuard, documentRepository);
+		order.verify(outboxRepository).deleteByDocumentIds(List.of("doc-1"));
+		order.verify(transactionManager).commit(null);
+		order.verify(documentChunkService).deleteVectorEmbeddingsByDocIds(List.of("doc-1"));
+		order.verify(blobGuard).deleteIfUnused("uploads/ab/cd/abcd");
+		order.verify(documentChunkService).deleteChunksByDocIds(List.of("doc-1"));
+		order.verify(documentRepository).purgeTombstoned(List.of("doc-1"));
+	}
+}
@@ -0,0 +1,44 @@
+package com.docqry.backend.services;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EmbeddingJsonReaderTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Test
+	void readsVectorsIntoExactlySizedArrays() throws IOException {
+		List<float[]> embeddings = read("{\"model\":{\"name\":\"bge\"},\"embeddings\":[[0.5,-1.25,3],[1e-3,2,0]]}");
+
+		assertThat(embeddings).hasSize(2);
+		assertThat(embeddings.get(0)).containsExactly(0.5f, -1.25f, 3f);
+		assertThat(embeddings.get(1)).containsExactly(0.001f, 2f, 0f);
+	}
+
+	@Test
+	void keepsVectorsThatDoNotMatchTheFirstDimension() throws IOException {
+		List<float[]> embeddings = read("{\"embeddings\":[[1,2],[3,4,5],[6]]}");
+
+		assertThat(embeddings.get(1)).containsExactly(3f, 4f, 5f);
+		assertThat(embeddings.get(2)).containsExactly(6f);
+	}
+
+	@Test
+	void rejectsResponsesWithoutEmbeddings() {
+		assertThatThrownBy(() -> read("{\"detail\":\"model not loaded\"}")).isInstanceOf(IOException.class);
+	}
+
+	private List<float[]> read(String json) throws IOException {
+		try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+			return EmbeddingJsonReader.readEmbeddings(parser);
+		}
+	}
+}
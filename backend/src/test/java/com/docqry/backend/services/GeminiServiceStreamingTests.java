@@ -0,0 +1,72 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.stubs.StubGeminiServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GeminiServiceStreamingTests {
+
+	private static final String ANSWER = "Generic drugs lower costs for patients and insurers alike.";
+
+	@Test
+	void streamsFragmentsBeforeGenerationCompletes() throws Throwable {
+		try (StubGeminiServer server = new StubGeminiServer(ANSWER, 50)) {
+			GeminiService geminiService = newGeminiService(server);
+
+			List<String> fragments = new ArrayList<>();
+			long[] firstTokenAt = new long[1];
+			long start = System.nanoTime();
+
+			geminiService.streamLLMResponse("prompt", fragment -> {
+				if (fragments.isEmpty()) {
+					firstTokenAt[0] = System.nanoTime();
+				}
+				fragments.add(fragment);
+			});
+			long total = System.nanoTime() - start;
+
+			assertThat(fragments).hasSizeGreaterThan(1);
+			assertThat(String.join("", fragments)).isEqualTo(ANSWER);
+			assertThat(firstTokenAt[0] - start).isLessThan(total / 2);
+		}
+	}
+
+	@Test
+	void clientDisconnectIsNotReportedAsAnLlmFailure() throws Throwable {
+		try (StubGeminiServer server = new StubGeminiServer(ANSWER, 0)) {
+			List<String> fragments = new ArrayList<>();
+
+			assertThatThrownBy(() -> newGeminiService(server).streamLLMResponse("prompt", fragment -> {
+				fragments.add(fragment);
+				throw new UncheckedIOException(new IOException("Broken pipe"));
+			})).isInstanceOf(UncheckedIOException.class).hasMessageContaining("Broken pipe");
+			assertThat(fragments).hasSize(1);
+		}
+	}
+
+	@Test
+	void blockingResponseStillReturnsWholeAnswer() throws Throwable {
+		try (StubGeminiServer server = new StubGeminiServer(ANSWER, 0)) {
+			assertThat(newGeminiService(server).getLLMResponse("prompt")).isEqualTo(ANSWER);
+		}
+	}
+
+	private GeminiService newGeminiService(StubGeminiServer server) {
+		GeminiService geminiService = new GeminiService(new ObjectMapper(), new RestTemplate(new JdkClientHttpRequestFactory()));
+		ReflectionTestUtils.setField(geminiService, "apiKey", "test-key");
+		ReflectionTestUtils.setField(geminiService, "apiUrl", server.generateContentUrl());
+		ReflectionTestUtils.setField(geminiService, "streamUrl", "");
+		return geminiService;
+	}
+}
@@ -0,0 +1,36 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.stubs.StubEmbeddingGrpcServer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GrpcPythonServiceClientTests {
+
+	private static final int DIMENSION = 8;
+
+	@Test
+	void returnsVectorsInInputOrderAcrossBatches() throws Exception {
+		try (StubEmbeddingGrpcServer server = new StubEmbeddingGrpcServer(DIMENSION)) {
+			GrpcPythonServiceClient client = new GrpcPythonServiceClient(null, "localhost", server.port(), 4, Duration.ofSeconds(10));
+			try {
+				List<String> texts = IntStream.range(0, 11).mapToObj(i -> "chunk " + i).toList();
+
+				List<float[]> embeddings = client.generateEmbeddings(texts);
+
+				assertThat(embeddings).hasSize(texts.size());
+				for (int i = 0; i < texts.size(); i++) {
+					assertThat(embeddings.get(i)).containsExactly(StubEmbeddingGrpcServer.vectorFor(texts.get(i), DIMENSION));
+				}
+				assertThat(client.generateQueryVector("query"))
+						.containsExactly(StubEmbeddingGrpcServer.vectorFor("query", DIMENSION));
+			} finally {
+				client.shutdown();
+			}
+		}
+	}
+}
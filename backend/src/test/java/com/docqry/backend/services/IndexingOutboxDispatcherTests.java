@@ -0,0 +1,125 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.entities.IndexingOutboxEntry;
+import com.docqry.backend.repositories.IndexingOutboxRepository;
+import com.docqry.backend.repositories.IndexingOutboxRepository.Backlog;
+import com.docqry.backend.services.VectorStore.IndexedChunk;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IndexingOutboxDispatcherTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final IndexingOutboxRepository outboxRepository = mock(IndexingOutboxRepository.class);
+	private final VectorStore vectorStore = mock(VectorStore.class);
+
+	@BeforeEach
+	void setUp() {
+		Backlog backlog = mock(Backlog.class);
+		when(backlog.getPending()).thenReturn(0L);
+		when(outboxRepository.findBacklog()).thenReturn(backlog);
+	}
+
+	@Test
+	void doublesTheBackoffUpToTheMaximum() {
+		Duration initial = Duration.ofSeconds(1);
+		Duration max = Duration.ofMinutes(5);
+
+		assertThat(IndexingOutboxDispatcher.backoff(1, initial, max)).isEqualTo(Duration.ofSeconds(1));
+		assertThat(IndexingOutboxDispatcher.backoff(2, initial, max)).isEqualTo(Duration.ofSeconds(2));
+		assertThat(IndexingOutboxDispatcher.backoff(5, initial, max)).isEqualTo(Duration.ofSeconds(16));
+		assertThat(IndexingOutboxDispatcher.backoff(9, initial, max)).isEqualTo(Duration.ofSeconds(256));
+		assertThat(IndexingOutboxDispatcher.backoff(10, initial, max)).isEqualTo(max);
+		assertThat(IndexingOutboxDispatcher.backoff(Integer.MAX_VALUE, initial, max)).isEqualTo(max);
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void indexesTheClaimedEntriesAndDeletesThem() throws Exception {
+		List<IndexingOutboxEntry> entries = List.of(entry("doc-1", "chunk-1", 0, 0), entry("doc-2", "chunk-2", 4, 0));
+		when(outboxRepository.claimDue(512)).thenReturn(entries);
+
+		dispatcher(512).dispatch();
+
+		ArgumentCaptor<List<IndexedChunk>> stored = ArgumentCaptor.forClass(List.class);
+		verify(vectorStore).store(stored.capture());
+		assertThat(stored.getValue()).extracting(IndexedChunk::docId, IndexedChunk::chunkId, IndexedChunk::chunkIndex)
+				.containsExactly(
+						tuple("doc-1", "chunk-1", 0),
+						tuple("doc-2", "chunk-2", 4));
+		assertThat(stored.getValue().getFirst().vector()).isSameAs(entries.getFirst().getVector());
+		verify(outboxRepository).deleteAllInBatch(entries);
+		verify(outboxRepository, never()).saveAll(anyList());
+		assertThat(meterRegistry.get("docqry.outbox.dispatched").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void keepsClaimingWhileBatchesComeBackFull() throws Exception {
+		when(outboxRepository.claimDue(2)).thenReturn(
+				List.of(entry("doc-1", "chunk-1", 0, 0), entry("doc-1", "chunk-2", 1, 0)),
+				List.of(entry("doc-1", "chunk-3", 2, 0)));
+
+		dispatcher(2).dispatch();
+
+		verify(vectorStore, times(2)).store(anyList());
+		verify(outboxRepository, times(2)).claimDue(2);
+		assertThat(meterRegistry.get("docqry.outbox.dispatched").counter().count()).isEqualTo(3);
+	}
+
+	@Test
+	void reschedulesAFailedBatchWithItsAttemptsAndError() throws Exception {
+		List<IndexingOutboxEntry> entries = List.of(entry("doc-1", "chunk-1", 0, 0), entry("doc-1", "chunk-2", 1, 2));
+		when(outboxRepository.claimDue(512)).thenReturn(entries);
+		doThrow(new ExecutionException("Qdrant is unavailable", null)).when(vectorStore).store(anyList());
+
+		LocalDateTime before = LocalDateTime.now();
+		dispatcher(512).dispatch();
+
+		verify(outboxRepository).saveAll(entries);
+		verify(outboxRepository, never()).deleteAllInBatch(any());
+		assertThat(entries).extracting(IndexingOutboxEntry::getAttempts).containsExactly(1, 3);
+		assertThat(entries).extracting(IndexingOutboxEntry::getLastError).containsOnly("Qdrant is unavailable");
+		assertThat(entries.get(0).getNextAttemptAt()).isCloseTo(before.plusSeconds(1), within(500, ChronoUnit.MILLIS));
+		assertThat(entries.get(1).getNextAttemptAt()).isCloseTo(before.plusSeconds(4), within(500, ChronoUnit.MILLIS));
+		assertThat(meterRegistry.get("docqry.outbox.failures").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("docqry.outbox.dispatched").counter().count()).isZero();
+	}
+
+	private IndexingOutboxDispatcher dispatcher(int batchSize) {
+		return new IndexingOutboxDispatcher(outboxRepository, vectorStore,
+				new TransactionTemplate(mock(PlatformTransactionManager.class)), new DocumentListVersion(),
+				meterRegistry, batchSize, Duration.ofSeconds(1), Duration.ofMinutes(5));
+	}
+
+	private static IndexingOutboxEntry entry(String documentId, String chunkId, int chunkIndex, int attempts) {
+		return IndexingOutboxEntry.builder()
+				.documentId(documentId)
+				.chunkId(chunkId)
+				.chunkIndex(chunkIndex)
+				.vector(new float[]{0.6f, 0.8f})
+				.attempts(attempts)
+				.build();
+	}
+}
@@ -0,0 +1,80 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.exceptions.LLMCommunicationException;
+import com.docqry.backend.observability.PipelineMetrics;
+import com.docqry.backend.stubs.StubLLMProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LLMRouterServiceTests {
+
+	@Test
+	void routesToTheFastestProviderOnceLatenciesAreKnown() throws Throwable {
+		StubLLMProvider slow = new StubLLMProvider("slow", 40);
+		StubLLMProvider fast = new StubLLMProvider("fast", 5);
+		LLMRouterService router = newRouter(Map.of("slow", slow, "fast", fast), List.of("slow", "fast"), false);
+
+		// Unmeasured providers are tried first, so both get sampled before latencies are compared
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("slow");
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("fast");
+
+		for (int i = 0; i < 5; i++) {
+			assertThat(router.getLLMResponse("prompt")).isEqualTo("fast");
+		}
+	}
+
+	@Test
+	void fallsBackAndStopsCallingAProviderWhoseCircuitIsOpen() throws Throwable {
+		StubLLMProvider only = new StubLLMProvider("only", 0);
+		only.setFailing(true);
+		LLMRouterService router = newRouter(Map.of("only", only), List.of("only"), false);
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> router.getLLMResponse("prompt")).isInstanceOf(LLMCommunicationException.class);
+		}
+		assertThat(only.calls()).isEqualTo(3);
+
+		// The circuit is open now, the provider is not called again until it cools down
+		assertThatThrownBy(() -> router.getLLMResponse("prompt")).isInstanceOf(LLMCommunicationException.class);
+		assertThat(only.calls()).isEqualTo(3);
+	}
+
+	@Test
+	void fallsBackToTheNextProviderOnFailure() throws Throwable {
+		StubLLMProvider primary = new StubLLMProvider("primary", 0);
+		StubLLMProvider backup = new StubLLMProvider("backup", 0);
+		primary.setFailing(true);
+		LLMRouterService router = newRouter(Map.of("primary", primary, "backup", backup), List.of("primary", "backup"), false);
+
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("backup");
+		assertThat(primary.calls()).isEqualTo(1);
+	}
+
+	@Test
+	void hedgesWhenThePrimaryExceedsItsTailLatency() throws Throwable {
+		StubLLMProvider primary = new StubLLMProvider("primary", 5);
+		StubLLMProvider backup = new StubLLMProvider("backup", 20);
+		LLMRouterService router = newRouter(Map.of("primary", primary, "backup", backup), List.of("primary", "backup"), true);
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("primary");
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("backup");
+
+		primary.setLatencyMillis(2_000);
+		long start = System.nanoTime();
+		assertThat(router.getLLMResponse("prompt")).isEqualTo("backup");
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+	}
+
+	private LLMRouterService newRouter(Map<String, LLMService> providers, List<String> order, boolean hedging) {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		return new LLMRouterService(providers, new SimpleAsyncTaskExecutor(), meterRegistry, new PipelineMetrics(meterRegistry, true), order,
+				hedging, Duration.ofMillis(50), 3, 0.5, Duration.ofMinutes(1));
+	}
+}
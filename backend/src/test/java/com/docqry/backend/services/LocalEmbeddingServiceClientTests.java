@@ -0,0 +1,51 @@
+package com.docqry.backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LocalEmbeddingServiceClientTests {
+
+	private final LocalEmbeddingServiceClient client = new LocalEmbeddingServiceClient(256, Duration.ZERO, Duration.ZERO);
+
+	@Test
+	void embeddingsAreDeterministicAndNormalized() {
+		float[] first = client.generateQueryVector("What are the side effects of generic drugs?");
+		float[] second = client.generateQueryVector("What are the side effects of generic drugs?");
+
+		assertThat(first).hasSize(256).containsExactly(second);
+		assertThat(dot(first, first)).isCloseTo(1f, within(1e-5f));
+	}
+
+	@Test
+	void textsSharingWordsAreCloserThanUnrelatedOnes() {
+		List<float[]> embeddings = client.generateEmbeddings(List.of(
+				"generic drugs lower costs for patients",
+				"patients pay lower costs with generic drugs",
+				"the quarterly revenue of the shipping company grew"));
+
+		assertThat(dot(embeddings.get(0), embeddings.get(1))).isGreaterThan(dot(embeddings.get(0), embeddings.get(2)));
+	}
+
+	@Test
+	void summaryPrefersChunksMatchingTheQuery() {
+		var response = client.summarizeText("generic drug prices", List.of(
+				"Shipping volumes fell in the third quarter.",
+				"Generic drug prices dropped sharply. Insurers passed the savings on."));
+
+		assertThat(response.getRankedChunks().getFirst()).startsWith("Generic drug prices");
+		assertThat(response.getSummary()).startsWith("Generic drug prices dropped sharply.");
+	}
+
+	private static float dot(float[] a, float[] b) {
+		float sum = 0;
+		for (int i = 0; i < a.length; i++) {
+			sum += a[i] * b[i];
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,86 @@
+package com.docqry.backend.services;
+
+import com.docqry.backend.services.SemanticAnswerCache.CachedAnswer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SemanticAnswerCacheTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final SemanticAnswerCache cache = new SemanticAnswerCache(meterRegistry, true, 0.95, 4, Duration.ofHours(1));
+
+	@Test
+	void answersQuestionsAtOrAboveTheThresholdAndMissesBelowIt() {
+		cache.put("doc-1", new float[]{1, 0}, "Generic drugs lower costs.", 2_000_000);
+
+		// cos = 0.96 and 0.8, the lengths of the vectors do not matter
+		CachedAnswer hit = cache.lookup("doc-1", new float[]{2 * 0.96f, 2 * 0.28f}).orElseThrow();
+		assertThat(hit.answer()).isEqualTo("Generic drugs lower costs.");
+		assertThat(hit.similarity()).isCloseTo(0.96f, within(1e-5f));
+		assertThat(hit.generationNanos()).isEqualTo(2_000_000);
+		assertThat(cache.lookup("doc-1", new float[]{0.8f, 0.6f})).isEmpty();
+		assertThat(cache.lookup("doc-2", new float[]{1, 0})).isEmpty();
+
+		assertThat(meterRegistry.get("docqry.answer.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+		assertThat(meterRegistry.get("docqry.answer.cache.requests").tag("result", "miss").counter().count()).isEqualTo(2);
+	}
+
+	@Test
+	void matchesExactlyAtTheThreshold() {
+		SemanticAnswerCache atThreshold = new SemanticAnswerCache(meterRegistry, true, 0.5, 4, Duration.ofHours(1));
+		atThreshold.put("doc-1", new float[]{1, 0}, "answer", 0);
+
+		assertThat(atThreshold.lookup("doc-1", new float[]{0.5f, (float) Math.sqrt(0.75)})).isPresent();
+	}
+
+	@Test
+	void expiresAnswersAfterTheTtl() throws InterruptedException {
+		SemanticAnswerCache shortLived = new SemanticAnswerCache(meterRegistry, true, 0.95, 4, Duration.ofMillis(50));
+		shortLived.put("doc-1", new float[]{1, 0}, "answer", 0);
+		assertThat(shortLived.lookup("doc-1", new float[]{1, 0})).isPresent();
+
+		Thread.sleep(100);
+
+		assertThat(shortLived.lookup("doc-1", new float[]{1, 0})).isEmpty();
+	}
+
+	@Test
+	void overwritesTheOldestAnswerOnceADocumentIsFull() {
+		float[][] questions = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {1, 1, 0}, {0, 1, 1}};
+		for (int i = 0; i < questions.length; i++) {
+			cache.put("doc-1", questions[i], "answer " + i, 0);
+		}
+
+		assertThat(cache.lookup("doc-1", questions[0])).isEmpty();
+		for (int i = 1; i < questions.length; i++) {
+			assertThat(cache.lookup("doc-1", questions[i])).map(CachedAnswer::answer).contains("answer " + i);
+		}
+		assertThat(meterRegistry.get("docqry.answer.cache.entries").gauge().value()).isEqualTo(4);
+	}
+
+	@Test
+	void ignoresVectorsOfAnotherDimension() {
+		cache.put("doc-1", new float[]{1, 0}, "answer", 0);
+		cache.put("doc-1", new float[]{1, 0, 0}, "other model", 0);
+
+		assertThat(cache.lookup("doc-1", new float[]{1, 0, 0})).isEmpty();
+		assertThat(cache.lookup("doc-1", new float[]{1, 0})).map(CachedAnswer::answer).contains("answer");
+		assertThat(meterRegistry.get("docqry.answer.cache.entries").gauge().value()).isEqualTo(1);
+	}
+
+	@Test
+	void invalidateDropsOnlyThatDocumentsAnswers() {
+		cache.put("doc-1", new float[]{1, 0}, "first", 0);
+		cache.put("doc-2", new float[]{1, 0}, "second", 0);
+
+		cache.invalidate("doc-1");
+
+		assertThat(cache.lookup("doc-1", new float[]{1, 0})).isEmpty();
+		assertThat(cache.lookup("doc-2", new float[]{1, 0})).map(CachedAnswer::answer).contains("second");
+	}
+}
@@ -0,0 +1,30 @@
+package com.docqry.backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.zip.Deflater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SentenceStreamTests {
+
+	private final SentenceStream sentences = SentenceStream.of(new String[]{
+			"Generic drugs lower costs.", "Insurers cover them.", "Patients switch slowly.", "Prices still vary."});
+
+	@Test
+	void cutsChunksAsTheChunkerJoinsThem() {
+		assertThat(sentences.size()).isEqualTo(4);
+		assertThat(sentences.sentence(2)).isEqualTo("Patients switch slowly.");
+		assertThat(sentences.chunk(1, 3)).isEqualTo("Insurers cover them. Patients switch slowly. ");
+		assertThat(sentences.chunk(2, 2)).isEmpty();
+	}
+
+	@Test
+	void survivesTheRoundTripThroughStorage() {
+		SentenceStream decoded = SentenceStream.decode(sentences.encodeText(Deflater.BEST_COMPRESSION), sentences.encodeOffsets());
+
+		assertThat(decoded.size()).isEqualTo(sentences.size());
+		assertThat(decoded.chunk(0, 4)).isEqualTo(sentences.chunk(0, 4));
+		assertThat(decoded.sentence(3)).isEqualTo("Prices still vary.");
+	}
+}
@@ -0,0 +1,79 @@
+package com.docqry.backend.stubs;
+
+import com.docqry.backend.grpc.embedding.EmbedRequest;
+import com.docqry.backend.grpc.embedding.EmbedResponse;
+import com.docqry.backend.grpc.embedding.EmbeddingServiceGrpc;
+import com.google.protobuf.ByteString;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.stub.StreamObserver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-in for the embedding service's gRPC endpoint. Each text is embedded as
+ * {@link #vectorFor(String, int)}, so tests can check which vector came back for which text.
+ */
+public class StubEmbeddingGrpcServer implements AutoCloseable {
+
+	private final Server server;
+
+	public StubEmbeddingGrpcServer(int dimension) throws IOException {
+		this.server = ServerBuilder.forPort(0)
+				.addService(new EmbeddingServiceGrpc.EmbeddingServiceImplBase() {
+					@Override
+					public StreamObserver<EmbedRequest> embedStream(StreamObserver<EmbedResponse> responses) {
+						return new StreamObserver<>() {
+							@Override
+							public void onNext(EmbedRequest request) {
+								ByteBuffer vectors = ByteBuffer.allocate(request.getTextsCount() * dimension * Float.BYTES)
+										.order(ByteOrder.LITTLE_ENDIAN);
+								for (String text : request.getTextsList()) {
+									for (float value : vectorFor(text, dimension)) {
+										vectors.putFloat(value);
+									}
+								}
+								vectors.flip();
+								responses.onNext(EmbedResponse.newBuilder()
+										.setBatchId(request.getBatchId())
+										.setDimension(dimension)
+										.setCount(request.getTextsCount())
+										.setVectors(ByteString.copyFrom(vectors))
+										.build());
+							}
+
+							@Override
+							public void onError(Throwable t) {
+							}
+
+							@Override
+							public void onCompleted() {
+								responses.onCompleted();
+							}
+						};
+					}
+				})
+				.build()
+				.start();
+	}
+
+	public static float[] vectorFor(String text, int dimension) {
+		float[] vector = new float[dimension];
+		for (int i = 0; i < dimension; i++) {
+			vector[i] = text.hashCode() * 31f + i;
+		}
+		return vector;
+	}
+
+	public int port() {
+		return server.getPort();
+	}
+
+	@Override
+	public void close() throws InterruptedException {
+		server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+	}
+}
@@ -0,0 +1,101 @@
+package com.docqry.backend.stubs;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+/**
+ * Minimal local stand-in for the Gemini REST API. It answers both {@code :generateContent} and
+ * {@code :streamGenerateContent?alt=sse} with a canned answer, splitting the streamed variant into
+ * word fragments separated by a configurable delay so time-to-first-token can be observed.
+ */
+public class StubGeminiServer implements AutoCloseable {
+
+	private final HttpServer server;
+	private final String answer;
+	private final long tokenDelayMillis;
+
+	public StubGeminiServer(String answer, long tokenDelayMillis) throws IOException {
+		this.answer = answer;
+		this.tokenDelayMillis = tokenDelayMillis;
+		this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		this.server.createContext("/v1/models/", this::handle);
+		this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+		this.server.start();
+	}
+
+	/**
+	 * @return The URL to configure as {@code gemini.api.url}.
+	 */
+	public String generateContentUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/models/stub:generateContent";
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		exchange.getRequestBody().readAllBytes();
+		String path = exchange.getRequestURI().getPath();
+		try {
+			if (path.endsWith(":streamGenerateContent")) {
+				stream(exchange);
+			} else {
+				byte[] body = candidateJson(answer).getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json");
+				exchange.sendResponseHeaders(200, body.length);
+				exchange.getResponseBody().write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void stream(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream out = exchange.getResponseBody();
+		for (String fragment : fragments()) {
+			out.write(("data: " + candidateJson(fragment) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			sleep();
+		}
+		// Gemini closes the stream with a metadata-only event
+		out.write("data: {\"candidates\":[{\"finishReason\":\"STOP\"}]}\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+		out.flush();
+	}
+
+	private List<String> fragments() {
+		List<String> fragments = new ArrayList<>();
+		int start = 0;
+		for (int i = 1; i <= answer.length(); i++) {
+			if (i == answer.length() || answer.charAt(i) == ' ') {
+				fragments.add(answer.substring(start, i));
+				start = i;
+			}
+		}
+		return fragments;
+	}
+
+	private static String candidateJson(String text) {
+		String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+		return "{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"text\":\"" + escaped + "\"}]}}]}";
+	}
+
+	private void sleep() {
+		try {
+			Thread.sleep(tokenDelayMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+	}
+}
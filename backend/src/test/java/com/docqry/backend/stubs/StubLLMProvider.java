@@ -0,0 +1,50 @@
+package com.docqry.backend.stubs;
+
+import com.docqry.backend.exceptions.LLMCommunicationException;
+import com.docqry.backend.services.LLMService;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process {@link LLMService} with a fixed latency that can be switched into failing mode,
+ * for exercising routing, hedging and circuit breaking without any network.
+ */
+public class StubLLMProvider implements LLMService {
+
+	private final String answer;
+	private volatile long latencyMillis;
+	private volatile boolean failing;
+	private final AtomicInteger calls = new AtomicInteger();
+
+	public StubLLMProvider(String answer, long latencyMillis) {
+		this.answer = answer;
+		this.latencyMillis = latencyMillis;
+	}
+
+	@Override
+	public String getLLMResponse(String prompt) throws LLMCommunicationException {
+		calls.incrementAndGet();
+		try {
+			Thread.sleep(latencyMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LLMCommunicationException("interrupted");
+		}
+		if (failing) {
+			throw new LLMCommunicationException(answer + " unavailable");
+		}
+		return answer;
+	}
+
+	public void setLatencyMillis(long latencyMillis) {
+		this.latencyMillis = latencyMillis;
+	}
+
+	public void setFailing(boolean failing) {
+		this.failing = failing;
+	}
+
+	public int calls() {
+		return calls.get();
+	}
+}
@@ -1,4 +1,4 @@
-from fastapi import FastAPI, HTTPException
+from fastapi import FastAPI, HTTPException, Request
 from pydantic import BaseModel, Field
 from typing import List, Optional
 from sentence_transformers import SentenceTransformer
@@ -6,6 +6,14 @@ from mistralai import Mistral, UserMessage, SystemMessage
 import numpy as np
 import os
 from dotenv import load_dotenv
+import asyncio
+import contextvars
+import logging
+import time
+from contextlib import contextmanager
+import grpc
+import embedding_pb2
+import embedding_pb2_grpc
 
 # Load environment variables
 load_dotenv()
@@ -13,6 +21,61 @@ load_dotenv()
 # Initialize FastAPI app
 app = FastAPI()
 
+logging.basicConfig(level=logging.INFO)
+logger = logging.getLogger("embedding-service")
+
+# Timed steps of the request being handled, returned to the backend as Server-Timing entries
+server_timings = contextvars.ContextVar("server_timings", default=None)
+
+
+def trace_id(traceparent: Optional[str]) -> str:
+    """
+    Extract the trace id from a W3C traceparent header (version-traceid-parentid-flags).
+    """
+    if not traceparent:
+        return "-"
+    parts = traceparent.split("-")
+    return parts[1] if len(parts) == 4 else "-"
+
+
+@contextmanager
+def timed(name: str):
+    """
+    Time a step of the current request, e.g. the Mistral call of a summary, so the backend can tell it apart
+    from the rest of the time spent in this service.
+    """
+    start = time.perf_counter()
+    try:
+        yield
+    finally:
+        timings = server_timings.get()
+        if timings is not None:
+            timings.append((name, (time.perf_counter() - start) * 1000))
+
+
+@app.middleware("http")
+async def trace_context(request: Request, call_next):
+    """
+    Continue the backend's trace: log each request with the trace id of the incoming traceparent header and
+    answer with a Server-Timing header breaking down the time spent here.
+    """
+    traceparent = request.headers.get("traceparent")
+    timings = []
+    token = server_timings.set(timings)
+    start = time.perf_counter()
+    try:
+        response = await call_next(request)
+    finally:
+        server_timings.reset(token)
+    duration_ms = (time.perf_counter() - start) * 1000
+
+    entries = [f"{name};dur={duration:.1f}" for name, duration in timings]
+    entries.append(f"app;dur={duration_ms:.1f}")
+    response.headers["Server-Timing"] = ", ".join(entries)
+    logger.info("%s %s %d %.1fms trace=%s", request.method, request.url.path, response.status_code,
+                duration_ms, trace_id(traceparent))
+    return response
+
 # Initialize models and clients
 embedding_model = SentenceTransformer('BAAI/bge-large-en-v1.5')
 mistral_client = Mistral(api_key=os.getenv('MISTRAL_API_KEY'))
@@ -28,11 +91,14 @@ class SummarizationRequest(BaseModel):
     chunks: List[str]
     max_tokens: Optional[int] = Field(default=1024, gt=0)
     top_k: Optional[int] = Field(default=3, gt=0)
+    # Scores of chunks the caller has already ranked, most relevant first; they are not embedded again
+    chunk_scores: Optional[List[float]] = None
 
 class InitialSummarizationRequest(BaseModel):
     chunks: List[str]
     max_tokens: Optional[int] = Field(default=1024, gt=0)
     chunk_count: Optional[int] = Field(default=5, gt=0)
+    model: Optional[str] = "mistral-medium"
 
 class SummarizationResponse(BaseModel):
     summary: str
@@ -184,13 +250,14 @@ def generate_mistral_summary(query: str, chunks: List[str], max_tokens: int) ->
             detail=f"Error during summarization: {str(e)}"
         )
 
-def generate_initial_summary(chunks: List[str], max_tokens: int) -> tuple[str, List[str]]:
+def generate_initial_summary(chunks: List[str], max_tokens: int, model: str = "mistral-medium") -> tuple[str, List[str]]:
     """
     Generate an initial overview summary and extract key topics
     
     Args:
         chunks (List[str]): List of initial chunks from the uploaded/selected document.
         max_tokens (int): The maximum number of tokens to generate in the completion.
+        model (str): The Mistral model used for the overview and the topic extraction.
     
     Returns:
         response (str): Semantic Summary of the chunks.
@@ -217,7 +284,7 @@ def generate_initial_summary(chunks: List[str], max_tokens: int) -> tuple[str, L
         ]
         
         response = mistral_client.chat.complete(
-            model="mistral-medium",
+            model=model,
             messages=messages,
             max_tokens=max_tokens,
             temperature=0.3
@@ -240,7 +307,7 @@ def generate_initial_summary(chunks: List[str], max_tokens: int) -> tuple[str, L
         ]
         
         topic_response = mistral_client.chat.complete(
-            model="mistral-medium",
+            model=model,
             messages=topic_messages,
             max_tokens=200,
             temperature=0.1
@@ -269,7 +336,8 @@ async def generate_embeddings(request: EmbeddingRequest):
     """
     try:
         # Generate embeddings for the input texts and normalize them
-        embeddings = embedding_model.encode(request.texts, normalize_embeddings=True)
+        with timed("encode"):
+            embeddings = embedding_model.encode(request.texts, normalize_embeddings=True)
         
         # Return the embeddings as a list
         return EmbeddingResponse(embeddings=embeddings.tolist())
@@ -291,19 +359,26 @@ async def summarize(request: SummarizationRequest):
         SummarizationResponse: Includes the generated summary, ranked chunks, and their scores.
     """
     try:
-        # Rank chunks based on their relevance to the query
-        ranked_chunks, chunk_scores = rank_chunks(
-            request.query,
-            request.chunks,
-            request.top_k
-        )
+        if request.chunk_scores is not None:
+            # Ranked by the backend from the vectors it already has, keep its order
+            ranked_chunks = request.chunks[:request.top_k]
+            chunk_scores = request.chunk_scores[:len(ranked_chunks)]
+        else:
+            # Rank chunks based on their relevance to the query
+            with timed("rank"):
+                ranked_chunks, chunk_scores = rank_chunks(
+                    request.query,
+                    request.chunks,
+                    request.top_k
+                )
         
         # Generate a summary using the query and ranked chunks
-        summary = generate_mistral_summary(
-            request.query,
-            ranked_chunks,
-            request.max_tokens
-        )
+        with timed("mistral"):
+            summary = generate_mistral_summary(
+                request.query,
+                ranked_chunks,
+                request.max_tokens
+            )
         
         # Return the summary, ranked chunks, and their scores
         return SummarizationResponse(
@@ -335,16 +410,19 @@ async def generate_initial_overview(request: InitialSummarizationRequest):
     """
     try:
         # Select representative and diverse chunks from the document
-        selected_chunks = select_representative_chunks(
-            request.chunks,
-            request.chunk_count
-        )
+        with timed("select"):
+            selected_chunks = select_representative_chunks(
+                request.chunks,
+                request.chunk_count
+            )
         
         # Generate a high-level summary and extract key topics from the selected chunks
-        overview_summary, key_topics = generate_initial_summary(
-            selected_chunks,
-            request.max_tokens
-        )
+        with timed("mistral"):
+            overview_summary, key_topics = generate_initial_summary(
+                selected_chunks,
+                request.max_tokens,
+                request.model
+            )
         
         # Return the summary, key topics, and selected chunks
         return InitialSummarizationResponse(
@@ -362,4 +440,50 @@ async def generate_initial_overview(request: InitialSummarizationRequest):
 
 @app.get("/")
 async def read_root():
-    return {"message": "Enhanced RAG Service is running!"}
\ No newline at end of file
+    return {"message": "Enhanced RAG Service is running!"}
+
+
+class EmbeddingServicer(embedding_pb2_grpc.EmbeddingServiceServicer):
+    """
+    Binary transport for embeddings: each request batch is answered with one message whose
+    vectors are packed little-endian float32, so nothing is formatted as decimal text.
+    """
+
+    async def EmbedStream(self, request_iterator, context):
+        traceparent = dict(context.invocation_metadata()).get("traceparent")
+        logger.info("EmbedStream trace=%s", trace_id(traceparent))
+        loop = asyncio.get_running_loop()
+        async for request in request_iterator:
+            # Encoding is CPU bound, keep it off the event loop serving the REST endpoints
+            embeddings = await loop.run_in_executor(
+                None,
+                lambda texts=list(request.texts): embedding_model.encode(texts, normalize_embeddings=True)
+            )
+            embeddings = np.asarray(embeddings, dtype='<f4')
+            yield embedding_pb2.EmbedResponse(
+                batch_id=request.batch_id,
+                dimension=embeddings.shape[1] if embeddings.ndim == 2 else 0,
+                count=embeddings.shape[0],
+                vectors=embeddings.tobytes()
+            )
+
+
+grpc_server = None
+
+
+@app.on_event("startup")
+async def start_grpc_server():
+    global grpc_server
+    grpc_server = grpc.aio.server(options=[
+        ('grpc.max_send_message_length', 64 * 1024 * 1024),
+        ('grpc.max_receive_message_length', 64 * 1024 * 1024),
+    ])
+    embedding_pb2_grpc.add_EmbeddingServiceServicer_to_server(EmbeddingServicer(), grpc_server)
+    grpc_server.add_insecure_port(f"[::]:{os.getenv('GRPC_PORT', '50051')}")
+    await grpc_server.start()
+
+
+@app.on_event("shutdown")
+async def stop_grpc_server():
+    if grpc_server is not None:
+        await grpc_server.stop(grace=5)
@@ -10,6 +10,7 @@ const AppLayout = () => {
     const [selectedDocument, setSelectedDocument] = useState(null);
     const [isSidebarOpen, setSidebarOpen] = useState(true);
     const [documents, setDocuments] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [isLoading, setIsLoading] = useState(true);
     const [isSelectingDocument, setIsSelectingDocument] = useState(false);
     const [error, setError] = useState(null);
@@ -66,7 +67,8 @@ const AppLayout = () => {
             setIsLoading(true);
             setError(null);
             const data = await documentService.getDocuments();
-            setDocuments(data);
+            setDocuments(data.items);
+            setNextCursor(data.nextCursor ?? null);
         } catch (err) {
             setError('Failed to load documents');
             console.error('Error fetching documents:', err);
@@ -75,6 +77,19 @@ const AppLayout = () => {
         }
     };
 
+    const loadMoreDocuments = async () => {
+        if (!nextCursor) return;
+        try {
+            setError(null);
+            const data = await documentService.getDocuments(nextCursor);
+            setDocuments(prev => [...prev, ...data.items]);
+            setNextCursor(data.nextCursor ?? null);
+        } catch (err) {
+            setError('Failed to load documents');
+            console.error('Error fetching documents:', err);
+        }
+    };
+
     const handleDocumentSelect = async (doc) => {
         try {
             setError(null);
@@ -139,6 +154,8 @@ const AppLayout = () => {
                 toggleTheme={toggleTheme}
                 isSidebarOpen={isSidebarOpen}
                 documents={documents}
+                hasMoreDocuments={nextCursor !== null}
+                loadMoreDocuments={loadMoreDocuments}
                 selectedDocument={selectedDocument}
                 handleDocumentSelect={handleDocumentSelect}
                 handleDocumentDelete={handleDocumentDelete}
@@ -7,6 +7,8 @@ import { Button } from "./ui/button";
 
 export const DocumentsList = ({
     documents,
+    hasMoreDocuments,
+    loadMoreDocuments,
     selectedDocument,
     handleDocumentSelect,
     handleDocumentDelete,
@@ -61,7 +63,7 @@ export const DocumentsList = ({
                                 <div onClick={() => handleDocumentSelect(doc)}>
                                     <div className="text-sm font-medium">{doc.name}</div>
                                     <div className="text-xs text-muted-foreground">
-                                        Uploaded: {new Date(doc.uploadDate).toLocaleDateString()}
+                                        Uploaded: {new Date(doc.uploadedAt).toLocaleDateString()}
                                     </div>
                                 </div>
                                 <Button
@@ -80,6 +82,11 @@ export const DocumentsList = ({
                             </div>
                         </Card>
                     ))}
+                    {hasMoreDocuments && (
+                        <Button variant="ghost" className="w-full text-sm" onClick={loadMoreDocuments}>
+                            Load more
+                        </Button>
+                    )}
                     {documents.length === 0 && (
                         <div className="text-sm text-muted-foreground text-center py-4">
                             No documents found
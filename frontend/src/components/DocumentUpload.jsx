@@ -21,6 +21,7 @@ import {
 import { documentService } from '../services/documentService';
 
 const MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+const ACCEPTED_EXTENSIONS = ['.txt', '.md', '.pdf', '.docx', '.html', '.htm'];
 
 const DocumentUpload = ({ onUploadComplete }) => {
     const [file, setFile] = useState(null);
@@ -40,8 +41,8 @@ const DocumentUpload = ({ onUploadComplete }) => {
 
         if (!file) return;
 
-        if (!file.name.endsWith('.txt')) {
-            showToast('error', 'Only .txt files are allowed');
+        if (!ACCEPTED_EXTENSIONS.some((extension) => file.name.toLowerCase().endsWith(extension))) {
+            showToast('error', `Only ${ACCEPTED_EXTENSIONS.join(', ')} files are allowed`);
             return;
         }
 
@@ -56,7 +57,10 @@ const DocumentUpload = ({ onUploadComplete }) => {
     const { getRootProps, getInputProps, isDragActive } = useDropzone({
         onDrop,
         accept: {
-            'text/plain': ['.txt'],
+            'text/plain': ['.txt', '.md'],
+            'application/pdf': ['.pdf'],
+            'application/vnd.openxmlformats-officedocument.wordprocessingml.document': ['.docx'],
+            'text/html': ['.html', '.htm'],
         },
         maxFiles: 1,
     });
@@ -80,7 +84,7 @@ const DocumentUpload = ({ onUploadComplete }) => {
             onUploadComplete?.(response);
         } catch (error) {
             const errorMessage =
-                error.response?.data?.message || 'An unexpected error occurred during file upload.';
+                error.response?.data?.error || error.response?.data?.message || 'An unexpected error occurred during file upload.';
             showToast('error', errorMessage);
         } finally {
             setUploading(false);
@@ -124,7 +128,7 @@ const DocumentUpload = ({ onUploadComplete }) => {
                                 <p className="text-gray-600">
                                     {isDragActive
                                         ? 'Drop the file here'
-                                        : 'Drag and drop a .txt file here, or click to browse'}
+                                        : 'Drag and drop a PDF, Word, HTML or text file here, or click to browse'}
                                 </p>
                                 <p className="text-sm text-gray-500 mt-1">
                                     Maximum file size: {formatFileSize(MAX_FILE_SIZE)}
@@ -8,6 +8,8 @@ export const Sidebar = ({
     toggleTheme,
     isSidebarOpen,
     documents,
+    hasMoreDocuments,
+    loadMoreDocuments,
     selectedDocument,
     handleDocumentSelect,
     handleDocumentDelete,
@@ -37,6 +39,8 @@ export const Sidebar = ({
 
             <DocumentsList
                 documents={documents}
+                hasMoreDocuments={hasMoreDocuments}
+                loadMoreDocuments={loadMoreDocuments}
                 selectedDocument={selectedDocument}
                 handleDocumentSelect={handleDocumentSelect}
                 handleDocumentDelete={handleDocumentDelete}
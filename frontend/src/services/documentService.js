@@ -17,11 +17,12 @@ export const documentService = {
         return response.data;
     },
 
-    // Get list of all documents
-    getDocuments: async () => {
-        console.log(import.meta.env.VITE_BACKEND_BASE_URL);
-        const response = await api.get(`${DOCUMENTS_BASE_URL}/list`);
-        // console.log(response);
+    // Get a page of documents, newest first: { items, nextCursor }. The browser revalidates it with its ETag,
+    // so an unchanged list comes back as a cheap 304.
+    getDocuments: async (cursor) => {
+        const response = await api.get(`${DOCUMENTS_BASE_URL}/list`, {
+            params: cursor ? { cursor } : undefined,
+        });
         return response.data;
     },
 
@@ -0,0 +1,31 @@
+package com.docqry.loadtest;
+
+import java.util.Random;
+
+/**
+ * Deterministic document-like text, different for every sequence number.
+ */
+final class Documents {
+
+    private static final String[] WORDS = {
+            "generic", "drugs", "patients", "insurers", "costs", "trial", "results", "the", "of", "and",
+            "dosage", "approval", "market", "price", "study", "effects", "regulator", "report", "coverage", "a",
+            "hospital", "clinical", "evidence", "policy", "with", "for", "in", "analysis", "data", "outcomes"};
+
+    private Documents() {
+    }
+
+    static String generate(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 256);
+        while (text.length() < length) {
+            int words = 8 + random.nextInt(20);
+            for (int i = 0; i < words; i++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : " " + word);
+            }
+            text.append(". ");
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.docqry.loadtest;
+
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Service time of a stubbed downstream, parsed from a short spec:
+ * <ul>
+ *     <li>{@code none}</li>
+ *     <li>{@code fixed:200ms}</li>
+ *     <li>{@code uniform:100ms-400ms}</li>
+ *     <li>{@code lognormal:800ms/4s}, median 800ms and p99 4s, the long tail LLM APIs show</li>
+ * </ul>
+ * Durations accept ms and s suffixes or ISO-8601 ({@code PT2S}).
+ */
+public sealed interface LatencyDistribution {
+
+    long sampleNanos(Random random);
+
+    record None() implements LatencyDistribution {
+        public long sampleNanos(Random random) {
+            return 0;
+        }
+    }
+
+    record Fixed(long nanos) implements LatencyDistribution {
+        public long sampleNanos(Random random) {
+            return nanos;
+        }
+    }
+
+    record Uniform(long minNanos, long maxNanos) implements LatencyDistribution {
+        public long sampleNanos(Random random) {
+            return minNanos + (long) (random.nextDouble() * (maxNanos - minNanos));
+        }
+    }
+
+    record LogNormal(long medianNanos, long p99Nanos) implements LatencyDistribution {
+        // z-score of the 99th percentile of the standard normal distribution
+        private static final double Z_99 = 2.326;
+
+        public long sampleNanos(Random random) {
+            double mu = Math.log(medianNanos);
+            double sigma = Math.log((double) p99Nanos / medianNanos) / Z_99;
+            return (long) Math.exp(mu + sigma * random.nextGaussian());
+        }
+    }
+
+    static LatencyDistribution parse(String spec) {
+        String[] kindAndArgs = spec.trim().split(":", 2);
+        String kind = kindAndArgs[0].toLowerCase();
+        return switch (kind) {
+            case "none" -> new None();
+            case "fixed" -> new Fixed(nanos(argument(kindAndArgs, spec)));
+            case "uniform" -> {
+                String[] bounds = argument(kindAndArgs, spec).split("-");
+                yield new Uniform(nanos(bounds[0]), nanos(bounds[1]));
+            }
+            case "lognormal" -> {
+                String[] parts = argument(kindAndArgs, spec).split("/");
+                long median = nanos(parts[0]);
+                long p99 = nanos(parts[1]);
+                if (p99 <= median) {
+                    throw new IllegalArgumentException("p99 must be greater than the median in " + spec);
+                }
+                yield new LogNormal(median, p99);
+            }
+            default -> throw new IllegalArgumentException("Unknown latency distribution " + spec);
+        };
+    }
+
+    private static String argument(String[] kindAndArgs, String spec) {
+        if (kindAndArgs.length < 2) {
+            throw new IllegalArgumentException("Missing parameters in latency distribution " + spec);
+        }
+        return kindAndArgs[1];
+    }
+
+    static long nanos(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.startsWith("pt")) {
+            return Duration.parse(v.toUpperCase()).toNanos();
+        }
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2))).toNanos();
+        }
+        if (v.endsWith("s")) {
+            return (long) (Double.parseDouble(v.substring(0, v.length() - 1)) * 1_000_000_000L);
+        }
+        return Duration.ofMillis(Long.parseLong(v)).toNanos();
+    }
+}
@@ -0,0 +1,65 @@
+package com.docqry.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies of the successful requests of one endpoint during one load step, plus its error count.
+ */
+final class LatencyRecorder {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong errors = new AtomicLong();
+    private long[] latencies = new long[1024];
+    private int count;
+
+    void recordSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    Snapshot snapshot() {
+        lock.lock();
+        try {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return new Snapshot(sorted, errors.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    record Snapshot(long[] sortedLatencies, long errors) {
+
+        long successes() {
+            return sortedLatencies.length;
+        }
+
+        /**
+         * Nearest-rank percentile in nanoseconds, 0 when nothing succeeded.
+         */
+        long percentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, rank - 1))];
+        }
+
+        long max() {
+            return sortedLatencies.length == 0 ? 0 : sortedLatencies[sortedLatencies.length - 1];
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.docqry.loadtest;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives one scenario against a running backend in steps of increasing load and reports, per step, the throughput
+ * and p50/p95/p99 latency, then the step where the endpoint saturated.
+ * <ul>
+ *     <li>{@code --model open --rates 1,2,5,10}: Poisson arrivals at each rate, independent of completions.
+ *     Latency is measured from the intended start, so a backed-up client does not hide queueing.</li>
+ *     <li>{@code --model closed --concurrency 1,4,16,64}: that many users, each sending its next request
+ *     {@code --think-time} after the previous one completed.</li>
+ * </ul>
+ * Other options: {@code --base-url http://localhost:8080/api --scenario chat|upload --step-duration 60s
+ * --warmup 10s --document-size 20000 --timeout 120s --max-in-flight 10000 --output loadtest-results.csv}.
+ */
+public class LoadGenerator {
+
+    // Open model: the step saturated once less than this share of its arrivals succeeded, or its p99 grew
+    // this many times over the first step's; arrivals are queued rather than lost, so latency shows it first
+    private static final double OPEN_SATURATION_RATIO = 0.9;
+    private static final double OPEN_SATURATION_P99_GROWTH = 3.0;
+    // Closed model: the step saturated once adding users raised throughput by less than this
+    private static final double CLOSED_SATURATION_GAIN = 0.1;
+
+    private final HttpClient client;
+    private final Scenario scenario;
+    private final long stepNanos;
+    private final long warmupNanos;
+    private final long thinkTimeNanos;
+    private final int maxInFlight;
+    private final AtomicLong sequence = new AtomicLong(1);
+
+    record StepResult(String model, int load, double seconds, LatencyRecorder.Snapshot snapshot, long arrivals, long dropped) {
+
+        double throughput() {
+            return snapshot.successes() / seconds;
+        }
+    }
+
+    LoadGenerator(HttpClient client, Scenario scenario, Options options) {
+        this.client = client;
+        this.scenario = scenario;
+        this.stepNanos = options.getNanos("step-duration", "60s");
+        this.warmupNanos = options.getNanos("warmup", "10s");
+        this.thinkTimeNanos = options.getNanos("think-time", "0ms");
+        this.maxInFlight = options.getInt("max-in-flight", 10_000);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        String model = options.get("model", "open");
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        Scenario scenario = Scenario.create(options.get("scenario", "chat"), options.get("base-url", "http://localhost:8080/api"), client, options);
+        LoadGenerator generator = new LoadGenerator(client, scenario, options);
+
+        List<StepResult> results = new ArrayList<>();
+        List<String> steps = "closed".equals(model)
+                ? options.getList("concurrency", "1,4,16,64")
+                : options.getList("rates", "1,2,5,10");
+        printHeader(scenario, model);
+        for (String step : steps) {
+            int load = Integer.parseInt(step);
+            StepResult result = "closed".equals(model) ? generator.runClosed(load) : generator.runOpen(load);
+            results.add(result);
+            printStep(result);
+        }
+        printSaturation(model, results);
+        writeCsv(Path.of(options.get("output", "loadtest-results.csv")), scenario, results);
+    }
+
+    StepResult runOpen(int ratePerSecond) throws InterruptedException {
+        LatencyRecorder warmup = new LatencyRecorder();
+        LatencyRecorder measured = new LatencyRecorder();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicLong dropped = new AtomicLong();
+        Random arrivals = new Random(ratePerSecond);
+        long measuredArrivals = 0;
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + stepNanos;
+        double meanGapNanos = 1_000_000_000.0 / ratePerSecond;
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            long intendedStart = start;
+            while (true) {
+                // Exponential inter-arrival times give Poisson arrivals
+                intendedStart += (long) (-Math.log(1 - arrivals.nextDouble()) * meanGapNanos);
+                if (intendedStart >= end) {
+                    break;
+                }
+                LockSupport.parkNanos(intendedStart - System.nanoTime());
+                LatencyRecorder recorder = intendedStart < measureFrom ? warmup : measured;
+                if (recorder == measured) {
+                    measuredArrivals++;
+                }
+                if (!inFlight.tryAcquire()) {
+                    dropped.incrementAndGet();
+                    recorder.recordError();
+                    continue;
+                }
+                long scheduledAt = intendedStart;
+                requests.execute(() -> {
+                    try {
+                        send(recorder, scheduledAt);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            // Requests still running at the end count towards the step; closing waits for them
+        }
+        return new StepResult("open", ratePerSecond, seconds(stepNanos), measured.snapshot(), measuredArrivals, dropped.get());
+    }
+
+    StepResult runClosed(int users) throws InterruptedException {
+        LatencyRecorder warmup = new LatencyRecorder();
+        LatencyRecorder measured = new LatencyRecorder();
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long end = measureFrom + stepNanos;
+
+        try (ExecutorService userThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < users; i++) {
+                userThreads.execute(() -> {
+                    while (System.nanoTime() < end) {
+                        long sentAt = System.nanoTime();
+                        send(sentAt < measureFrom ? warmup : measured, sentAt);
+                        if (thinkTimeNanos > 0) {
+                            LockSupport.parkNanos(thinkTimeNanos);
+                        }
+                    }
+                });
+            }
+        }
+        // Users finish the request they were in, so the step may overrun slightly
+        long elapsed = Math.max(stepNanos, System.nanoTime() - measureFrom);
+        LatencyRecorder.Snapshot snapshot = measured.snapshot();
+        return new StepResult("closed", users, seconds(elapsed), snapshot, snapshot.successes() + snapshot.errors(), 0);
+    }
+
+    private void send(LatencyRecorder recorder, long startNanos) {
+        HttpRequest request = scenario.nextRequest(sequence.getAndIncrement());
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            long latency = System.nanoTime() - startNanos;
+            if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                recorder.recordSuccess(latency);
+            } else {
+                recorder.recordError();
+            }
+        } catch (IOException e) {
+            recorder.recordError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            recorder.recordError();
+        }
+    }
+
+    private static void printHeader(Scenario scenario, String model) {
+        System.out.printf("%n%s, %s model%n", scenario.endpoint(), model);
+        System.out.printf("%8s %10s %8s %8s %10s %10s %10s %10s%n",
+                "load", "req/s", "ok", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+    }
+
+    private static void printStep(StepResult result) {
+        LatencyRecorder.Snapshot snapshot = result.snapshot();
+        System.out.printf("%8d %10.2f %8d %8d %10.1f %10.1f %10.1f %10.1f%n",
+                result.load(), result.throughput(), snapshot.successes(), snapshot.errors(),
+                millis(snapshot.percentile(50)), millis(snapshot.percentile(95)),
+                millis(snapshot.percentile(99)), millis(snapshot.max()));
+    }
+
+    private static void printSaturation(String model, List<StepResult> results) {
+        for (int i = 0; i < results.size(); i++) {
+            StepResult result = results.get(i);
+            boolean saturated;
+            if ("closed".equals(model)) {
+                saturated = i > 0 && result.throughput() < results.get(i - 1).throughput() * (1 + CLOSED_SATURATION_GAIN);
+            } else {
+                saturated = result.snapshot().successes() < result.arrivals() * OPEN_SATURATION_RATIO
+                        || result.snapshot().percentile(99) > results.getFirst().snapshot().percentile(99) * OPEN_SATURATION_P99_GROWTH;
+            }
+            if (saturated) {
+                StepResult knee = "closed".equals(model) && i > 0 ? results.get(i - 1) : result;
+                System.out.printf("Saturation at load %d: %.2f req/s, p99 %.1f ms%n",
+                        knee.load(), knee.throughput(), millis(knee.snapshot().percentile(99)));
+                return;
+            }
+        }
+        System.out.println("No saturation within the tested loads, extend --rates or --concurrency");
+    }
+
+    private static void writeCsv(Path path, Scenario scenario, List<StepResult> results) throws IOException {
+        try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(path))) {
+            csv.println("endpoint,model,load,throughput,successes,errors,dropped,p50_ms,p95_ms,p99_ms,max_ms");
+            for (StepResult result : results) {
+                LatencyRecorder.Snapshot snapshot = result.snapshot();
+                csv.printf("%s,%s,%d,%.3f,%d,%d,%d,%.1f,%.1f,%.1f,%.1f%n",
+                        scenario.endpoint(), result.model(), result.load(), result.throughput(),
+                        snapshot.successes(), snapshot.errors(), result.dropped(),
+                        millis(snapshot.percentile(50)), millis(snapshot.percentile(95)),
+                        millis(snapshot.percentile(99)), millis(snapshot.max()));
+            }
+        }
+        System.out.printf("Results written to %s%n", path);
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1_000_000_000.0;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
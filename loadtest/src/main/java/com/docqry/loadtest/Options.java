@@ -0,0 +1,47 @@
+package com.docqry.loadtest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code --name value} command line options, falling back to an upper-case environment variable
+ * ({@code --gemini-port} to {@code GEMINI_PORT}) and then to the given default.
+ */
+final class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got " + Arrays.toString(args));
+            }
+            values.put(args[i].substring(2), args[++i]);
+        }
+    }
+
+    String get(String name, String defaultValue) {
+        String value = values.get(name);
+        if (value == null) {
+            value = System.getenv(name.toUpperCase().replace('-', '_'));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, String.valueOf(defaultValue)));
+    }
+
+    long getNanos(String name, String defaultValue) {
+        return LatencyDistribution.nanos(get(name, defaultValue));
+    }
+
+    List<String> getList(String name, String defaultValue) {
+        return Arrays.stream(get(name, defaultValue).split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,115 @@
+package com.docqry.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * A scripted user action against the backend, issued once per arrival (open model) or per loop (closed model).
+ */
+interface Scenario {
+
+    String endpoint();
+
+    HttpRequest nextRequest(long sequence);
+
+    static Scenario create(String name, String baseUrl, HttpClient client, Options options) throws IOException, InterruptedException {
+        Duration timeout = Duration.ofNanos(options.getNanos("timeout", "120s"));
+        int documentSize = options.getInt("document-size", 20_000);
+        return switch (name) {
+            case "upload" -> new Upload(baseUrl, timeout, documentSize);
+            case "chat" -> Chat.setUp(baseUrl, client, timeout, documentSize, options.get("chat-path", "/prompt/llm-response"));
+            default -> throw new IllegalArgumentException("Unknown scenario " + name + ", expected upload or chat");
+        };
+    }
+
+    /**
+     * Uploads a freshly generated plain-text document, exercising chunking, embedding and the Qdrant upsert.
+     */
+    record Upload(String baseUrl, Duration timeout, int documentSize) implements Scenario {
+
+        public String endpoint() {
+            return "POST /documents/upload";
+        }
+
+        public HttpRequest nextRequest(long sequence) {
+            String boundary = "loadtest-" + UUID.randomUUID();
+            String document = Documents.generate(documentSize, sequence);
+            String body = "--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"file\"; filename=\"loadtest-" + sequence + ".txt\"\r\n"
+                    + "Content-Type: text/plain\r\n\r\n"
+                    + document + "\r\n"
+                    + "--" + boundary + "--\r\n";
+            return HttpRequest.newBuilder(URI.create(baseUrl + "/documents/upload"))
+                    .timeout(timeout)
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8))
+                    .build();
+        }
+    }
+
+    /**
+     * Asks questions about one document, uploaded and selected once before the load starts.
+     */
+    record Chat(String baseUrl, Duration timeout, String path) implements Scenario {
+
+        private static final ObjectMapper MAPPER = new ObjectMapper();
+        private static final List<String> QUESTIONS = List.of(
+                "What does the document say about generic drug prices?",
+                "How do insurers respond to the trial results?",
+                "Summarize the evidence on patient outcomes.",
+                "Which policy changes are discussed?",
+                "What are the risks mentioned for hospitals?");
+
+        static Chat setUp(String baseUrl, HttpClient client, Duration timeout, int documentSize, String path)
+                throws IOException, InterruptedException {
+            HttpResponse<String> upload = client.send(new Upload(baseUrl, timeout, documentSize).nextRequest(0),
+                    HttpResponse.BodyHandlers.ofString());
+            if (upload.statusCode() != 200) {
+                throw new IllegalStateException("Uploading the chat document failed with " + upload.statusCode());
+            }
+            JsonNode document = MAPPER.readTree(upload.body());
+            String documentId = document.path("id").asText();
+
+            HttpResponse<String> select = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/session/select-document/" + documentId))
+                    .timeout(timeout)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            if (select.statusCode() != 200) {
+                throw new IllegalStateException("Selecting the chat document failed with " + select.statusCode());
+            }
+            System.out.printf("Chat scenario uses document %s%n", documentId);
+            return new Chat(baseUrl, timeout, path);
+        }
+
+        public String endpoint() {
+            return "POST " + path;
+        }
+
+        public HttpRequest nextRequest(long sequence) {
+            // Vary the wording so the semantic answer cache does not answer every request
+            Random random = new Random(sequence);
+            String question = QUESTIONS.get(random.nextInt(QUESTIONS.size())) + " (" + sequence + ")";
+            try {
+                return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .timeout(timeout)
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(Map.of("queryText", question, "limit", 5))))
+                        .build();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
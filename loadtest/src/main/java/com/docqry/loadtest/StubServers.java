@@ -0,0 +1,235 @@
+package com.docqry.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local stand-ins for the backend's downstreams, so it can be load tested without Gemini, Mistral or BGE:
+ * <ul>
+ *     <li>a Gemini endpoint answering {@code :generateContent} and {@code :streamGenerateContent}</li>
+ *     <li>the embedding service's {@code /generate-embeddings}, {@code /summarize} and {@code /initial-summary}</li>
+ * </ul>
+ * Each answers after a delay drawn from a configurable {@link LatencyDistribution}; embeddings are deterministic
+ * hashed bags of words of the configured dimension.
+ * <p>
+ * Options (or the matching environment variables): {@code --gemini-port 9100 --embedding-port 8000
+ * --gemini-latency lognormal:800ms/4s --embedding-latency uniform:20ms-60ms --summary-latency lognormal:400ms/2s
+ * --dimension 1024 --answer-tokens 40}.
+ */
+public class StubServers {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String[] ANSWER_WORDS = {
+            "Based", "on", "the", "document,", "generic", "drugs", "reduce", "costs", "for", "patients", "and",
+            "insurers,", "while", "clinical", "evidence", "shows", "comparable", "outcomes."};
+
+    private final int dimension;
+    private final int answerTokens;
+    private final LatencyDistribution geminiLatency;
+    private final LatencyDistribution embeddingLatency;
+    private final LatencyDistribution summaryLatency;
+
+    StubServers(Options options) {
+        this.dimension = options.getInt("dimension", 1024);
+        this.answerTokens = options.getInt("answer-tokens", 40);
+        this.geminiLatency = LatencyDistribution.parse(options.get("gemini-latency", "lognormal:800ms/4s"));
+        this.embeddingLatency = LatencyDistribution.parse(options.get("embedding-latency", "uniform:20ms-60ms"));
+        this.summaryLatency = LatencyDistribution.parse(options.get("summary-latency", "lognormal:400ms/2s"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+        StubServers stubs = new StubServers(options);
+        int geminiPort = options.getInt("gemini-port", 9100);
+        int embeddingPort = options.getInt("embedding-port", 8000);
+
+        HttpServer gemini = HttpServer.create(new InetSocketAddress(geminiPort), 1024);
+        gemini.createContext("/", stubs::handleGemini);
+        gemini.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        gemini.start();
+
+        HttpServer embedding = HttpServer.create(new InetSocketAddress(embeddingPort), 1024);
+        embedding.createContext("/generate-embeddings", stubs::handleEmbeddings);
+        embedding.createContext("/summarize", stubs::handleSummarize);
+        embedding.createContext("/initial-summary", stubs::handleInitialSummary);
+        embedding.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        embedding.start();
+
+        System.out.printf("Gemini stub on :%d (%s), embedding stub on :%d (embeddings %s, summaries %s, dimension %d)%n",
+                geminiPort, stubs.geminiLatency, embeddingPort, stubs.embeddingLatency, stubs.summaryLatency, stubs.dimension);
+    }
+
+    void handleGemini(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            String path = exchange.getRequestURI().getPath();
+            long latency = geminiLatency.sampleNanos(ThreadLocalRandom.current());
+            if (path.endsWith(":streamGenerateContent")) {
+                traceHeaders(exchange, "generate", latency);
+                streamAnswer(exchange, latency);
+            } else if (path.endsWith(":generateContent")) {
+                sleepNanos(latency);
+                traceHeaders(exchange, "generate", latency);
+                writeJson(exchange, 200, geminiChunk(answer()));
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        }
+    }
+
+    // Spreads the sampled latency over the tokens, the first one arriving after a tenth of it
+    private void streamAnswer(HttpExchange exchange, long latency) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        sleepNanos(latency / 10);
+        long perToken = (latency - latency / 10) / Math.max(1, answerTokens);
+        for (int i = 0; i < answerTokens; i++) {
+            String token = (i == 0 ? "" : " ") + ANSWER_WORDS[i % ANSWER_WORDS.length];
+            out.write(("data: " + MAPPER.writeValueAsString(geminiChunk(token)) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleepNanos(perToken);
+        }
+    }
+
+    void handleEmbeddings(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            long latency = embeddingLatency.sampleNanos(ThreadLocalRandom.current());
+            sleepNanos(latency);
+            traceHeaders(exchange, "encode", latency);
+            List<float[]> embeddings = new ArrayList<>();
+            for (JsonNode text : request.path("texts")) {
+                embeddings.add(embed(text.asText()));
+            }
+            writeJson(exchange, 200, Map.of("embeddings", embeddings));
+        }
+    }
+
+    void handleSummarize(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            long latency = summaryLatency.sampleNanos(ThreadLocalRandom.current());
+            sleepNanos(latency);
+            traceHeaders(exchange, "mistral", latency);
+            List<String> chunks = texts(request.path("chunks"));
+            int topK = Math.min(request.path("top_k").asInt(3), chunks.size());
+            List<String> ranked = chunks.subList(0, topK);
+            writeJson(exchange, 200, Map.of(
+                    "summary", firstSentences(ranked),
+                    "ranked_chunks", ranked,
+                    "chunk_scores", ranked.stream().map(chunk -> 1.0).toList()));
+        }
+    }
+
+    void handleInitialSummary(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            long latency = summaryLatency.sampleNanos(ThreadLocalRandom.current());
+            sleepNanos(latency);
+            traceHeaders(exchange, "mistral", latency);
+            List<String> chunks = texts(request.path("chunks"));
+            List<String> selected = chunks.subList(0, Math.min(request.path("chunk_count").asInt(5), chunks.size()));
+            writeJson(exchange, 200, Map.of(
+                    "overview_summary", firstSentences(selected),
+                    "key_topics", List.of("costs", "patients", "evidence"),
+                    "selected_chunks", selected));
+        }
+    }
+
+    private float[] embed(String text) {
+        float[] vector = new float[dimension];
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            int hash = token.hashCode() * 0x9E3779B9;
+            vector[Math.floorMod(hash, dimension)] += hash < 0 ? -1f : 1f;
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private String answer() {
+        StringBuilder answer = new StringBuilder();
+        for (int i = 0; i < answerTokens; i++) {
+            answer.append(i == 0 ? "" : " ").append(ANSWER_WORDS[i % ANSWER_WORDS.length]);
+        }
+        return answer.toString();
+    }
+
+    private static Map<String, Object> geminiChunk(String text) {
+        return Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))))));
+    }
+
+    private static List<String> texts(JsonNode array) {
+        List<String> texts = new ArrayList<>();
+        for (JsonNode node : array) {
+            texts.add(node.asText());
+        }
+        return texts;
+    }
+
+    private static String firstSentences(List<String> chunks) {
+        StringBuilder summary = new StringBuilder();
+        for (String chunk : chunks) {
+            int end = chunk.indexOf(". ");
+            summary.append(end > 0 ? chunk.substring(0, end + 1) : chunk.strip()).append(' ');
+        }
+        return summary.toString().strip();
+    }
+
+    /**
+     * Answers like the real embedding service does: the simulated latency as a {@code Server-Timing} entry, which
+     * the backend folds into its own breakdown, and the caller's trace context echoed back.
+     */
+    private static void traceHeaders(HttpExchange exchange, String step, long latencyNanos) {
+        exchange.getResponseHeaders().set("Server-Timing",
+                String.format(Locale.ROOT, "%s;dur=%.1f", step, latencyNanos / 1_000_000.0));
+        String traceparent = exchange.getRequestHeaders().getFirst("traceparent");
+        if (traceparent != null) {
+            exchange.getResponseHeaders().set("traceresponse", traceparent);
+        }
+    }
+
+    private static void writeJson(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}